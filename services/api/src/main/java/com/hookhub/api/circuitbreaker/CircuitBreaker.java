@@ -171,6 +171,8 @@ public class CircuitBreaker {
     
     /**
      * Checks if a request should be allowed through the circuit breaker.
+     * In HALF_OPEN each allowed request counts towards the half-open test limit, so
+     * callers must not share one WebhookCircuitState between threads.
      * 
      * @param circuitState The circuit state for the webhook
      * @return true if request should be allowed, false if circuit is open
@@ -190,7 +192,7 @@ public class CircuitBreaker {
                     // Cooldown passed, transition to HALF_OPEN
                     logger.info("Circuit breaker: Cooldown period passed - transitioning to HALF_OPEN");
                     circuitState.setState(CircuitBreakerState.HALF_OPEN);
-                    circuitState.setHalfOpenTestCount(0);
+                    circuitState.setHalfOpenTestCount(1);
                     return true; // Allow test request
                 }
             }
@@ -198,8 +200,9 @@ public class CircuitBreaker {
         }
         
         if (circuitState.getState() == CircuitBreakerState.HALF_OPEN) {
-            // Allow limited test requests
+            // Allow limited test requests, counting each one admitted
             if (circuitState.getHalfOpenTestCount() < halfOpenTestLimit) {
+                circuitState.setHalfOpenTestCount(circuitState.getHalfOpenTestCount() + 1);
                 return true;
             }
             return false; // Test limit reached
@@ -218,6 +221,19 @@ public class CircuitBreaker {
         return circuitState.getState();
     }
     
+    /**
+     * Returns when an OPEN circuit may move to HALF_OPEN.
+     * 
+     * @param circuitState The circuit state for the webhook
+     * @return End of the cooldown, or null if the circuit has no opening time
+     */
+    public LocalDateTime getCooldownEnd(WebhookCircuitState circuitState) {
+        if (circuitState.getCircuitOpenedAt() == null) {
+            return null;
+        }
+        return circuitState.getCircuitOpenedAt().plusSeconds(cooldownSeconds);
+    }
+    
     /**
      * Manually resets the circuit breaker to CLOSED state.
      * Useful for manual intervention or testing.
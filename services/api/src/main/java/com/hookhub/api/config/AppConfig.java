@@ -22,7 +22,8 @@ public class AppConfig {
     }
     
     /**
-     * Configures RestTemplate for webhook delivery with timeouts.
+     * Configures RestTemplate for calls to internal services (decision engine) with timeouts.
+     * Webhook deliveries use the pooled client of DeliveryHttpTransport instead.
      * 
      * Timeout configuration:
      * - Connect timeout: 5 seconds
@@ -42,16 +43,18 @@ public class AppConfig {
     }
     
     /**
-     * Configures retry policy for webhook delivery.
+     * Configures the default retry policy for webhook delivery.
+     * Webhooks can override it with their own strategy (see RetryPolicyResolver).
      * 
      * Retry configuration:
+     * - Strategy: full jitter (delay random in [0, min(60s, 1s * 2^retryCount)])
      * - Base delay: 1 second
      * - Max delay: 60 seconds
      * - Max retries: 5
      */
     @Bean
     public com.hookhub.api.worker.RetryPolicy retryPolicy() {
-        return new com.hookhub.api.worker.RetryPolicy(1000, 60000, 5);
+        return new com.hookhub.api.worker.FullJitterRetryPolicy(1000, 60000, 5);
     }
 }
 
@@ -16,6 +16,7 @@ import com.hookhub.api.dto.EventResponse;
 import com.hookhub.api.dto.WebhookRegistrationRequest;
 import com.hookhub.api.dto.WebhookRegistrationResponse;
 import com.hookhub.api.dto.WebhookResponse;
+import com.hookhub.api.model.Event;
 import com.hookhub.api.service.WebhookService;
 
 import jakarta.validation.Valid;
@@ -63,7 +64,12 @@ public class WebhookController {
     public ResponseEntity<EventResponse> createEvent(
             @Valid @RequestBody EventRequest request) {
         EventResponse event = webhookService.createEvent(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(event);
+        
+        HttpStatus status = event.getStatus() == Event.EventStatus.SPILLED
+            ? HttpStatus.ACCEPTED // Stored, but not queued until the queue has room
+            : HttpStatus.CREATED;
+        
+        return ResponseEntity.status(status).body(event);
     }
 
     @PostMapping("/events/{id}/resume")
@@ -1,6 +1,7 @@
 package com.hookhub.api.dto;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.util.Map;
 
@@ -11,6 +12,10 @@ public class EventRequest {
 
     private Map<String, Object> payload;
 
+    // Optional; for webhooks in ordered mode, events with the same key are delivered in creation order
+    @Size(max = 255, message = "Ordering key must be at most 255 characters")
+    private String orderingKey;
+
     public EventRequest() {
     }
 
@@ -34,5 +39,13 @@ public class EventRequest {
     public void setPayload(Map<String, Object> payload) {
         this.payload = payload;
     }
+
+    public String getOrderingKey() {
+        return orderingKey;
+    }
+
+    public void setOrderingKey(String orderingKey) {
+        this.orderingKey = orderingKey;
+    }
 }
 
@@ -1,5 +1,8 @@
 package com.hookhub.api.dto;
 
+import com.hookhub.api.worker.PayloadCompression;
+import com.hookhub.api.worker.RetryStrategy;
+
 import jakarta.validation.constraints.NotBlank;
 
 import java.util.Map;
@@ -11,6 +14,35 @@ public class WebhookRegistrationRequest {
 
     private Map<String, Object> metadata;
 
+    // Optional retry policy; unset fields use the global defaults
+    private RetryStrategy retryStrategy;
+
+    private Long retryBaseDelayMs;
+
+    private Long retryMaxDelayMs;
+
+    private Integer retryMaxAttempts;
+
+    private String retrySchedule;
+
+    // Deliver events that share an orderingKey strictly in sequence
+    private Boolean orderedDelivery;
+
+    // Keep the response body of successful deliveries (failures always keep the first bytes)
+    private Boolean captureResponseBody;
+
+    // Batch mode: deliver up to this many events per request as a JSON array (null or 1 = off)
+    private Integer batchMaxEvents;
+
+    private Integer batchMaxBytes;
+
+    private Integer batchLingerMs;
+
+    // Compress request bodies with GZIP or ZSTD (receivers must accept that Content-Encoding)
+    private PayloadCompression payloadCompression;
+
+    private Integer compressionMinBytes;
+
     public WebhookRegistrationRequest() {
     }
 
@@ -34,5 +66,101 @@ public class WebhookRegistrationRequest {
     public void setMetadata(Map<String, Object> metadata) {
         this.metadata = metadata;
     }
+
+    public RetryStrategy getRetryStrategy() {
+        return retryStrategy;
+    }
+
+    public void setRetryStrategy(RetryStrategy retryStrategy) {
+        this.retryStrategy = retryStrategy;
+    }
+
+    public Long getRetryBaseDelayMs() {
+        return retryBaseDelayMs;
+    }
+
+    public void setRetryBaseDelayMs(Long retryBaseDelayMs) {
+        this.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    public Long getRetryMaxDelayMs() {
+        return retryMaxDelayMs;
+    }
+
+    public void setRetryMaxDelayMs(Long retryMaxDelayMs) {
+        this.retryMaxDelayMs = retryMaxDelayMs;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(Integer retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public String getRetrySchedule() {
+        return retrySchedule;
+    }
+
+    public void setRetrySchedule(String retrySchedule) {
+        this.retrySchedule = retrySchedule;
+    }
+
+    public Boolean getOrderedDelivery() {
+        return orderedDelivery;
+    }
+
+    public void setOrderedDelivery(Boolean orderedDelivery) {
+        this.orderedDelivery = orderedDelivery;
+    }
+
+    public Boolean getCaptureResponseBody() {
+        return captureResponseBody;
+    }
+
+    public void setCaptureResponseBody(Boolean captureResponseBody) {
+        this.captureResponseBody = captureResponseBody;
+    }
+
+    public Integer getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public void setBatchMaxEvents(Integer batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public Integer getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public void setBatchMaxBytes(Integer batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public Integer getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    public void setBatchLingerMs(Integer batchLingerMs) {
+        this.batchLingerMs = batchLingerMs;
+    }
+
+    public PayloadCompression getPayloadCompression() {
+        return payloadCompression;
+    }
+
+    public void setPayloadCompression(PayloadCompression payloadCompression) {
+        this.payloadCompression = payloadCompression;
+    }
+
+    public Integer getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public void setCompressionMinBytes(Integer compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
 }
 
@@ -9,13 +9,18 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = {
+    @Index(name = "idx_events_status_lease", columnList = "status, lease_expires_at"),
+    @Index(name = "idx_events_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_events_ordering", columnList = "webhook_id, ordering_key, status, id")
+})
 public class Event {
 
     @Id
@@ -34,7 +39,20 @@ public class Event {
     private EventStatus status;
 
     @Column(nullable = false)
-    private Integer retryCount = 0;
+    private Integer retryCount = 0; // Delivery attempts made so far
+
+    @Column(name = "ordering_key", length = 255)
+    private String orderingKey; // Events of an ordered webhook with the same key are delivered in ID order
+
+    // Delivery scheduling (jdbc queue and DueRetryPoller)
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt; // Not claimable before this time; null = due now
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner; // Node that claimed the event
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt; // Claim is void after this time
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -113,6 +131,38 @@ public class Event {
         this.retryCount = retryCount != null ? retryCount : 0;
     }
 
+    public String getOrderingKey() {
+        return orderingKey;
+    }
+
+    public void setOrderingKey(String orderingKey) {
+        this.orderingKey = orderingKey;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -135,7 +185,8 @@ public class Event {
         SUCCESS,            // Event was successfully delivered
         RETRY_PENDING,      // Event failed but will be retried
         FAILURE,            // Event failed after max retries
-        PAUSED              // Event is paused and can be resumed
+        PAUSED,             // Event is paused and can be resumed
+        SPILLED             // Event was stored while the queue was full and will be queued when there is room
     }
 }
 
@@ -3,6 +3,8 @@ package com.hookhub.api.model;
 import java.time.LocalDateTime;
 
 import com.hookhub.api.circuitbreaker.CircuitBreakerState;
+import com.hookhub.api.worker.PayloadCompression;
+import com.hookhub.api.worker.RetryStrategy;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -59,6 +61,49 @@ public class Webhook {
     @Column(name = "is_disabled")
     private Boolean isDisabled = false;
 
+    // Retry policy (null strategy = global default; null parameters = default values)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "retry_strategy", length = 32)
+    private RetryStrategy retryStrategy;
+
+    @Column(name = "retry_base_delay_ms")
+    private Long retryBaseDelayMs;
+
+    @Column(name = "retry_max_delay_ms")
+    private Long retryMaxDelayMs;
+
+    @Column(name = "retry_max_attempts")
+    private Integer retryMaxAttempts;
+
+    @Column(name = "retry_schedule", length = 512)
+    private String retrySchedule; // Comma-separated delays in ms, for FIXED_SCHEDULE
+
+    // Ordered mode: events sharing an orderingKey are delivered strictly one after another
+    @Column(name = "ordered_delivery")
+    private Boolean orderedDelivery = false;
+
+    // Keep the (size-capped) response body of successful deliveries; failures always keep it for diagnostics
+    @Column(name = "capture_response_body")
+    private Boolean captureResponseBody = false;
+
+    // Batch mode: up to batchMaxEvents events (null or 1 = off) are sent together as one JSON array
+    @Column(name = "batch_max_events")
+    private Integer batchMaxEvents;
+
+    @Column(name = "batch_max_bytes")
+    private Integer batchMaxBytes; // Payload bytes per batch, null = default
+
+    @Column(name = "batch_linger_ms")
+    private Integer batchLingerMs; // Longest wait for a batch to fill, null = default
+
+    // Content-Encoding of request bodies (null = NONE); bodies below compressionMinBytes are sent plain
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payload_compression", length = 16)
+    private PayloadCompression payloadCompression;
+
+    @Column(name = "compression_min_bytes")
+    private Integer compressionMinBytes; // null = default
+
     @NotNull
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -209,5 +254,101 @@ public class Webhook {
     public void setIsDisabled(Boolean isDisabled) {
         this.isDisabled = isDisabled;
     }
+
+    public RetryStrategy getRetryStrategy() {
+        return retryStrategy;
+    }
+
+    public void setRetryStrategy(RetryStrategy retryStrategy) {
+        this.retryStrategy = retryStrategy;
+    }
+
+    public Long getRetryBaseDelayMs() {
+        return retryBaseDelayMs;
+    }
+
+    public void setRetryBaseDelayMs(Long retryBaseDelayMs) {
+        this.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    public Long getRetryMaxDelayMs() {
+        return retryMaxDelayMs;
+    }
+
+    public void setRetryMaxDelayMs(Long retryMaxDelayMs) {
+        this.retryMaxDelayMs = retryMaxDelayMs;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(Integer retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public String getRetrySchedule() {
+        return retrySchedule;
+    }
+
+    public void setRetrySchedule(String retrySchedule) {
+        this.retrySchedule = retrySchedule;
+    }
+
+    public Boolean getOrderedDelivery() {
+        return orderedDelivery;
+    }
+
+    public void setOrderedDelivery(Boolean orderedDelivery) {
+        this.orderedDelivery = orderedDelivery;
+    }
+
+    public Boolean getCaptureResponseBody() {
+        return captureResponseBody;
+    }
+
+    public void setCaptureResponseBody(Boolean captureResponseBody) {
+        this.captureResponseBody = captureResponseBody;
+    }
+
+    public Integer getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public void setBatchMaxEvents(Integer batchMaxEvents) {
+        this.batchMaxEvents = batchMaxEvents;
+    }
+
+    public Integer getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public void setBatchMaxBytes(Integer batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public Integer getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    public void setBatchLingerMs(Integer batchLingerMs) {
+        this.batchLingerMs = batchLingerMs;
+    }
+
+    public PayloadCompression getPayloadCompression() {
+        return payloadCompression;
+    }
+
+    public void setPayloadCompression(PayloadCompression payloadCompression) {
+        this.payloadCompression = payloadCompression;
+    }
+
+    public Integer getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    public void setCompressionMinBytes(Integer compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
 }
 
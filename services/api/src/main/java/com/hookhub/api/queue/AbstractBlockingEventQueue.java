@@ -0,0 +1,247 @@
+package com.hookhub.api.queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base class that adds lane scheduling and signal-driven blocking semantics to a
+ * non-blocking, per-lane store.
+ * 
+ * Subclasses only provide the per-lane storage operations (offer/poll/size). This
+ * class chooses which lane to serve with a WeightedLaneSelector and implements
+ * take() and drainTo() on top of that: consumers park on a condition while the
+ * queue is empty and are woken by enqueue(). The lock is only touched when a
+ * consumer is actually parked, so producers stay lock-free while the dispatcher
+ * is busy.
+ */
+public abstract class AbstractBlockingEventQueue implements EventQueue {
+    
+    private static final Lane[] LANES = Lane.values();
+    
+    private final WeightedLaneSelector laneSelector;
+    
+    private final QueueCapacity capacity;
+    
+    /**
+     * Lock and condition used to park consumers while the queue is empty.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    
+    /**
+     * Number of consumers currently parked in take().
+     * Producers only signal when this is non-zero.
+     */
+    private final AtomicInteger waiters = new AtomicInteger();
+    
+    /**
+     * Creates the queue with lane weights taken from configuration.
+     * 
+     * @param config Queue configuration
+     * @param capacity Shared capacity tracker enforcing the admission limits
+     */
+    protected AbstractBlockingEventQueue(EventQueueConfig config, QueueCapacity capacity) {
+        this.capacity = capacity;
+        EventQueueConfig.Lanes lanes = config.getLanes();
+        this.laneSelector = new WeightedLaneSelector(
+                lanes.getFreshWeight(), lanes.getRetryWeight(), lanes.getRecoveryWeight());
+    }
+    
+    /**
+     * Stores an event on a lane without blocking.
+     * 
+     * @param event The event to store (never null)
+     * @param lane The lane to store it on
+     * @return true if the event was stored, false if it was rejected
+     */
+    protected abstract boolean offer(QueuedEvent event, Lane lane);
+    
+    /**
+     * Removes the next stored event from a lane without blocking.
+     * 
+     * @param lane The lane to take from
+     * @return The next event on that lane, or null if the lane is empty
+     */
+    protected abstract QueuedEvent poll(Lane lane);
+    
+    /**
+     * Enqueues an event on a lane and wakes one waiting consumer, if any.
+     * 
+     * FRESH events are rejected once the queue reaches its configured event or
+     * byte capacity; RETRY and RECOVERY events are always accepted but still
+     * count towards usage.
+     * 
+     * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
+     * @return true if the event was successfully enqueued, false if it was rejected
+     */
+    @Override
+    public boolean enqueue(QueuedEvent event, Lane lane) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        if (lane == null) {
+            throw new IllegalArgumentException("Lane cannot be null");
+        }
+        if (lane == Lane.FRESH) {
+            if (!capacity.tryAcquire(event)) {
+                return false;
+            }
+        } else {
+            capacity.acquire(event);
+        }
+        
+        boolean added = offer(event, lane);
+        if (!added) {
+            capacity.abandon(event);
+        } else if (waiters.get() > 0) {
+            signalNotEmpty();
+        }
+        return added;
+    }
+    
+    /**
+     * Dequeues the next event from the queue without waiting.
+     * 
+     * @return The next event in the queue, or null if the queue is empty
+     */
+    @Override
+    public QueuedEvent dequeue() {
+        return poll();
+    }
+    
+    /**
+     * Dequeues the next event, parking the calling thread until one is enqueued
+     * or the timeout elapses.
+     * 
+     * @param timeout Maximum time to wait for an event
+     * @param unit Unit of the timeout argument
+     * @return The next event in the queue, or null if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueuedEvent take(long timeout, TimeUnit unit) throws InterruptedException {
+        QueuedEvent event = poll();
+        if (event != null) {
+            return event;
+        }
+        
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // Re-check after registering as a waiter so a concurrent enqueue cannot be missed
+                while ((event = poll()) == null) {
+                    if (remainingNanos <= 0) {
+                        return null;
+                    }
+                    remainingNanos = notEmpty.awaitNanos(remainingNanos);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        // Pass the signal on if more events are waiting for other consumers
+        if (!isEmpty() && waiters.get() > 0) {
+            signalNotEmpty();
+        }
+        return event;
+    }
+    
+    /**
+     * Transfers up to maxEvents queued events to the target collection without waiting.
+     * 
+     * @param target Collection to transfer events into
+     * @param maxEvents Maximum number of events to transfer
+     * @return The number of events transferred
+     */
+    @Override
+    public int drainTo(Collection<? super QueuedEvent> target, int maxEvents) {
+        int drained = 0;
+        QueuedEvent event;
+        while (drained < maxEvents && (event = poll()) != null) {
+            target.add(event);
+            drained++;
+        }
+        return drained;
+    }
+    
+    /**
+     * Checks if the queue is empty.
+     * 
+     * @return true if the queue contains no events, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Returns the total number of events across all lanes.
+     * 
+     * @return The number of events currently in the queue
+     */
+    @Override
+    public int size() {
+        int total = 0;
+        for (Lane lane : LANES) {
+            total += size(lane);
+        }
+        return total;
+    }
+    
+    /**
+     * Removes the next event from whichever non-empty lane the weighted
+     * selector picks. Retries if a concurrent consumer emptied the chosen lane.
+     * 
+     * @return The next event, or null if every lane is empty
+     */
+    protected QueuedEvent poll() {
+        for (int attempt = 0; attempt < LANES.length; attempt++) {
+            // A bit mask rather than an array keeps the dispatch path allocation-free
+            int eligible = 0;
+            for (Lane lane : LANES) {
+                if (size(lane) > 0) {
+                    eligible |= 1 << lane.ordinal();
+                }
+            }
+            if (eligible == 0) {
+                return null;
+            }
+            QueuedEvent event = poll(laneSelector.select(eligible));
+            if (event != null) {
+                capacity.release(event);
+                return event;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the capacity tracker, for subclasses restoring persisted usage.
+     * 
+     * @return Capacity tracker
+     */
+    protected QueueCapacity getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Wakes one consumer parked in take().
+     */
+    protected void signalNotEmpty() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
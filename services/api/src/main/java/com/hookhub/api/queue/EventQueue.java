@@ -1,5 +1,10 @@
 package com.hookhub.api.queue;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import com.hookhub.api.model.Event;
 
 /**
@@ -8,16 +13,35 @@ import com.hookhub.api.model.Event;
  * 
  * This interface abstracts the queue implementation, allowing for different
  * queue backends (in-memory, Redis, RabbitMQ, etc.) to be used interchangeably.
+ * 
+ * Events are queued on one of several lanes (see Lane); dequeue operations
+ * choose between non-empty lanes by their configured weights.
+ * 
+ * The queue holds compact QueuedEvent entries rather than Event entities; the
+ * payload and status stay in the database and are read at delivery time.
  */
 public interface EventQueue {
     
     /**
-     * Adds an event to the queue for processing.
+     * Adds an event to the FRESH lane of the queue for processing.
+     * 
+     * @param event The event to be enqueued
+     * @return true if the event was successfully enqueued, false otherwise
+     */
+    default boolean enqueue(QueuedEvent event) {
+        return enqueue(event, Lane.FRESH);
+    }
+    
+    /**
+     * Adds an event to the given lane of the queue for processing.
+     * Lanes are dispatched by weighted share, so retries and recovered events
+     * cannot crowd out first attempts (or each other).
      * 
      * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
      * @return true if the event was successfully enqueued, false otherwise
      */
-    boolean enqueue(Event event);
+    boolean enqueue(QueuedEvent event, Lane lane);
     
     /**
      * Removes and returns the next event from the queue.
@@ -25,7 +49,29 @@ public interface EventQueue {
      * 
      * @return The next event in the queue, or null if the queue is empty
      */
-    Event dequeue();
+    QueuedEvent dequeue();
+    
+    /**
+     * Removes and returns the next event, waiting up to the given timeout for one to arrive.
+     * Implementations must wake a waiting consumer as soon as an event is enqueued,
+     * so callers never need to poll.
+     * 
+     * @param timeout Maximum time to wait for an event
+     * @param unit Unit of the timeout argument
+     * @return The next event in the queue, or null if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    QueuedEvent take(long timeout, TimeUnit unit) throws InterruptedException;
+    
+    /**
+     * Removes up to maxEvents queued events and adds them to the given collection.
+     * Does not wait; only events already in the queue are transferred.
+     * 
+     * @param target Collection to transfer events into
+     * @param maxEvents Maximum number of events to transfer
+     * @return The number of events transferred
+     */
+    int drainTo(Collection<? super QueuedEvent> target, int maxEvents);
     
     /**
      * Checks if the queue is empty.
@@ -40,5 +86,42 @@ public interface EventQueue {
      * @return The number of events currently in the queue
      */
     int size();
+    
+    /**
+     * Returns the number of events currently queued on one lane.
+     * 
+     * @param lane The lane to inspect
+     * @return The number of events on that lane
+     */
+    int size(Lane lane);
+    
+    /**
+     * Returns the event statuses whose queue entries this queue restores by itself
+     * after a restart. Startup recovery re-enqueues events in the other unfinished
+     * statuses from the database.
+     * 
+     * @return Statuses recovered by the queue (empty for in-memory queues)
+     */
+    default Set<Event.EventStatus> selfRecoveredStatuses() {
+        return EnumSet.noneOf(Event.EventStatus.class);
+    }
+    
+    /**
+     * Returns the lease to stamp on an event when a worker claims it for delivery
+     * (PROCESSING), for queues whose rows other nodes take over once a lease runs out.
+     * 
+     * @return The lease, or null if the queue does not lease rows
+     */
+    default ProcessingLease processingLease() {
+        return null;
+    }
+    
+    /**
+     * Lease held on an event while it is being delivered
+     * 
+     * @param owner Node ID written to lease_owner
+     * @param seconds How long the lease lasts from the claim
+     */
+    record ProcessingLease(String owner, long seconds) {
+    }
 }
-
@@ -0,0 +1,566 @@
+package com.hookhub.api.queue;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the event queue.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.queue.type=journal
+ * hookhub.queue.journal.directory=/var/lib/hookhub/queue
+ * hookhub.queue.journal.segment-size-bytes=67108864
+ * hookhub.queue.journal.fsync-interval-ms=1000
+ * hookhub.queue.sharded.quantum=1
+ * hookhub.queue.ring.slots-per-lane=0
+ * hookhub.queue.jdbc.node-id=worker-1
+ * hookhub.queue.jdbc.batch-size=100
+ * hookhub.queue.jdbc.lease-seconds=300
+ * hookhub.queue.jdbc.poll-interval-ms=500
+ * hookhub.queue.lanes.fresh-weight=70
+ * hookhub.queue.lanes.retry-weight=20
+ * hookhub.queue.lanes.recovery-weight=10
+ * hookhub.queue.capacity.max-events=100000
+ * hookhub.queue.capacity.max-bytes=268435456
+ * hookhub.queue.capacity.overflow-policy=reject
+ * hookhub.queue.capacity.max-retry-after-seconds=60
+ * hookhub.queue.payload-cache.max-bytes=33554432
+ * hookhub.queue.recovery.enabled=true
+ * hookhub.queue.recovery.page-size=500
+ * hookhub.queue.recovery.events-per-second=2000
+ * hookhub.queue.timer.tick-ms=10
+ * hookhub.queue.timer.wheel-size=512
+ * hookhub.queue.timer.levels=4
+ * hookhub.queue.retry.in-memory-horizon-ms=30000
+ * hookhub.queue.retry.poll-interval-ms=1000
+ * hookhub.queue.retry.batch-size=500
+ * hookhub.queue.retry.lease-seconds=300
+ * 
+ * Supported queue types:
+ * - memory: InMemoryEventQueue (default, not durable)
+ * - journal: JournaledEventQueue (memory-mapped append-only segments, survives restarts)
+ * - sharded: ShardedEventQueue (per-webhook sub-queues with deficit round robin dispatch)
+ * - ring: RingBufferEventQueue (preallocated lock-free ring buffers, no per-event garbage)
+ * - jdbc: JdbcEventQueue (claims due events from the events table, shared by several nodes)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.queue")
+public class EventQueueConfig {
+    
+    private String type = "memory";
+    
+    private Journal journal = new Journal();
+    
+    private Sharded sharded = new Sharded();
+    
+    private Ring ring = new Ring();
+    
+    private Jdbc jdbc = new Jdbc();
+    
+    private Lanes lanes = new Lanes();
+    
+    private Capacity capacity = new Capacity();
+    
+    private PayloadCache payloadCache = new PayloadCache();
+    
+    private Recovery recovery = new Recovery();
+    
+    private Timer timer = new Timer();
+    
+    private Retry retry = new Retry();
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public Journal getJournal() {
+        return journal;
+    }
+    
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+    
+    public Sharded getSharded() {
+        return sharded;
+    }
+    
+    public void setSharded(Sharded sharded) {
+        this.sharded = sharded;
+    }
+    
+    public Ring getRing() {
+        return ring;
+    }
+    
+    public void setRing(Ring ring) {
+        this.ring = ring;
+    }
+    
+    public Jdbc getJdbc() {
+        return jdbc;
+    }
+    
+    public void setJdbc(Jdbc jdbc) {
+        this.jdbc = jdbc;
+    }
+    
+    public Lanes getLanes() {
+        return lanes;
+    }
+    
+    public void setLanes(Lanes lanes) {
+        this.lanes = lanes;
+    }
+    
+    public Capacity getCapacity() {
+        return capacity;
+    }
+    
+    public void setCapacity(Capacity capacity) {
+        this.capacity = capacity;
+    }
+    
+    public PayloadCache getPayloadCache() {
+        return payloadCache;
+    }
+    
+    public void setPayloadCache(PayloadCache payloadCache) {
+        this.payloadCache = payloadCache;
+    }
+    
+    public Recovery getRecovery() {
+        return recovery;
+    }
+    
+    public void setRecovery(Recovery recovery) {
+        this.recovery = recovery;
+    }
+    
+    public Timer getTimer() {
+        return timer;
+    }
+    
+    public void setTimer(Timer timer) {
+        this.timer = timer;
+    }
+    
+    public Retry getRetry() {
+        return retry;
+    }
+    
+    public void setRetry(Retry retry) {
+        this.retry = retry;
+    }
+    
+    /**
+     * Settings for the memory-mapped journal queue.
+     */
+    public static class Journal {
+        
+        /**
+         * Directory holding segment files and the consumer checkpoint
+         */
+        private String directory = "data/queue";
+        
+        /**
+         * Size of each memory-mapped segment file (default 64 MiB)
+         */
+        private int segmentSizeBytes = 64 * 1024 * 1024;
+        
+        /**
+         * How often dirty pages are forced to disk. 0 forces on every enqueue.
+         * Process crashes never lose appended records (the OS page cache keeps them);
+         * this interval bounds what an OS crash or power loss can lose.
+         */
+        private long fsyncIntervalMs = 1000;
+        
+        public String getDirectory() {
+            return directory;
+        }
+        
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+        
+        public int getSegmentSizeBytes() {
+            return segmentSizeBytes;
+        }
+        
+        public void setSegmentSizeBytes(int segmentSizeBytes) {
+            this.segmentSizeBytes = segmentSizeBytes;
+        }
+        
+        public long getFsyncIntervalMs() {
+            return fsyncIntervalMs;
+        }
+        
+        public void setFsyncIntervalMs(long fsyncIntervalMs) {
+            this.fsyncIntervalMs = fsyncIntervalMs;
+        }
+    }
+    
+    /**
+     * Settings for the per-webhook sharded queue.
+     */
+    public static class Sharded {
+        
+        /**
+         * Events a webhook may dispatch per round-robin turn. Higher values favour
+         * throughput of busy webhooks; 1 gives the flattest latency for small ones.
+         */
+        private int quantum = 1;
+        
+        public int getQuantum() {
+            return quantum;
+        }
+        
+        public void setQuantum(int quantum) {
+            this.quantum = quantum;
+        }
+    }
+    
+    /**
+     * Settings for the ring buffer queue.
+     */
+    public static class Ring {
+        
+        /**
+         * Preallocated slots per lane, rounded up to a power of two.
+         * 0 sizes every lane to capacity.max-events.
+         */
+        private int slotsPerLane = 0;
+        
+        public int getSlotsPerLane() {
+            return slotsPerLane;
+        }
+        
+        public void setSlotsPerLane(int slotsPerLane) {
+            this.slotsPerLane = slotsPerLane;
+        }
+    }
+    
+    /**
+     * Settings for the database-backed queue.
+     */
+    public static class Jdbc {
+        
+        /**
+         * Identifies this node in lease_owner. Empty uses the host name plus a random suffix.
+         */
+        private String nodeId = "";
+        
+        /**
+         * Maximum number of events claimed per round trip
+         */
+        private int batchSize = 100;
+        
+        /**
+         * How long a claim is held before other nodes may take the event over; the
+         * lease is renewed when a worker moves the event to PROCESSING, so it must
+         * comfortably exceed one delivery attempt.
+         */
+        private int leaseSeconds = 300;
+        
+        /**
+         * How often an idle node looks for events created on other nodes
+         */
+        private long pollIntervalMs = 500;
+        
+        public String getNodeId() {
+            return nodeId;
+        }
+        
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public int getLeaseSeconds() {
+            return leaseSeconds;
+        }
+        
+        public void setLeaseSeconds(int leaseSeconds) {
+            this.leaseSeconds = leaseSeconds;
+        }
+        
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+        
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+    }
+    
+    /**
+     * Weighted dispatch shares of the queue lanes (see Lane).
+     * Shares are relative; only lanes with queued events take part in a pick.
+     */
+    public static class Lanes {
+        
+        private int freshWeight = 70;
+        
+        private int retryWeight = 20;
+        
+        private int recoveryWeight = 10;
+        
+        public int getFreshWeight() {
+            return freshWeight;
+        }
+        
+        public void setFreshWeight(int freshWeight) {
+            this.freshWeight = freshWeight;
+        }
+        
+        public int getRetryWeight() {
+            return retryWeight;
+        }
+        
+        public void setRetryWeight(int retryWeight) {
+            this.retryWeight = retryWeight;
+        }
+        
+        public int getRecoveryWeight() {
+            return recoveryWeight;
+        }
+        
+        public void setRecoveryWeight(int recoveryWeight) {
+            this.recoveryWeight = recoveryWeight;
+        }
+    }
+    
+    /**
+     * Admission limits for new events (see QueueCapacity).
+     */
+    public static class Capacity {
+        
+        /**
+         * Maximum number of events held by the queue across all lanes
+         */
+        private long maxEvents = 100_000;
+        
+        /**
+         * Maximum estimated size of the queued events (default 256 MiB)
+         */
+        private long maxBytes = 256L * 1024 * 1024;
+        
+        /**
+         * What POST /events does when the queue is full:
+         * - reject: respond 429 with a Retry-After header, nothing is stored
+         * - spill: store the event as SPILLED and respond 202; it is queued once there is room
+         */
+        private String overflowPolicy = "reject";
+        
+        /**
+         * Upper bound for the Retry-After value returned with a 429
+         */
+        private int maxRetryAfterSeconds = 60;
+        
+        public long getMaxEvents() {
+            return maxEvents;
+        }
+        
+        public void setMaxEvents(long maxEvents) {
+            this.maxEvents = maxEvents;
+        }
+        
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+        
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+        
+        public String getOverflowPolicy() {
+            return overflowPolicy;
+        }
+        
+        public void setOverflowPolicy(String overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+        
+        public int getMaxRetryAfterSeconds() {
+            return maxRetryAfterSeconds;
+        }
+        
+        public void setMaxRetryAfterSeconds(int maxRetryAfterSeconds) {
+            this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+        }
+    }
+    
+    /**
+     * Settings for the payload cache that saves a database read per first delivery attempt.
+     */
+    public static class PayloadCache {
+        
+        /**
+         * Maximum estimated heap taken by cached payloads (default 32 MiB). 0 disables the cache.
+         */
+        private long maxBytes = 32L * 1024 * 1024;
+        
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+        
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+    
+    /**
+     * Settings for re-enqueueing unfinished events from the database at startup.
+     */
+    public static class Recovery {
+        
+        private boolean enabled = true;
+        
+        /**
+         * Events read per database round trip
+         */
+        private int pageSize = 500;
+        
+        /**
+         * Upper bound on the re-enqueue rate, so recovery does not starve live traffic
+         */
+        private int eventsPerSecond = 2000;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getPageSize() {
+            return pageSize;
+        }
+        
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+        
+        public int getEventsPerSecond() {
+            return eventsPerSecond;
+        }
+        
+        public void setEventsPerSecond(int eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+        }
+    }
+    
+    /**
+     * Settings for the timing wheel that holds retries until they are due (see RetryScheduler).
+     * The default covers 10ms * 512^4, far beyond any retry delay, with 10ms precision.
+     */
+    public static class Timer {
+        
+        /**
+         * Timer resolution; also how often the scheduler thread wakes up
+         */
+        private long tickMs = 10;
+        
+        /**
+         * Slots per wheel level (rounded up to a power of two)
+         */
+        private int wheelSize = 512;
+        
+        private int levels = 4;
+        
+        public long getTickMs() {
+            return tickMs;
+        }
+        
+        public void setTickMs(long tickMs) {
+            this.tickMs = tickMs;
+        }
+        
+        public int getWheelSize() {
+            return wheelSize;
+        }
+        
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+        
+        public int getLevels() {
+            return levels;
+        }
+        
+        public void setLevels(int levels) {
+            this.levels = levels;
+        }
+    }
+    
+    /**
+     * Settings for where retries wait until due (see DueRetryPoller).
+     */
+    public static class Retry {
+        
+        /**
+         * Retries due within this time wait in the in-memory timing wheel; later ones only in the database
+         */
+        private long inMemoryHorizonMs = 30000;
+        
+        /**
+         * How often the database is checked for due retries
+         */
+        private long pollIntervalMs = 1000;
+        
+        /**
+         * Due retries claimed per round trip
+         */
+        private int batchSize = 500;
+        
+        /**
+         * How long a claimed (or in-memory) retry is hidden from the poller
+         */
+        private long leaseSeconds = 300;
+        
+        public long getInMemoryHorizonMs() {
+            return inMemoryHorizonMs;
+        }
+        
+        public void setInMemoryHorizonMs(long inMemoryHorizonMs) {
+            this.inMemoryHorizonMs = inMemoryHorizonMs;
+        }
+        
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+        
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public long getLeaseSeconds() {
+            return leaseSeconds;
+        }
+        
+        public void setLeaseSeconds(long leaseSeconds) {
+            this.leaseSeconds = leaseSeconds;
+        }
+    }
+}
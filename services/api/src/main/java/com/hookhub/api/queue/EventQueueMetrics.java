@@ -0,0 +1,44 @@
+package com.hookhub.api.queue;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes per-lane queue depth gauges.
+ * 
+ * Exposed through the actuator metrics endpoint as hookhub.queue.depth with a
+ * lane tag (fresh, retry, recovery), e.g. GET /actuator/metrics/hookhub.queue.depth?tag=lane:retry
+ * 
+ * Capacity usage is published as hookhub.queue.used.events and hookhub.queue.used.bytes,
+ * the payload cache size as hookhub.queue.payload.cache.bytes, and retries waiting
+ * in the RetryScheduler for their due time as hookhub.queue.scheduled.
+ */
+@Component
+public class EventQueueMetrics {
+
+    public EventQueueMetrics(EventQueue eventQueue, QueueCapacity capacity,
+                             PayloadCache payloadCache, RetryScheduler retryScheduler,
+                             MeterRegistry meterRegistry) {
+        for (Lane lane : Lane.values()) {
+            Gauge.builder("hookhub.queue.depth", eventQueue, queue -> queue.size(lane))
+                    .tag("lane", lane.name().toLowerCase())
+                    .description("Events waiting in the delivery queue")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("hookhub.queue.used.events", capacity, QueueCapacity::getUsedEvents)
+                .description("Events counted against the queue capacity")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.queue.used.bytes", capacity, QueueCapacity::getUsedBytes)
+                .description("Estimated bytes counted against the queue capacity")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.queue.payload.cache.bytes", payloadCache, PayloadCache::getUsedBytes)
+                .description("Estimated heap taken by cached event payloads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.queue.scheduled", retryScheduler, RetryScheduler::size)
+                .description("Events waiting in the timing wheel for their retry due time")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,265 @@
+package com.hookhub.api.queue;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding timers for a large number of items.
+ * 
+ * Time is divided into ticks of tickMs. Level 0 has one slot per tick for the
+ * next wheelSize ticks; each higher level has slots wheelSize times wider. A
+ * timer is stored in the lowest level whose range still contains its deadline,
+ * in a doubly linked bucket, so scheduling and cancelling are O(1) regardless
+ * of how many timers are held. When the current tick crosses a slot boundary of
+ * a higher level, that slot is cascaded: its timers move down to finer levels.
+ * Level 0 slots fire when the current tick reaches them.
+ * 
+ * Timers never fire early and fire at most one tick late. Deadlines beyond the
+ * top level's range are clamped to it and re-placed each time they cascade.
+ * 
+ * Not thread-safe; callers serialize access (see RetryScheduler). The consumer
+ * passed to advance() must not cancel timers.
+ * 
+ * @param <T> Type of the scheduled items
+ */
+public class HierarchicalTimingWheel<T> {
+    
+    /**
+     * Handle to a scheduled item, used to cancel it.
+     */
+    public static final class Timer<T> {
+        
+        private final T item;
+        private final long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        
+        private Timer(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        public T getItem() {
+            return item;
+        }
+        
+        /**
+         * Whether the timer is still waiting (neither fired nor cancelled).
+         */
+        public boolean isPending() {
+            return prev != null;
+        }
+        
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+    
+    private final long tickMs;
+    private final long startMs;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    
+    /**
+     * Bucket sentinels, [level][slot]; each bucket is a circular list
+     */
+    private final Timer<T>[][] buckets;
+    
+    /**
+     * Ticks elapsed since startMs that have already been processed
+     */
+    private long currentTick;
+    
+    private int size;
+    
+    /**
+     * Creates an empty wheel.
+     * 
+     * @param tickMs Resolution in milliseconds
+     * @param wheelSize Slots per level (rounded up to a power of two)
+     * @param levels Number of levels; the range covered is tickMs * wheelSize^levels
+     * @param startMs Epoch millis the wheel starts at
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("Wheel needs at least two slots and one level");
+        }
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << bits) - 1;
+        // Never shift a tick count past 63 bits
+        this.levels = Math.min(levels, 62 / bits);
+        this.buckets = new Timer[this.levels][1 << bits];
+        for (Timer<T>[] level : buckets) {
+            for (int slot = 0; slot < level.length; slot++) {
+                Timer<T> sentinel = new Timer<>(null, 0);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[slot] = sentinel;
+            }
+        }
+    }
+    
+    /**
+     * Schedules an item. Deadlines already passed fire on the next tick.
+     * 
+     * @param item Item to hand back when the deadline is reached
+     * @param deadlineMs Epoch millis at which the item is due
+     * @return Handle for cancel()
+     */
+    public Timer<T> schedule(T item, long deadlineMs) {
+        long deadlineTick = Math.max(currentTick + 1, Math.floorDiv(deadlineMs - startMs + tickMs - 1, tickMs));
+        Timer<T> timer = new Timer<>(item, deadlineTick);
+        place(timer);
+        size++;
+        return timer;
+    }
+    
+    /**
+     * Cancels a pending timer.
+     * 
+     * @param timer Handle returned by schedule()
+     * @return true if the timer was pending, false if it had already fired or been cancelled
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (!timer.isPending()) {
+            return false;
+        }
+        timer.unlink();
+        size--;
+        return true;
+    }
+    
+    /**
+     * Processes every tick up to nowMs, handing due items to the consumer.
+     * 
+     * @param nowMs Current epoch millis
+     * @param expired Receives each due item
+     * @return Number of items that fired
+     */
+    public int advance(long nowMs, Consumer<? super T> expired) {
+        long targetTick = Math.floorDiv(nowMs - startMs, tickMs);
+        if (size == 0) {
+            // Nothing to cascade or fire, so skip the idle ticks outright
+            currentTick = Math.max(currentTick, targetTick);
+            return 0;
+        }
+        
+        int fired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (bits * level)) & mask));
+                }
+            }
+            
+            Timer<T> timer = detach(0, (int) (currentTick & mask));
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.next = null;
+                if (timer.deadlineTick > currentTick) {
+                    // Clamped far-future timer (single-level wheel); not due yet
+                    place(timer);
+                } else {
+                    timer.prev = null;
+                    size--;
+                    fired++;
+                    expired.accept(timer.item);
+                }
+                timer = next;
+            }
+        }
+        return fired;
+    }
+    
+    /**
+     * Removes every pending timer, handing each item to the consumer, due or not.
+     * 
+     * @param removed Receives each item
+     * @return Number of items removed
+     */
+    public int drain(Consumer<? super T> removed) {
+        int drained = 0;
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < buckets[level].length; slot++) {
+                Timer<T> timer = detach(level, slot);
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    timer.next = null;
+                    timer.prev = null;
+                    size--;
+                    drained++;
+                    removed.accept(timer.item);
+                    timer = next;
+                }
+            }
+        }
+        return drained;
+    }
+    
+    /**
+     * Returns the number of pending timers.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Moves every timer out of one slot and places it again relative to the current tick.
+     */
+    private void cascade(int level, int slot) {
+        Timer<T> timer = detach(level, slot);
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.next = null;
+            place(timer);
+            timer = next;
+        }
+    }
+    
+    /**
+     * Empties a bucket and returns its timers as a null-terminated chain linked through next.
+     * Their prev links are left non-null so they still count as pending while being handled.
+     */
+    private Timer<T> detach(int level, int slot) {
+        Timer<T> sentinel = buckets[level][slot];
+        if (sentinel.next == sentinel) {
+            return null;
+        }
+        Timer<T> first = sentinel.next;
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        return first;
+    }
+    
+    /**
+     * Links a timer into the lowest level whose range covers its deadline. Deadlines
+     * beyond the top level are clamped to its range and re-placed when cascaded.
+     */
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        long maxDelta = (1L << (bits * levels)) - 1;
+        long tick = delta > maxDelta ? currentTick + maxDelta : timer.deadlineTick;
+        int slot = (int) ((tick >>> (bits * level)) & mask);
+        
+        Timer<T> sentinel = buckets[level][slot];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+}
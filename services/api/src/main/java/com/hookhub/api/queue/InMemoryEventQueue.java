@@ -1,9 +1,10 @@
 package com.hookhub.api.queue;
 
-import com.hookhub.api.model.Event;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Thread-safe in-memory implementation of EventQueue using ConcurrentLinkedQueue.
@@ -13,71 +14,87 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * a distributed queue implementation (Redis, RabbitMQ, etc.).
  * 
  * Thread-safety is guaranteed by ConcurrentLinkedQueue, which uses
- * lock-free algorithms for concurrent access.
+ * lock-free algorithms for concurrent access. Each lane has its own queue and
+ * counter; lane selection and blocking take() are provided by
+ * AbstractBlockingEventQueue.
+ * 
+ * This is the default queue (hookhub.queue.type=memory). Queued events are
+ * lost on restart; use the journal queue type when that matters.
  */
 @Component
-public class InMemoryEventQueue implements EventQueue {
+@ConditionalOnProperty(prefix = "hookhub.queue", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryEventQueue extends AbstractBlockingEventQueue {
     
     /**
-     * Thread-safe queue implementation using ConcurrentLinkedQueue.
+     * Thread-safe queues implemented using ConcurrentLinkedQueue, one per lane.
      * This provides lock-free, thread-safe operations for concurrent
      * enqueue and dequeue operations.
      */
-    private final ConcurrentLinkedQueue<Event> queue;
+    private final ConcurrentLinkedQueue<QueuedEvent>[] queues;
     
     /**
-     * Constructor initializes the concurrent queue.
+     * Per-lane sizes, kept alongside the queues because ConcurrentLinkedQueue.size() is O(n)
      */
-    public InMemoryEventQueue() {
-        this.queue = new ConcurrentLinkedQueue<>();
-    }
+    private final AtomicInteger[] sizes;
     
     /**
-     * Enqueues an event to the queue.
-     * Thread-safe operation that can be called concurrently from multiple threads.
+     * Constructor initializes one concurrent queue per lane.
      * 
-     * @param event The event to be enqueued
-     * @return true if the event was successfully added (always true for ConcurrentLinkedQueue)
+     * @param config Queue configuration (lane weights)
+     * @param capacity Shared capacity tracker
      */
-    @Override
-    public boolean enqueue(Event event) {
-        if (event == null) {
-            throw new IllegalArgumentException("Event cannot be null");
+    @SuppressWarnings("unchecked")
+    public InMemoryEventQueue(EventQueueConfig config, QueueCapacity capacity) {
+        super(config, capacity);
+        int lanes = Lane.values().length;
+        this.queues = new ConcurrentLinkedQueue[lanes];
+        this.sizes = new AtomicInteger[lanes];
+        for (int i = 0; i < lanes; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+            sizes[i] = new AtomicInteger();
         }
-        return queue.offer(event);
     }
     
     /**
-     * Dequeues the next event from the queue.
-     * Returns null if the queue is empty. Thread-safe operation.
+     * Adds an event to the lane's queue.
+     * Thread-safe operation that can be called concurrently from multiple threads.
      * 
-     * @return The next event in the queue, or null if the queue is empty
+     * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
+     * @return true if the event was successfully added (always true for ConcurrentLinkedQueue)
      */
     @Override
-    public Event dequeue() {
-        return queue.poll();
+    protected boolean offer(QueuedEvent event, Lane lane) {
+        // Count first so the size never goes negative under a concurrent poll
+        sizes[lane.ordinal()].incrementAndGet();
+        return queues[lane.ordinal()].offer(event);
     }
     
     /**
-     * Checks if the queue is empty.
-     * Thread-safe operation.
+     * Removes the next event from the lane's queue.
+     * Returns null if the lane is empty. Thread-safe operation.
      * 
-     * @return true if the queue contains no events, false otherwise
+     * @param lane The lane to take from
+     * @return The next event on the lane, or null if the lane is empty
      */
     @Override
-    public boolean isEmpty() {
-        return queue.isEmpty();
+    protected QueuedEvent poll(Lane lane) {
+        QueuedEvent event = queues[lane.ordinal()].poll();
+        if (event != null) {
+            sizes[lane.ordinal()].decrementAndGet();
+        }
+        return event;
     }
     
     /**
-     * Returns the current size of the queue.
+     * Returns the current size of one lane.
      * Note: The size may change immediately after this call due to concurrent operations.
      * 
-     * @return The number of events currently in the queue
+     * @param lane The lane to inspect
+     * @return The number of events currently on the lane
      */
     @Override
-    public int size() {
-        return queue.size();
+    public int size(Lane lane) {
+        return sizes[lane.ordinal()].get();
     }
 }
-
@@ -0,0 +1,475 @@
+package com.hookhub.api.queue;
+
+import com.hookhub.api.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EventQueue backed by the events table, so any number of nodes can run
+ * DeliveryWorker against the same MySQL without an external broker.
+ * 
+ * The table itself is the queue: a PENDING or RETRY_PENDING row whose
+ * next_attempt_at has passed and which has no live lease is ready for delivery.
+ * A node claims a batch of such rows in one transaction with
+ * SELECT ... FOR UPDATE SKIP LOCKED, so concurrent nodes skip each other's rows
+ * instead of blocking on them, and stamps them with its lease_owner and a
+ * lease_expires_at. Claimed rows are buffered locally (per lane) and handed out
+ * by take()/drainTo().
+ * 
+ * Leases make claims crash-safe. If a node dies, its claimed rows become
+ * claimable again once the lease expires; rows it had already moved to
+ * PROCESSING are reclaimed as RETRY_PENDING on the RECOVERY lane (delivery is
+ * at-least-once). The lease is renewed when a worker moves a row to PROCESSING
+ * (processingLease()), so time spent in the local buffer does not eat into the
+ * attempt. On shutdown the leases of buffered, undelivered rows are
+ * released right away.
+ * 
+ * enqueue() does not insert anything: the row already exists. It makes the row
+ * claimable (clearing the lease and setting next_attempt_at) and wakes a local
+ * consumer; other nodes find it on their next poll.
+ * 
+ * Capacity: the backlog lives in MySQL, not in the heap, so QueueCapacity does not
+ * apply and enqueue() never rejects. size() reports events buffered on this node.
+ * 
+ * Enabled with hookhub.queue.type=jdbc (see EventQueueConfig).
+ */
+@Component
+@ConditionalOnProperty(prefix = "hookhub.queue", name = "type", havingValue = "jdbc")
+public class JdbcEventQueue implements EventQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JdbcEventQueue.class);
+    
+    private static final Lane[] LANES = Lane.values();
+    
+    private static final String SELECT_COLUMNS =
+            "SELECT id, webhook_id, retry_count, status, COALESCE(CHAR_LENGTH(payload), 0) AS payload_length FROM events ";
+    
+    /**
+     * Due events without a live lease, oldest first
+     */
+    private static final String CLAIM_DUE_SQL = SELECT_COLUMNS
+            + "WHERE status IN ('PENDING', 'RETRY_PENDING') "
+            + "AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "AND (lease_expires_at IS NULL OR lease_expires_at < ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    
+    /**
+     * Events a node was delivering when its lease ran out (node crashed or hung)
+     */
+    private static final String CLAIM_EXPIRED_SQL = SELECT_COLUMNS
+            + "WHERE status = 'PROCESSING' AND lease_expires_at < ? "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WeightedLaneSelector laneSelector;
+    
+    private final String nodeId;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final long pollIntervalNanos;
+    
+    /**
+     * Claimed events not yet handed to a consumer, one deque per lane; guarded by lock
+     */
+    private final ArrayDeque<QueuedEvent>[] buffers;
+    private int buffered;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    
+    /**
+     * Serializes claim round trips so concurrent consumers do not each claim a batch
+     */
+    private final Object claimLock = new Object();
+    
+    @SuppressWarnings("unchecked")
+    public JdbcEventQueue(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          EventQueueConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        EventQueueConfig.Lanes lanes = config.getLanes();
+        this.laneSelector = new WeightedLaneSelector(
+                lanes.getFreshWeight(), lanes.getRetryWeight(), lanes.getRecoveryWeight());
+        
+        EventQueueConfig.Jdbc settings = config.getJdbc();
+        this.nodeId = settings.getNodeId() != null && !settings.getNodeId().isBlank()
+                ? settings.getNodeId()
+                : defaultNodeId();
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.leaseSeconds = Math.max(1, settings.getLeaseSeconds());
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, settings.getPollIntervalMs()));
+        
+        this.buffers = new ArrayDeque[LANES.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ArrayDeque<>();
+        }
+        logger.info("JdbcEventQueue using node id {}", nodeId);
+    }
+    
+    /**
+     * Makes a stored event claimable (by any node) and wakes a local consumer.
+     * 
+     * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
+     * @return true if the event exists, false if the row was not found
+     */
+    @Override
+    public boolean enqueue(QueuedEvent event, Lane lane) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        if (lane == null) {
+            throw new IllegalArgumentException("Lane cannot be null");
+        }
+        // A freshly inserted row is already claimable; skip the extra write
+        if (lane != Lane.FRESH || event.getNextDueAt() > 0) {
+            int updated = jdbcTemplate.update(
+                    "UPDATE events SET next_attempt_at = ?, lease_owner = NULL, lease_expires_at = NULL WHERE id = ?",
+                    event.getNextDueAt() > 0 ? toTimestamp(event.getNextDueAt()) : null,
+                    event.getEventId());
+            if (updated == 0) {
+                return false;
+            }
+        }
+        signalNotEmpty();
+        return true;
+    }
+    
+    /**
+     * Returns the next buffered event, claiming a new batch from the database if the buffer is empty.
+     * 
+     * @return The next event, or null if nothing is due
+     */
+    @Override
+    public QueuedEvent dequeue() {
+        QueuedEvent event = pollBuffer();
+        if (event != null) {
+            return event;
+        }
+        synchronized (claimLock) {
+            // Another consumer may have refilled the buffer while we waited
+            event = pollBuffer();
+            if (event != null) {
+                return event;
+            }
+            claimBatch();
+        }
+        return pollBuffer();
+    }
+    
+    /**
+     * Waits for a due event. Local enqueues wake the caller immediately; events
+     * created on other nodes are picked up by polling every poll-interval-ms.
+     * 
+     * @param timeout Maximum time to wait for an event
+     * @param unit Unit of the timeout argument
+     * @return The next event, or null if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueuedEvent take(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            QueuedEvent event = dequeue();
+            if (event != null) {
+                return event;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            lock.lockInterruptibly();
+            try {
+                notEmpty.awaitNanos(Math.min(remaining, pollIntervalNanos));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Transfers already claimed events to the target collection. Does not query the database.
+     * 
+     * @param target Collection to transfer events into
+     * @param maxEvents Maximum number of events to transfer
+     * @return The number of events transferred
+     */
+    @Override
+    public int drainTo(Collection<? super QueuedEvent> target, int maxEvents) {
+        int drained = 0;
+        QueuedEvent event;
+        while (drained < maxEvents && (event = pollBuffer()) != null) {
+            target.add(event);
+            drained++;
+        }
+        return drained;
+    }
+    
+    /**
+     * Checks whether this node has claimed events waiting for a consumer.
+     * 
+     * @return true if nothing is buffered locally (the table may still hold due events)
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Returns the number of events claimed by this node and not yet handed out.
+     * 
+     * @return Locally buffered events
+     */
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return buffered;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of claimed events buffered on one lane.
+     * 
+     * @param lane The lane to inspect
+     * @return Locally buffered events on that lane
+     */
+    @Override
+    public int size(Lane lane) {
+        lock.lock();
+        try {
+            return buffers[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Releases the leases of claimed events that were never handed out, so other
+     * nodes can deliver them without waiting for the lease to expire.
+     */
+    @PreDestroy
+    public void releaseBuffered() {
+        List<Object> ids = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ArrayDeque<QueuedEvent> buffer : buffers) {
+                for (QueuedEvent event : buffer) {
+                    ids.add(event.getEventId());
+                }
+                buffer.clear();
+            }
+            buffered = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object> args = new ArrayList<>(ids.size() + 1);
+            args.add(nodeId);
+            args.addAll(ids);
+            jdbcTemplate.update("UPDATE events SET lease_owner = NULL, lease_expires_at = NULL "
+                    + "WHERE lease_owner = ? AND id IN (" + placeholders(ids.size()) + ")", args.toArray());
+            logger.info("Released leases of {} unprocessed events", ids.size());
+        } catch (DataAccessException e) {
+            logger.warn("Failed to release leases, they will expire: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * The table is the queue: due rows are claimed again and expired leases reclaimed,
+     * so no startup recovery is needed.
+     * 
+     * @return PENDING, RETRY_PENDING and PROCESSING
+     */
+    @Override
+    public Set<Event.EventStatus> selfRecoveredStatuses() {
+        return EnumSet.of(Event.EventStatus.PENDING, Event.EventStatus.RETRY_PENDING, Event.EventStatus.PROCESSING);
+    }
+    
+    /**
+     * A worker's PROCESSING claim renews the lease taken when the row was buffered,
+     * so time spent in the buffer does not count against the attempt.
+     * 
+     * @return This node's lease of lease-seconds
+     */
+    @Override
+    public ProcessingLease processingLease() {
+        return new ProcessingLease(nodeId, leaseSeconds);
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * Claims up to batch-size due events (and expired leases) in one transaction and buffers them.
+     */
+    private void claimBatch() {
+        List<Claimed> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                Timestamp nowTimestamp = Timestamp.valueOf(now);
+                Timestamp leaseExpiry = Timestamp.valueOf(now.plusSeconds(leaseSeconds));
+                
+                List<Claimed> due = jdbcTemplate.query(CLAIM_DUE_SQL, CLAIMED_MAPPER,
+                        nowTimestamp, nowTimestamp, batchSize);
+                if (!due.isEmpty()) {
+                    stampLease(due, "", leaseExpiry);
+                }
+                
+                List<Claimed> expired = Collections.emptyList();
+                int room = batchSize - due.size();
+                if (room > 0) {
+                    expired = jdbcTemplate.query(CLAIM_EXPIRED_SQL, CLAIMED_MAPPER, nowTimestamp, room);
+                    if (!expired.isEmpty()) {
+                        // The previous owner may or may not have delivered it; deliver again
+                        stampLease(expired, "status = 'RETRY_PENDING', ", leaseExpiry);
+                        logger.warn("Reclaimed {} events with expired leases", expired.size());
+                    }
+                }
+                
+                List<Claimed> all = new ArrayList<>(due.size() + expired.size());
+                all.addAll(due);
+                for (Claimed event : expired) {
+                    all.add(new Claimed(event.event, Lane.RECOVERY));
+                }
+                return all;
+            });
+        } catch (DataAccessException e) {
+            // Keep consumers alive through database hiccups; take() retries after the poll interval
+            logger.warn("Failed to claim events: {}", e.getMessage());
+            return;
+        }
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        
+        lock.lock();
+        try {
+            for (Claimed event : claimed) {
+                buffers[event.lane.ordinal()].addLast(event.event);
+            }
+            buffered += claimed.size();
+        } finally {
+            lock.unlock();
+        }
+        logger.debug("Claimed {} events", claimed.size());
+    }
+    
+    private void stampLease(List<Claimed> events, String extraAssignments, Timestamp leaseExpiry) {
+        List<Object> args = new ArrayList<>(events.size() + 2);
+        args.add(nodeId);
+        args.add(leaseExpiry);
+        for (Claimed event : events) {
+            args.add(event.event.getEventId());
+        }
+        jdbcTemplate.update("UPDATE events SET " + extraAssignments + "lease_owner = ?, lease_expires_at = ? "
+                + "WHERE id IN (" + placeholders(events.size()) + ")", args.toArray());
+    }
+    
+    private QueuedEvent pollBuffer() {
+        lock.lock();
+        try {
+            if (buffered == 0) {
+                return null;
+            }
+            int eligible = 0;
+            for (Lane lane : LANES) {
+                if (!buffers[lane.ordinal()].isEmpty()) {
+                    eligible |= 1 << lane.ordinal();
+                }
+            }
+            QueuedEvent event = buffers[laneSelector.select(eligible).ordinal()].pollFirst();
+            buffered--;
+            return event;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void signalNotEmpty() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private static Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+    }
+    
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        String id = host + "-" + suffix;
+        return id.length() <= 64 ? id : id.substring(id.length() - 64);
+    }
+    
+    private static final RowMapper<Claimed> CLAIMED_MAPPER = (rs, rowNum) -> {
+        QueuedEvent event = new QueuedEvent(
+                rs.getLong("id"),
+                rs.getLong("webhook_id"),
+                rs.getInt("retry_count"),
+                0L,
+                rs.getInt("payload_length"));
+        Lane lane = "RETRY_PENDING".equals(rs.getString("status")) ? Lane.RETRY : Lane.FRESH;
+        return new Claimed(event, lane);
+    };
+    
+    /**
+     * A claimed row and the lane it is dispatched on.
+     */
+    private static final class Claimed {
+        private final QueuedEvent event;
+        private final Lane lane;
+        
+        private Claimed(QueuedEvent event, Lane lane) {
+            this.event = event;
+            this.lane = lane;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.hookhub.api.queue;
+
+import com.hookhub.api.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Durable implementation of EventQueue backed by a memory-mapped SegmentJournal.
+ * 
+ * Every enqueue is appended to a pre-allocated, memory-mapped segment file, so
+ * queued and retry-pending events survive a crash or restart without a database
+ * round trip on the enqueue path. Dequeue advances a consumer checkpoint that is
+ * also memory-mapped; fully consumed segments are deleted.
+ * 
+ * Delivery semantics: the checkpoint moves when an event is dequeued, not when it
+ * is delivered. An event that was dequeued but not yet delivered at crash time is
+ * still recorded in MySQL with its last status, and startup recovery
+ * (EventRecoveryRunner) re-enqueues it from there.
+ * 
+ * Records hold only the compact QueuedEvent (33 bytes); payloads stay in MySQL.
+ * 
+ * Each lane has its own journal: FRESH uses the configured directory itself,
+ * RETRY and RECOVERY use "retry" and "recovery" subdirectories.
+ * 
+ * Enabled with hookhub.queue.type=journal (see EventQueueConfig).
+ */
+@Component
+@ConditionalOnProperty(prefix = "hookhub.queue", name = "type", havingValue = "journal")
+public class JournaledEventQueue extends AbstractBlockingEventQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JournaledEventQueue.class);
+    
+    /**
+     * Record format version, written as the first byte of every record.
+     * Version 1 records (full event with payload) are still read after an upgrade.
+     */
+    private static final byte RECORD_VERSION = 2;
+    
+    private static final byte RECORD_VERSION_WITH_PAYLOAD = 1;
+    
+    private static final int RECORD_BYTES = 1 + 8 + 8 + 4 + 8 + 4;
+    
+    /**
+     * One journal per lane, indexed by lane ordinal
+     */
+    private final SegmentJournal[] journals;
+    
+    public JournaledEventQueue(EventQueueConfig config, QueueCapacity capacity) {
+        super(config, capacity);
+        EventQueueConfig.Journal settings = config.getJournal();
+        Path root = Paths.get(settings.getDirectory());
+        Lane[] lanes = Lane.values();
+        this.journals = new SegmentJournal[lanes.length];
+        for (Lane lane : lanes) {
+            // FRESH stays in the root directory so journals written before lanes existed are still read
+            Path directory = lane == Lane.FRESH ? root : root.resolve(lane.name().toLowerCase());
+            try {
+                journals[lane.ordinal()] = new SegmentJournal(
+                        directory, settings.getSegmentSizeBytes(), settings.getFsyncIntervalMs());
+            } catch (IOException e) {
+                close();
+                throw new IllegalStateException("Failed to open event journal at " + directory.toAbsolutePath(), e);
+            }
+            // Payload sizes are not known without decoding every record, so only the count is restored
+            getCapacity().restore(journals[lane.ordinal()].size(), 0);
+        }
+    }
+    
+    /**
+     * Appends the event to the lane's journal.
+     * 
+     * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
+     * @return true if the event was appended, false if the journal could not accept it
+     */
+    @Override
+    protected boolean offer(QueuedEvent event, Lane lane) {
+        try {
+            journals[lane.ordinal()].append(encode(event));
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to append event to journal: id={}, lane={}, error={}", event.getEventId(), lane, e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Reads the next event from the lane's journal and advances its consumer checkpoint.
+     * 
+     * @param lane The lane to take from
+     * @return The next event, or null if the lane's journal has no unread events
+     */
+    @Override
+    protected QueuedEvent poll(Lane lane) {
+        byte[] record = journals[lane.ordinal()].poll();
+        return record != null ? decode(record) : null;
+    }
+    
+    /**
+     * Returns the number of unread events in the lane's journal. O(1).
+     * 
+     * @param lane The lane to inspect
+     * @return The number of events currently on the lane
+     */
+    @Override
+    public int size(Lane lane) {
+        return (int) Math.min(Integer.MAX_VALUE, journals[lane.ordinal()].size());
+    }
+    
+    /**
+     * None: the checkpoint moves on dequeue, so a PENDING event that was dequeued
+     * but not delivered (waiting for an executor slot, or put back to PENDING and
+     * held in memory by a retry timer, the parking lot or the ordering gate) is no
+     * longer in the journal. Startup recovery re-enqueues every unfinished event;
+     * an entry the journal also replays fails its claim once the first copy has
+     * claimed the event, and is dropped.
+     * 
+     * @return An empty set
+     */
+    @Override
+    public Set<Event.EventStatus> selfRecoveredStatuses() {
+        return EnumSet.noneOf(Event.EventStatus.class);
+    }
+    
+    /**
+     * Forces outstanding writes to disk before shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        for (SegmentJournal journal : journals) {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+    
+    /**
+     * Encodes the queue entry:
+     * [version][eventId][webhookId][attempt][nextDueAt][payloadBytes]
+     */
+    private static byte[] encode(QueuedEvent event) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+        buffer.put(RECORD_VERSION);
+        buffer.putLong(event.getEventId());
+        buffer.putLong(event.getWebhookId());
+        buffer.putInt(event.getAttempt());
+        buffer.putLong(event.getNextDueAt());
+        buffer.putInt(event.getPayloadBytes());
+        return buffer.array();
+    }
+    
+    private static QueuedEvent decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        byte version = buffer.get();
+        if (version == RECORD_VERSION) {
+            return new QueuedEvent(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getInt());
+        }
+        if (version == RECORD_VERSION_WITH_PAYLOAD) {
+            // [version][id][webhookId][retryCount][status][payload length or -1][payload UTF-8]
+            long id = buffer.getLong();
+            long webhookId = buffer.getLong();
+            int retryCount = buffer.getInt();
+            buffer.get();
+            int payloadLength = buffer.getInt();
+            return new QueuedEvent(id, webhookId, retryCount, 0L, Math.max(0, payloadLength));
+        }
+        throw new IllegalStateException("Unsupported journal record version: " + version);
+    }
+}
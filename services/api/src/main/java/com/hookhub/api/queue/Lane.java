@@ -0,0 +1,28 @@
+package com.hookhub.api.queue;
+
+/**
+ * Priority lane an event is queued on.
+ * 
+ * Each lane is dispatched with a configurable weighted share (see EventQueueConfig),
+ * so a flood on one lane cannot starve the others:
+ * - FRESH: first delivery attempts of newly created events
+ * - RETRY: events re-enqueued after a failed attempt or circuit breaker cooldown
+ * - RECOVERY: events brought back by resume or restart recovery
+ */
+public enum Lane {
+    
+    /**
+     * First delivery attempt of a newly created event.
+     */
+    FRESH,
+    
+    /**
+     * Re-attempt of an event whose previous delivery failed or was deferred.
+     */
+    RETRY,
+    
+    /**
+     * Event restored from persisted state (resumed or recovered after restart).
+     */
+    RECOVERY
+}
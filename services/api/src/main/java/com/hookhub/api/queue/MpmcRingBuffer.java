@@ -0,0 +1,129 @@
+package com.hookhub.api.queue;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer multi-consumer ring buffer (Vyukov's algorithm).
+ * 
+ * All slots are allocated up front in a power-of-two array, so offer() and poll()
+ * allocate nothing and map a position to a slot with a mask instead of a modulo.
+ * Each slot carries a sequence number that tells producers and consumers whether
+ * the slot is free for the current lap or holds an element for it:
+ * - sequence == position: free, a producer may claim it
+ * - sequence == position + 1: filled, a consumer may claim it
+ * 
+ * Producers and consumers only contend on their own position counter (a single
+ * CAS each), and the two counters are padded onto separate cache lines. The
+ * element is published by the release-store of the slot sequence and observed by
+ * the matching acquire-load, so no other fences are needed.
+ * 
+ * @param <E> Element type
+ */
+public class MpmcRingBuffer<E> {
+    
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    
+    private final PaddedSequence producerPosition = new PaddedSequence(0);
+    private final PaddedSequence consumerPosition = new PaddedSequence(0);
+    
+    /**
+     * Creates a ring buffer with at least the requested number of slots.
+     * 
+     * @param requestedCapacity Minimum number of slots; rounded up to a power of two
+     */
+    public MpmcRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1 || requestedCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30: " + requestedCapacity);
+        }
+        int capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Adds an element if a slot is free.
+     * 
+     * @param element Element to add (never null)
+     * @return true if added, false if the buffer is full
+     */
+    public boolean offer(E element) {
+        long position = producerPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = producerPosition.get();
+            } else if (difference < 0) {
+                // The slot still holds the element from the previous lap
+                return false;
+            } else {
+                // Another producer claimed this position; catch up
+                position = producerPosition.get();
+            }
+        }
+    }
+    
+    /**
+     * Removes the oldest element, if any.
+     * 
+     * @return The element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = consumerPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - (position + 1);
+            if (difference == 0) {
+                if (consumerPosition.compareAndSet(position, position + 1)) {
+                    E element = (E) elements[index];
+                    elements[index] = null;
+                    // Free the slot for the producer one lap ahead
+                    sequences.setRelease(index, position + mask + 1);
+                    return element;
+                }
+                position = consumerPosition.get();
+            } else if (difference < 0) {
+                // Nothing published at this position yet
+                return null;
+            } else {
+                position = consumerPosition.get();
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of elements, computed in O(1) from the two positions.
+     * May be momentarily off by in-flight operations, but never negative or above capacity.
+     * 
+     * @return Number of queued elements
+     */
+    public int size() {
+        // Read the consumer first so the difference cannot go negative
+        long consumer = consumerPosition.get();
+        long producer = producerPosition.get();
+        long size = producer - consumer;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity());
+    }
+    
+    /**
+     * @return Number of slots
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
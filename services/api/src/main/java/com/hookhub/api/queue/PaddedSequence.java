@@ -0,0 +1,63 @@
+package com.hookhub.api.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A long counter padded on both sides so that it occupies a cache line of its own.
+ * 
+ * The producer and consumer positions of a ring buffer are written by different
+ * threads at a high rate. Without padding they tend to share a 64-byte cache line
+ * with each other (or with unrelated fields), and every write invalidates the line
+ * on every other core ("false sharing"). Field order is not guaranteed within a
+ * single class, so the padding is spread over a small class hierarchy: the JVM
+ * lays out superclass fields before subclass fields.
+ */
+final class PaddedSequence extends PaddedSequenceRightPadding {
+    
+    private static final VarHandle VALUE;
+    
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(PaddedSequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    PaddedSequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+    
+    /**
+     * @return The current value, with acquire semantics
+     */
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+    
+    /**
+     * Atomically sets the value if it currently equals the expected value.
+     * 
+     * @param expected Expected current value
+     * @param newValue New value
+     * @return true if the value was updated
+     */
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+}
+
+@SuppressWarnings("unused")
+abstract class PaddedSequenceLeftPadding {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedSequenceValue extends PaddedSequenceLeftPadding {
+    volatile long value;
+}
+
+@SuppressWarnings("unused")
+abstract class PaddedSequenceRightPadding extends PaddedSequenceValue {
+    long p11, p12, p13, p14, p15, p16, p17;
+}
@@ -0,0 +1,109 @@
+package com.hookhub.api.queue;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of event payloads, keyed by event ID.
+ * 
+ * Queue entries do not carry payloads, so the worker would otherwise read every
+ * payload back from MySQL right after it was written. WebhookService puts the
+ * payload here when it queues a new event and the worker takes it out at
+ * delivery time; on a miss (evicted, restarted, retried) the worker loads it
+ * from the database instead.
+ * 
+ * Entries are evicted oldest-first once the estimated size exceeds
+ * hookhub.queue.payload-cache.max-bytes. Events are mostly delivered in the
+ * order they were created, so insertion order is a good proxy for the next
+ * payload needed. A max-bytes of 0 disables the cache.
+ */
+@Component
+public class PayloadCache {
+    
+    /**
+     * Approximate fixed cost of a cache entry (map node, boxed key, string header)
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    
+    private final long maxBytes;
+    
+    /**
+     * Insertion-ordered so the eldest entry is evicted first
+     */
+    private final LinkedHashMap<Long, String> payloads = new LinkedHashMap<>();
+    
+    private long usedBytes;
+    
+    public PayloadCache(EventQueueConfig config) {
+        this.maxBytes = config.getPayloadCache().getMaxBytes();
+    }
+    
+    /**
+     * Caches a payload, evicting the oldest entries if needed.
+     * Payloads larger than the whole cache are not cached.
+     * 
+     * @param eventId Event ID
+     * @param payload Payload JSON (null payloads are not cached)
+     */
+    public void put(long eventId, String payload) {
+        long size = estimateBytes(payload);
+        if (payload == null || size > maxBytes) {
+            return;
+        }
+        synchronized (payloads) {
+            String previous = payloads.put(eventId, payload);
+            if (previous != null) {
+                usedBytes -= estimateBytes(previous);
+            }
+            usedBytes += size;
+            Iterator<Map.Entry<Long, String>> eldest = payloads.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                usedBytes -= estimateBytes(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+    }
+    
+    /**
+     * Returns a cached payload without removing it.
+     * 
+     * @param eventId Event ID
+     * @return The payload, or null if it is not cached
+     */
+    public String get(long eventId) {
+        synchronized (payloads) {
+            return payloads.get(eventId);
+        }
+    }
+    
+    /**
+     * Removes a payload once the event no longer needs delivering.
+     * 
+     * @param eventId Event ID
+     */
+    public void evict(long eventId) {
+        synchronized (payloads) {
+            String removed = payloads.remove(eventId);
+            if (removed != null) {
+                usedBytes -= estimateBytes(removed);
+            }
+        }
+    }
+    
+    /**
+     * @return Estimated heap taken by cached payloads
+     */
+    public long getUsedBytes() {
+        synchronized (payloads) {
+            return usedBytes;
+        }
+    }
+    
+    private static long estimateBytes(String payload) {
+        // Latin-1 strings take one byte per char; JSON payloads are mostly ASCII
+        return ENTRY_OVERHEAD_BYTES + (payload != null ? payload.length() : 0);
+    }
+}
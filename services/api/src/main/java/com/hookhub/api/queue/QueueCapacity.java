@@ -0,0 +1,194 @@
+package com.hookhub.api.queue;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how many events and bytes the queue holds and enforces the configured
+ * limits for new (FRESH lane) events.
+ * 
+ * Retries and recovered events are always accepted: they already exist in the
+ * database and dropping them would lose work, and they are bounded by the
+ * events that were admitted in the first place. They still count towards usage,
+ * so a retry backlog pushes back new ingestion.
+ * 
+ * Byte usage is the payload volume the queued events stand for plus a fixed
+ * per-entry overhead. Queue entries do not hold payloads themselves (see
+ * QueuedEvent), so this bounds the delivery backlog in bytes; the heap taken by
+ * cached payloads is bounded separately by PayloadCache.
+ * 
+ * The drain rate is measured from releases and used to estimate how long a
+ * rejected producer should wait before trying again.
+ */
+@Component
+public class QueueCapacity {
+    
+    /**
+     * Approximate fixed cost of a queued event (entry plus queue slot or node)
+     */
+    static final int EVENT_OVERHEAD_BYTES = QueuedEvent.ENTRY_BYTES + 16;
+    
+    /**
+     * Minimum interval between drain rate samples
+     */
+    private static final long RATE_SAMPLE_INTERVAL_NANOS = 1_000_000_000L;
+    
+    /**
+     * Weight of the newest sample in the drain rate moving average
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+    
+    private final long maxEvents;
+    private final long maxBytes;
+    private final int maxRetryAfterSeconds;
+    
+    private final AtomicLong usedEvents = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong releasedEvents = new AtomicLong();
+    
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleReleased;
+    private double drainRatePerSecond;
+    
+    public QueueCapacity(EventQueueConfig config) {
+        EventQueueConfig.Capacity capacity = config.getCapacity();
+        this.maxEvents = capacity.getMaxEvents();
+        this.maxBytes = capacity.getMaxBytes();
+        this.maxRetryAfterSeconds = capacity.getMaxRetryAfterSeconds();
+    }
+    
+    /**
+     * Reserves room for a new event if both limits allow it.
+     * 
+     * @param event The event to admit
+     * @return true if the event was admitted, false if the queue is full
+     */
+    public boolean tryAcquire(QueuedEvent event) {
+        long bytes = estimateBytes(event);
+        while (true) {
+            long events = usedEvents.get();
+            if (events >= maxEvents || usedBytes.get() + bytes > maxBytes) {
+                return false;
+            }
+            if (usedEvents.compareAndSet(events, events + 1)) {
+                usedBytes.addAndGet(bytes);
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Records an event that must be queued regardless of the limits (retries, recovery).
+     * 
+     * @param event The event being queued
+     */
+    public void acquire(QueuedEvent event) {
+        usedEvents.incrementAndGet();
+        usedBytes.addAndGet(estimateBytes(event));
+    }
+    
+    /**
+     * Releases the room held by an event that left the queue.
+     * 
+     * @param event The event that was dequeued
+     */
+    public void release(QueuedEvent event) {
+        free(estimateBytes(event));
+        releasedEvents.incrementAndGet();
+    }
+    
+    /**
+     * Gives back room acquired for an event that could not be stored after all.
+     * Unlike release(), this does not count towards the drain rate.
+     * 
+     * @param event The event that was not stored
+     */
+    public void abandon(QueuedEvent event) {
+        free(estimateBytes(event));
+    }
+    
+    /**
+     * Accounts for events already held by a durable queue when it was opened.
+     * 
+     * @param events Number of events restored
+     * @param payloadBytes Total payload bytes of those events (approximate)
+     */
+    public void restore(long events, long payloadBytes) {
+        usedEvents.addAndGet(events);
+        usedBytes.addAndGet(events * EVENT_OVERHEAD_BYTES + payloadBytes);
+    }
+    
+    /**
+     * Checks whether usage is below the given fraction of both limits.
+     * 
+     * @param fraction Fraction of the limits, e.g. 0.8
+     * @return true if both event count and bytes are below that fraction
+     */
+    public boolean isBelow(double fraction) {
+        return usedEvents.get() < maxEvents * fraction && usedBytes.get() < maxBytes * fraction;
+    }
+    
+    /**
+     * Estimates how many seconds a rejected producer should wait, based on how
+     * far usage is over the limits and the measured drain rate.
+     * 
+     * @return Suggested Retry-After in seconds, between 1 and the configured maximum
+     */
+    public int estimateRetryAfterSeconds() {
+        double rate = drainRatePerSecond();
+        if (rate <= 0) {
+            return maxRetryAfterSeconds;
+        }
+        // Time until roughly one in ten slots has drained, on both dimensions
+        double excessEvents = usedEvents.get() - maxEvents * 0.9;
+        double averageBytes = Math.max(1, usedBytes.get() / (double) Math.max(1, usedEvents.get()));
+        double excessBytesAsEvents = (usedBytes.get() - maxBytes * 0.9) / averageBytes;
+        double seconds = Math.max(excessEvents, excessBytesAsEvents) / rate;
+        return (int) Math.max(1, Math.min(maxRetryAfterSeconds, Math.ceil(seconds)));
+    }
+    
+    public long getUsedEvents() {
+        return usedEvents.get();
+    }
+    
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    public long getMaxEvents() {
+        return maxEvents;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    /**
+     * Exponentially weighted drain rate in events per second, resampled at most once per second.
+     */
+    private synchronized double drainRatePerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed >= RATE_SAMPLE_INTERVAL_NANOS) {
+            long released = releasedEvents.get();
+            double sample = (released - lastSampleReleased) * 1_000_000_000.0 / elapsed;
+            drainRatePerSecond = drainRatePerSecond == 0
+                    ? sample
+                    : RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * drainRatePerSecond;
+            lastSampleNanos = now;
+            lastSampleReleased = released;
+        }
+        return drainRatePerSecond;
+    }
+    
+    private void free(long bytes) {
+        // Clamp at zero: restored usage is approximate
+        usedEvents.updateAndGet(events -> Math.max(0, events - 1));
+        usedBytes.updateAndGet(used -> Math.max(0, used - bytes));
+    }
+    
+    private static long estimateBytes(QueuedEvent event) {
+        return EVENT_OVERHEAD_BYTES + event.getPayloadBytes();
+    }
+}
@@ -0,0 +1,107 @@
+package com.hookhub.api.queue;
+
+import com.hookhub.api.model.Event;
+
+/**
+ * Compact, immutable queue entry referring to a stored Event.
+ * 
+ * The queue holds only what dispatch needs, as primitives: the event and webhook
+ * IDs, the attempt number and when the attempt is due. The payload stays in the
+ * database (or the PayloadCache) and is loaded at delivery time, so a queued
+ * event costs a few dozen bytes of heap instead of a managed JPA entity with its
+ * payload string and timestamps. Status is not copied either; the database is the
+ * source of truth and the worker claims the event there before delivering it.
+ * 
+ * Entries are immutable so they can be shared between threads without copying;
+ * a retry creates a new entry with nextAttempt().
+ */
+public final class QueuedEvent {
+    
+    /**
+     * Approximate heap size of one entry (object header plus fields)
+     */
+    public static final int ENTRY_BYTES = 48;
+    
+    private final long eventId;
+    private final long webhookId;
+    private final int attempt;
+    private final long nextDueAt;
+    private final int payloadBytes;
+    
+    /**
+     * @param eventId ID of the stored event
+     * @param webhookId ID of the webhook the event is delivered to
+     * @param attempt Number of delivery attempts already made (the event's retry count)
+     * @param nextDueAt Epoch millis at which the attempt is due, 0 for immediately
+     * @param payloadBytes Payload length, used for capacity accounting
+     */
+    public QueuedEvent(long eventId, long webhookId, int attempt, long nextDueAt, int payloadBytes) {
+        this.eventId = eventId;
+        this.webhookId = webhookId;
+        this.attempt = attempt;
+        this.nextDueAt = nextDueAt;
+        this.payloadBytes = payloadBytes;
+    }
+    
+    /**
+     * Creates an entry for a saved event, due immediately.
+     * 
+     * @param event A persisted event (must have an ID)
+     * @return The queue entry
+     */
+    public static QueuedEvent of(Event event) {
+        if (event.getId() == null) {
+            throw new IllegalArgumentException("Event must be saved before it is queued");
+        }
+        String payload = event.getPayload();
+        return new QueuedEvent(event.getId(), event.getWebhookId(),
+                event.getRetryCount() != null ? event.getRetryCount() : 0,
+                0L, payload != null ? payload.length() : 0);
+    }
+    
+    /**
+     * Returns the entry for the next attempt of this event.
+     * 
+     * @param dueAt Epoch millis at which the next attempt is due
+     * @return A new entry with the attempt number incremented
+     */
+    public QueuedEvent nextAttempt(long dueAt) {
+        return new QueuedEvent(eventId, webhookId, attempt + 1, dueAt, payloadBytes);
+    }
+    
+    /**
+     * Returns this entry with a different due time and the same attempt number.
+     * 
+     * @param dueAt Epoch millis at which the attempt is due
+     * @return A new entry
+     */
+    public QueuedEvent dueAt(long dueAt) {
+        return new QueuedEvent(eventId, webhookId, attempt, dueAt, payloadBytes);
+    }
+    
+    public long getEventId() {
+        return eventId;
+    }
+    
+    public long getWebhookId() {
+        return webhookId;
+    }
+    
+    public int getAttempt() {
+        return attempt;
+    }
+    
+    public long getNextDueAt() {
+        return nextDueAt;
+    }
+    
+    public int getPayloadBytes() {
+        return payloadBytes;
+    }
+    
+    @Override
+    public String toString() {
+        return "QueuedEvent{eventId=" + eventId + ", webhookId=" + webhookId + ", attempt=" + attempt
+                + ", nextDueAt=" + nextDueAt + ", payloadBytes=" + payloadBytes + "}";
+    }
+}
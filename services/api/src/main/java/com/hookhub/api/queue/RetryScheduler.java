@@ -0,0 +1,219 @@
+package com.hookhub.api.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds queue entries until their due time and then hands them back to the EventQueue.
+ * 
+ * Entries wait in a HierarchicalTimingWheel (one per lane), so scheduling and
+ * cancelling are O(1) and a full outage's worth of retries costs one small node
+ * per event. A single ticking thread advances the wheels every tick and enqueues
+ * whatever became due; delivery threads never sleep waiting for a retry.
+ * 
+ * If the queue refuses a due entry (a full ring buffer), it is rescheduled a
+ * second later rather than dropped. Entries still waiting at shutdown are not
+ * persisted here: DeliveryWorker's drain takes them with drain() and writes their
+ * due times to the database.
+ */
+@Component
+public class RetryScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+    
+    /**
+     * Delay before offering a refused entry to the queue again
+     */
+    private static final long REFUSED_RETRY_DELAY_MS = 1000;
+    
+    private static final Lane[] LANES = Lane.values();
+    
+    private final EventQueue eventQueue;
+    
+    private final long tickMs;
+    
+    /**
+     * One wheel per lane, all guarded by the lock
+     */
+    private final HierarchicalTimingWheel<QueuedEvent>[] wheels;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private volatile boolean running = false;
+    private Thread tickThread;
+    
+    @SuppressWarnings("unchecked")
+    public RetryScheduler(EventQueue eventQueue, EventQueueConfig config) {
+        this.eventQueue = eventQueue;
+        EventQueueConfig.Timer timer = config.getTimer();
+        this.tickMs = timer.getTickMs();
+        long now = System.currentTimeMillis();
+        this.wheels = new HierarchicalTimingWheel[LANES.length];
+        for (Lane lane : LANES) {
+            wheels[lane.ordinal()] = new HierarchicalTimingWheel<>(
+                    timer.getTickMs(), timer.getWheelSize(), timer.getLevels(), now);
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        tickThread = new Thread(this::tickLoop, "RetryScheduler-Tick");
+        tickThread.setDaemon(true);
+        tickThread.start();
+        logger.info("RetryScheduler started with {}ms ticks", tickMs);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopTicking();
+        int pending = size();
+        if (pending > 0) {
+            logger.info("RetryScheduler stopped with {} scheduled events; they remain RETRY_PENDING in the database", pending);
+        }
+    }
+    
+    /**
+     * Stops handing out entries and removes every scheduled one, for the shutdown drain.
+     * Each entry keeps its due time (QueuedEvent.getNextDueAt()).
+     * 
+     * @return Entries that were waiting, across all lanes
+     */
+    public List<QueuedEvent> drain() {
+        stopTicking();
+        List<QueuedEvent> drained = new ArrayList<>();
+        lock.lock();
+        try {
+            for (HierarchicalTimingWheel<QueuedEvent> wheel : wheels) {
+                wheel.drain(drained::add);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return drained;
+    }
+    
+    private void stopTicking() {
+        running = false;
+        if (tickThread != null) {
+            tickThread.interrupt();
+            try {
+                tickThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Schedules an entry to be enqueued on a lane at its due time (QueuedEvent.getNextDueAt()).
+     * Entries already due are enqueued on the next tick.
+     * 
+     * @param event The entry to enqueue later
+     * @param lane The lane to enqueue it on
+     * @return Handle that can be passed to cancel()
+     */
+    public HierarchicalTimingWheel.Timer<QueuedEvent> schedule(QueuedEvent event, Lane lane) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        if (lane == null) {
+            throw new IllegalArgumentException("Lane cannot be null");
+        }
+        lock.lock();
+        try {
+            return wheels[lane.ordinal()].schedule(event, event.getNextDueAt());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Cancels a scheduled entry.
+     * 
+     * @param timer Handle returned by schedule()
+     * @param lane The lane it was scheduled on
+     * @return true if the entry was still waiting, false if it had already been enqueued
+     */
+    public boolean cancel(HierarchicalTimingWheel.Timer<QueuedEvent> timer, Lane lane) {
+        lock.lock();
+        try {
+            return wheels[lane.ordinal()].cancel(timer);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of entries waiting for their due time.
+     * 
+     * @return Scheduled entries across all lanes
+     */
+    public int size() {
+        lock.lock();
+        try {
+            int total = 0;
+            for (HierarchicalTimingWheel<QueuedEvent> wheel : wheels) {
+                total += wheel.size();
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Advances the wheels once per tick and enqueues due entries outside the lock.
+     */
+    private void tickLoop() {
+        List<QueuedEvent> due = new ArrayList<>();
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(tickMs);
+                for (Lane lane : LANES) {
+                    due.clear();
+                    lock.lock();
+                    try {
+                        wheels[lane.ordinal()].advance(System.currentTimeMillis(), due::add);
+                    } finally {
+                        lock.unlock();
+                    }
+                    for (QueuedEvent event : due) {
+                        handOff(event, lane);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in RetryScheduler tick", e);
+            }
+        }
+    }
+    
+    private void handOff(QueuedEvent event, Lane lane) {
+        if (eventQueue.enqueue(event, lane)) {
+            logger.debug("Scheduled event enqueued: id={}, attempt={}, lane={}",
+                    event.getEventId(), event.getAttempt(), lane);
+            return;
+        }
+        // Bounded queues (ring) can refuse; keep the entry and try again shortly
+        logger.warn("Queue full, rescheduling event in {}ms: id={}, lane={}",
+                REFUSED_RETRY_DELAY_MS, event.getEventId(), lane);
+        lock.lock();
+        try {
+            wheels[lane.ordinal()].schedule(event, System.currentTimeMillis() + REFUSED_RETRY_DELAY_MS);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.hookhub.api.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only record log stored in memory-mapped segment files, with a single
+ * consumer offset checkpoint.
+ * 
+ * Layout:
+ * - segment-NNNNNNNNNNNNNNNNNNNN.log: fixed-size, pre-allocated segment files.
+ *   Each record is [int length][int crc32c][length bytes]. A length of -1 marks
+ *   the end of a segment; a length of 0 means nothing has been written there yet.
+ * - consumer.offset: [long segment][int position][int crc32c] of the next record to read.
+ * 
+ * Appends are written straight into the mapped segment, so a JVM crash never loses
+ * an appended record (the OS page cache still holds it). Pages are forced to disk on
+ * a fixed interval to bound what an OS crash can lose. The length field is written
+ * last, and every record carries a checksum, so a torn tail is detected and dropped
+ * on recovery.
+ * 
+ * Segments are rolled when full and deleted as soon as the consumer has read past
+ * them, so disk usage tracks the unconsumed backlog.
+ * 
+ * One writer lock and one reader lock; appends and polls never block each other.
+ */
+public class SegmentJournal implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SegmentJournal.class);
+    
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "consumer.offset";
+    
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int CHECKPOINT_BYTES = 16;
+    
+    private final Path directory;
+    private final int segmentSize;
+    
+    /**
+     * Mapped buffers of all live (not yet fully consumed) segments
+     */
+    private final Map<Long, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+    
+    private final Object writeLock = new Object();
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private int writePosition;
+    
+    private final Object readLock = new Object();
+    private long readSegment;
+    private MappedByteBuffer readBuffer;
+    private int readPosition;
+    
+    /**
+     * Published write position (segment in the high 32 bits, offset in the low 32 bits).
+     * Written after the record bytes, so a reader that observes it also observes the record.
+     */
+    private volatile long writeMark;
+    
+    private final AtomicLong pendingRecords = new AtomicLong();
+    
+    private final MappedByteBuffer checkpoint;
+    private final ScheduledExecutorService flusher;
+    
+    /**
+     * Opens (or creates) a journal in the given directory and recovers the
+     * consumer offset and write position from disk.
+     * 
+     * @param directory Directory holding segment files and the checkpoint
+     * @param segmentSize Size of each segment file in bytes
+     * @param fsyncIntervalMs How often to force dirty pages to disk (0 forces on every append)
+     * @throws IOException if the directory or its files cannot be opened
+     */
+    public SegmentJournal(Path directory, int segmentSize, long fsyncIntervalMs) throws IOException {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        
+        Files.createDirectories(directory);
+        this.checkpoint = map(directory.resolve(CHECKPOINT_FILE), CHECKPOINT_BYTES);
+        
+        recover();
+        
+        if (fsyncIntervalMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "SegmentJournal-Flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+    
+    /**
+     * Appends a record to the journal.
+     * 
+     * @param record Record bytes
+     * @throws IOException if a new segment could not be created
+     */
+    public void append(byte[] record) throws IOException {
+        if (record.length == 0) {
+            throw new IllegalArgumentException("Journal records must not be empty");
+        }
+        int recordSize = RECORD_HEADER_BYTES + record.length;
+        // Always leave room for the end-of-segment marker
+        if (recordSize + 4 > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.length
+                    + " bytes does not fit in a segment of " + segmentSize + " bytes");
+        }
+        
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, record.length);
+        
+        synchronized (writeLock) {
+            if (writePosition + recordSize + 4 > segmentSize) {
+                rollSegment();
+            }
+            writeBuffer.putInt(writePosition + 4, (int) crc.getValue());
+            writeBuffer.put(writePosition + RECORD_HEADER_BYTES, record);
+            // Length goes last so a torn write reads back as "nothing written"
+            writeBuffer.putInt(writePosition, record.length);
+            writePosition += recordSize;
+            
+            pendingRecords.incrementAndGet();
+            writeMark = mark(writeSegment, writePosition);
+            
+            if (flusher == null) {
+                writeBuffer.force();
+            }
+        }
+    }
+    
+    /**
+     * Removes and returns the next unread record, advancing the consumer checkpoint.
+     * 
+     * @return The next record, or null if every appended record has been read
+     */
+    public byte[] poll() {
+        synchronized (readLock) {
+            while (mark(readSegment, readPosition) < writeMark) {
+                int length = readBuffer.getInt(readPosition);
+                if (length == END_OF_SEGMENT) {
+                    advanceReadSegment();
+                    continue;
+                }
+                
+                byte[] record = new byte[length];
+                readBuffer.get(readPosition + RECORD_HEADER_BYTES, record);
+                readPosition += RECORD_HEADER_BYTES + length;
+                pendingRecords.decrementAndGet();
+                writeCheckpoint(readSegment, readPosition);
+                return record;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the number of appended records that have not been read yet.
+     * 
+     * @return Unread record count
+     */
+    public long size() {
+        return pendingRecords.get();
+    }
+    
+    /**
+     * Forces the active segment and the checkpoint to disk.
+     */
+    public void flush() {
+        try {
+            MappedByteBuffer buffer;
+            synchronized (writeLock) {
+                buffer = writeBuffer;
+            }
+            buffer.force();
+            checkpoint.force();
+        } catch (Exception e) {
+            logger.warn("Failed to flush event journal in {}: {}", directory, e.getMessage());
+        }
+    }
+    
+    /**
+     * Stops the background flusher and forces everything to disk.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+    
+    /**
+     * Rebuilds reader and writer state from the checkpoint and segment files.
+     * Segments the consumer has already passed are deleted; the live tail is
+     * scanned record by record to find the write position and unread count.
+     */
+    private void recover() throws IOException {
+        TreeSet<Long> existing = listSegments();
+        
+        long checkpointSegment = checkpoint.getLong(0);
+        int checkpointPosition = checkpoint.getInt(8);
+        CRC32C crc = new CRC32C();
+        crc.update(checkpointBytes(checkpointSegment, checkpointPosition));
+        boolean checkpointValid = checkpoint.getInt(12) == (int) crc.getValue()
+                && existing.contains(checkpointSegment);
+        
+        if (checkpointValid) {
+            readSegment = checkpointSegment;
+            readPosition = checkpointPosition;
+        } else {
+            readSegment = existing.isEmpty() ? 0 : existing.first();
+            readPosition = 0;
+        }
+        
+        for (Long segment : existing) {
+            if (segment < readSegment) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+        existing.removeIf(segment -> segment < readSegment);
+        if (existing.isEmpty()) {
+            existing.add(readSegment);
+        }
+        for (Long segment : existing) {
+            segments.put(segment, map(segmentPath(segment), segmentSize));
+        }
+        
+        long recovered = 0;
+        long lastSegment = existing.last();
+        writeSegment = lastSegment;
+        writePosition = 0;
+        for (Long segment : existing) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int position = segment == readSegment ? readPosition : 0;
+            while (position + RECORD_HEADER_BYTES <= segmentSize) {
+                int length = buffer.getInt(position);
+                if (length == 0 || length == END_OF_SEGMENT) {
+                    break;
+                }
+                if (length < 0 || position + RECORD_HEADER_BYTES + length > segmentSize
+                        || !checksumMatches(buffer, position, length)) {
+                    logger.warn("Discarding torn record in segment {} at offset {}", segment, position);
+                    zero(buffer, position, segmentSize);
+                    break;
+                }
+                position += RECORD_HEADER_BYTES + length;
+                recovered++;
+            }
+            if (segment == lastSegment) {
+                writePosition = position;
+            } else if (buffer.getInt(position) != END_OF_SEGMENT) {
+                // Crashed between filling this segment and marking it; mark it now
+                buffer.putInt(position, END_OF_SEGMENT);
+            }
+        }
+        
+        writeBuffer = segments.get(writeSegment);
+        readBuffer = segments.get(readSegment);
+        pendingRecords.set(recovered);
+        writeMark = mark(writeSegment, writePosition);
+        writeCheckpoint(readSegment, readPosition);
+        
+        logger.info("Event journal opened: directory={}, segments={}, unread records={}",
+                directory, existing.size(), recovered);
+    }
+    
+    private void rollSegment() throws IOException {
+        long nextSegment = writeSegment + 1;
+        MappedByteBuffer next = map(segmentPath(nextSegment), segmentSize);
+        segments.put(nextSegment, next);
+        
+        writeBuffer.putInt(writePosition, END_OF_SEGMENT);
+        if (flusher != null) {
+            writeBuffer.force();
+        }
+        
+        writeSegment = nextSegment;
+        writeBuffer = next;
+        writePosition = 0;
+        writeMark = mark(writeSegment, writePosition);
+    }
+    
+    private void advanceReadSegment() {
+        long consumed = readSegment;
+        readSegment = consumed + 1;
+        readBuffer = segments.get(readSegment);
+        readPosition = 0;
+        writeCheckpoint(readSegment, readPosition);
+        
+        // Compaction: a fully consumed segment is no longer needed
+        segments.remove(consumed);
+        try {
+            Files.deleteIfExists(segmentPath(consumed));
+        } catch (IOException e) {
+            logger.warn("Failed to delete consumed journal segment {}: {}", consumed, e.getMessage());
+        }
+    }
+    
+    private void writeCheckpoint(long segment, int position) {
+        CRC32C crc = new CRC32C();
+        crc.update(checkpointBytes(segment, position));
+        checkpoint.putLong(0, segment);
+        checkpoint.putInt(8, position);
+        checkpoint.putInt(12, (int) crc.getValue());
+    }
+    
+    private static byte[] checkpointBytes(long segment, int position) {
+        return ByteBuffer.allocate(12).putLong(segment).putInt(position).array();
+    }
+    
+    private static boolean checksumMatches(MappedByteBuffer buffer, int position, int length) {
+        byte[] record = new byte[length];
+        buffer.get(position + RECORD_HEADER_BYTES, record);
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, length);
+        return buffer.getInt(position + 4) == (int) crc.getValue();
+    }
+    
+    private static void zero(MappedByteBuffer buffer, int from, int to) {
+        byte[] zeros = new byte[Math.min(8192, to - from)];
+        for (int position = from; position < to; position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, to - position));
+        }
+    }
+    
+    private static long mark(long segment, int position) {
+        return (segment << 32) | (position & 0xFFFFFFFFL);
+    }
+    
+    private TreeSet<Long> listSegments() throws IOException {
+        TreeSet<Long> result = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    result.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file in journal directory: {}", name);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+    
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hookhub.api.queue;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory EventQueue that keeps one sub-queue per webhook and dispatches
+ * across them with deficit round robin (DRR).
+ * 
+ * A single global FIFO lets one webhook with a large burst delay every other
+ * webhook queued behind it. Here each webhook with pending events sits in an
+ * active ring; each visit grants it a quantum of dispatch credit and it may
+ * dispatch that many events before the next webhook gets its turn. A small
+ * tenant therefore waits for at most one quantum per other active webhook,
+ * no matter how deep the other backlogs are.
+ * 
+ * A webhook's sub-queue is removed as soon as it drains, so idle webhooks hold
+ * no state and cost nothing to skip.
+ * 
+ * Each lane has its own set of sub-queues, so fairness between webhooks
+ * applies within a lane and the weighted lane shares apply on top.
+ * 
+ * Enabled with hookhub.queue.type=sharded (see EventQueueConfig).
+ */
+@Component
+@ConditionalOnProperty(prefix = "hookhub.queue", name = "type", havingValue = "sharded")
+public class ShardedEventQueue extends AbstractBlockingEventQueue {
+    
+    /**
+     * One independent deficit round robin scheduler per lane
+     */
+    private final DrrScheduler[] lanes;
+    
+    public ShardedEventQueue(EventQueueConfig config, QueueCapacity capacity) {
+        super(config, capacity);
+        int quantum = Math.max(1, config.getSharded().getQuantum());
+        this.lanes = new DrrScheduler[Lane.values().length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new DrrScheduler(quantum);
+        }
+    }
+    
+    /**
+     * Appends the event to its webhook's sub-queue on the lane, activating the sub-queue if it was idle.
+     * 
+     * @param event The event to be enqueued
+     * @param lane The lane to queue the event on
+     * @return always true
+     */
+    @Override
+    protected boolean offer(QueuedEvent event, Lane lane) {
+        lanes[lane.ordinal()].offer(event);
+        return true;
+    }
+    
+    /**
+     * Removes the next event from the lane according to deficit round robin.
+     * 
+     * @param lane The lane to take from
+     * @return The next event, or null if every sub-queue on the lane is empty
+     */
+    @Override
+    protected QueuedEvent poll(Lane lane) {
+        return lanes[lane.ordinal()].poll();
+    }
+    
+    /**
+     * Returns the number of pending events on one lane across all webhooks. O(1).
+     * 
+     * @param lane The lane to inspect
+     * @return The number of events currently on the lane
+     */
+    @Override
+    public int size(Lane lane) {
+        return lanes[lane.ordinal()].size;
+    }
+    
+    /**
+     * Returns the number of webhooks that currently have pending events on any lane.
+     * 
+     * @return Active sub-queue count (a webhook active on two lanes counts twice)
+     */
+    public int activeWebhookCount() {
+        int total = 0;
+        for (DrrScheduler lane : lanes) {
+            total += lane.activeCount();
+        }
+        return total;
+    }
+    
+    /**
+     * Per-webhook sub-queues of one lane, served by deficit round robin.
+     */
+    private static final class DrrScheduler {
+        
+        /**
+         * Events a webhook may dispatch per round-robin visit
+         */
+        private final int quantum;
+        
+        /**
+         * Sub-queues of webhooks that currently have pending events, keyed by webhook ID
+         */
+        private final Map<Long, Shard> shards = new HashMap<>();
+        
+        /**
+         * Round-robin ring of shards with pending events; the head is being served
+         */
+        private final ArrayDeque<Shard> active = new ArrayDeque<>();
+        
+        private volatile int size;
+        
+        private DrrScheduler(int quantum) {
+            this.quantum = quantum;
+        }
+        
+        private synchronized void offer(QueuedEvent event) {
+            Shard shard = shards.get(event.getWebhookId());
+            if (shard == null) {
+                shard = new Shard(event.getWebhookId());
+                shards.put(event.getWebhookId(), shard);
+                active.addLast(shard);
+            }
+            shard.events.addLast(event);
+            size++;
+        }
+        
+        private synchronized QueuedEvent poll() {
+            Shard shard = active.peekFirst();
+            if (shard == null) {
+                return null;
+            }
+            
+            if (shard.deficit <= 0) {
+                // Start of this shard's turn
+                shard.deficit += quantum;
+            }
+            QueuedEvent event = shard.events.pollFirst();
+            shard.deficit--;
+            size--;
+            
+            if (shard.events.isEmpty()) {
+                // Drained: forget the shard entirely so idle webhooks cost nothing
+                active.pollFirst();
+                shards.remove(shard.webhookId);
+            } else if (shard.deficit <= 0) {
+                // Turn used up: move to the back of the ring
+                active.pollFirst();
+                active.addLast(shard);
+            }
+            return event;
+        }
+        
+        private synchronized int activeCount() {
+            return active.size();
+        }
+    }
+    
+    /**
+     * Pending events and DRR credit for one webhook.
+     */
+    private static final class Shard {
+        private final Long webhookId;
+        private final ArrayDeque<QueuedEvent> events = new ArrayDeque<>();
+        private int deficit;
+        
+        private Shard(Long webhookId) {
+            this.webhookId = webhookId;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.hookhub.api.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks which lane to dispatch from next using smooth weighted round robin.
+ * 
+ * Every selection adds each eligible lane's weight to its running credit, then
+ * serves the lane with the most credit and charges it the total eligible weight.
+ * Over time each backlogged lane receives its configured share, and the picks are
+ * interleaved rather than bursty (weights 70/20/10 never serve RETRY ten times in
+ * a row). Lanes with nothing queued are skipped and do not accumulate credit, so
+ * an idle lane's share goes to whoever has work.
+ * 
+ * Every consumer's poll() goes through select(), so it is lock-free: the three
+ * credits are packed into one long (CREDIT_BITS signed bits each) and updated with
+ * a compare-and-set, retried if another consumer selected in between. Smooth
+ * weighted round robin keeps every credit within plus or minus the total weight,
+ * which is why weights are capped at MAX_WEIGHT.
+ */
+public class WeightedLaneSelector {
+    
+    private static final Lane[] LANES = Lane.values();
+    
+    /**
+     * Width of one lane's credit in the packed state
+     */
+    private static final int CREDIT_BITS = 21;
+    private static final long CREDIT_MASK = (1L << CREDIT_BITS) - 1;
+    
+    /**
+     * Largest lane weight; three of them sum to less than the range of a packed credit
+     */
+    static final int MAX_WEIGHT = 1 << 18;
+    
+    private final int[] weights = new int[LANES.length];
+    
+    /**
+     * Per-lane credits, packed CREDIT_BITS per lane by ordinal
+     */
+    private final AtomicLong credits = new AtomicLong();
+    
+    /**
+     * Creates a selector with the given per-lane weights.
+     * 
+     * @param freshWeight Share of the FRESH lane
+     * @param retryWeight Share of the RETRY lane
+     * @param recoveryWeight Share of the RECOVERY lane
+     */
+    public WeightedLaneSelector(int freshWeight, int retryWeight, int recoveryWeight) {
+        weights[Lane.FRESH.ordinal()] = clampWeight(freshWeight);
+        weights[Lane.RETRY.ordinal()] = clampWeight(retryWeight);
+        weights[Lane.RECOVERY.ordinal()] = clampWeight(recoveryWeight);
+    }
+    
+    /**
+     * Selects the next lane to serve among those flagged as having work.
+     * 
+     * @param eligibleMask Bit set of lanes that currently have queued events (bit = 1 << ordinal)
+     * @return The lane to serve, or null if no lane is eligible
+     */
+    public Lane select(int eligibleMask) {
+        while (true) {
+            long current = credits.get();
+            long next = 0;
+            int totalWeight = 0;
+            int best = -1;
+            int bestCredit = 0;
+            for (int i = 0; i < LANES.length; i++) {
+                if ((eligibleMask & (1 << i)) == 0) {
+                    // Idle lanes keep no credit (packed as 0)
+                    continue;
+                }
+                int credit = credit(current, i) + weights[i];
+                totalWeight += weights[i];
+                next = withCredit(next, i, credit);
+                if (best < 0 || credit > bestCredit) {
+                    best = i;
+                    bestCredit = credit;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            next = withCredit(next, best, bestCredit - totalWeight);
+            if (credits.compareAndSet(current, next)) {
+                return LANES[best];
+            }
+        }
+    }
+    
+    private static int clampWeight(int weight) {
+        return Math.min(MAX_WEIGHT, Math.max(1, weight));
+    }
+    
+    private static int credit(long packed, int lane) {
+        // Shift the lane's bits to the top, then back down to sign-extend
+        return (int) (packed << (64 - CREDIT_BITS * (lane + 1)) >> (64 - CREDIT_BITS));
+    }
+    
+    private static long withCredit(long packed, int lane, int credit) {
+        int shift = CREDIT_BITS * lane;
+        return (packed & ~(CREDIT_MASK << shift)) | ((credit & CREDIT_MASK) << shift);
+    }
+}
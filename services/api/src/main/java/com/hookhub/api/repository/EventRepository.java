@@ -1,11 +1,17 @@
 package com.hookhub.api.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.hookhub.api.model.Event;
 
@@ -61,5 +67,211 @@ public interface EventRepository extends JpaRepository<Event, Long> {
      * @return List of events ordered by creation date (newest first)
      */
     List<Event> findByWebhookIdOrderByCreatedAtDesc(Long webhookId);
+    
+    /**
+     * Find the oldest events with a status, in insertion order
+     * @param status Event status
+     * @return Up to 100 events with the specified status
+     */
+    List<Event> findTop100ByStatusOrderByIdAsc(Event.EventStatus status);
+    
+    /**
+     * Move an event to a new status only if it still has the expected one
+     * @param id Event ID
+     * @param expected Status the event must currently have
+     * @param status New status
+     * @return 1 if the event was updated, 0 if its status had already changed
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = :status, e.updatedAt = CURRENT_TIMESTAMP where e.id = :id and e.status = :expected")
+    int updateStatusIfCurrent(@Param("id") Long id,
+                              @Param("expected") Event.EventStatus expected,
+                              @Param("status") Event.EventStatus status);
+    
+    /**
+     * Load only the payload of an event, without materializing the entity
+     * @param id Event ID
+     * @return Payload JSON, or null if the event has none (or does not exist)
+     */
+    @Query("select e.payload from Event e where e.id = :id")
+    String findPayloadById(@Param("id") Long id);
+    
+    /**
+     * Set the status of an event without loading it
+     * @param id Event ID
+     * @param status New status
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = :status, e.updatedAt = CURRENT_TIMESTAMP where e.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") Event.EventStatus status);
+    
+    /**
+     * Mark an event RETRY_PENDING with its retry count and when the retry is due, without loading it
+     * @param id Event ID
+     * @param retryCount New retry count
+     * @param nextAttemptAt When the retry is due
+     * @param leaseExpiresAt Until when the due-time poller must leave the event alone (null = claimable once due)
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = com.hookhub.api.model.Event.EventStatus.RETRY_PENDING, e.retryCount = :retryCount, "
+            + "e.nextAttemptAt = :nextAttemptAt, e.leaseOwner = null, e.leaseExpiresAt = :leaseExpiresAt, "
+            + "e.updatedAt = CURRENT_TIMESTAMP where e.id = :id")
+    int updateForRetry(@Param("id") Long id,
+                       @Param("retryCount") Integer retryCount,
+                       @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                       @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Move an event to a new status only if its current status is one of the expected ones
+     * @param id Event ID
+     * @param expected Statuses the event may currently have
+     * @param status New status
+     * @return 1 if the event was updated, 0 if it is missing or in another status
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = :status, e.updatedAt = CURRENT_TIMESTAMP where e.id = :id and e.status in :expected")
+    int updateStatusIfCurrentIn(@Param("id") Long id,
+                                @Param("expected") Collection<Event.EventStatus> expected,
+                                @Param("status") Event.EventStatus status);
+    
+    /**
+     * Claim an event for delivery (PROCESSING), only if its current status is one of the expected ones, its retry
+     * count is the queue entry's attempt and, when RETRY_PENDING, its retry is due. A stale copy of the entry (an
+     * older attempt, or one held while another copy was rescheduled) claims nothing.
+     * @param id Event ID
+     * @param expected Statuses the event may currently have
+     * @param attempt The queue entry's attempt number
+     * @param dueBy Latest next_attempt_at a RETRY_PENDING event may have
+     * @return 1 if the event was claimed, 0 if it is missing, in another status, at another attempt or not yet due
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = com.hookhub.api.model.Event.EventStatus.PROCESSING, e.updatedAt = CURRENT_TIMESTAMP "
+            + "where e.id = :id and e.status in :expected and coalesce(e.retryCount, 0) = :attempt "
+            + "and (e.status <> com.hookhub.api.model.Event.EventStatus.RETRY_PENDING "
+            + "or e.nextAttemptAt is null or e.nextAttemptAt <= :dueBy)")
+    int claimForDelivery(@Param("id") Long id,
+                         @Param("expected") Collection<Event.EventStatus> expected,
+                         @Param("attempt") int attempt,
+                         @Param("dueBy") LocalDateTime dueBy);
+    
+    /**
+     * Claim an event for delivery like claimForDelivery(), and lease it to a node
+     * @param id Event ID
+     * @param expected Statuses the event may currently have
+     * @param attempt The queue entry's attempt number
+     * @param dueBy Latest next_attempt_at a RETRY_PENDING event may have
+     * @param leaseOwner Node delivering the event
+     * @param leaseExpiresAt Until when other nodes must leave the event alone
+     * @return 1 if the event was claimed, 0 if it is missing, in another status, at another attempt or not yet due
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = com.hookhub.api.model.Event.EventStatus.PROCESSING, "
+            + "e.leaseOwner = :leaseOwner, e.leaseExpiresAt = :leaseExpiresAt, e.updatedAt = CURRENT_TIMESTAMP "
+            + "where e.id = :id and e.status in :expected and coalesce(e.retryCount, 0) = :attempt "
+            + "and (e.status <> com.hookhub.api.model.Event.EventStatus.RETRY_PENDING "
+            + "or e.nextAttemptAt is null or e.nextAttemptAt <= :dueBy)")
+    int claimForDeliveryLeased(@Param("id") Long id,
+                               @Param("expected") Collection<Event.EventStatus> expected,
+                               @Param("attempt") int attempt,
+                               @Param("dueBy") LocalDateTime dueBy,
+                               @Param("leaseOwner") String leaseOwner,
+                               @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Move an event to RETRY_PENDING with a due time and lease, only if its current status is one of the expected ones
+     * @param id Event ID
+     * @param expected Statuses the event may currently have
+     * @param nextAttemptAt When the event is due
+     * @param leaseExpiresAt Until when the due-time poller must leave the event alone
+     * @return 1 if the event was updated, 0 if it is missing or in another status
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.status = com.hookhub.api.model.Event.EventStatus.RETRY_PENDING, "
+            + "e.nextAttemptAt = :nextAttemptAt, e.leaseExpiresAt = :leaseExpiresAt, e.updatedAt = CURRENT_TIMESTAMP "
+            + "where e.id = :id and e.status in :expected")
+    int updateToRetryPendingIfCurrentIn(@Param("id") Long id,
+                                        @Param("expected") Collection<Event.EventStatus> expected,
+                                        @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                                        @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Move the due time and lease of a RETRY_PENDING event that a node holds in memory, only if it is still at the given retry count
+     * @param id Event ID
+     * @param retryCount The held entry's attempt number
+     * @param nextAttemptAt When the held entry is released
+     * @param leaseExpiresAt Until when the due-time poller must leave the event alone
+     * @return 1 if the event was updated, 0 if it is missing, in another status or at another attempt
+     */
+    @Modifying
+    @Transactional
+    @Query("update Event e set e.nextAttemptAt = :nextAttemptAt, e.leaseExpiresAt = :leaseExpiresAt, e.updatedAt = CURRENT_TIMESTAMP "
+            + "where e.id = :id and e.status = com.hookhub.api.model.Event.EventStatus.RETRY_PENDING "
+            + "and coalesce(e.retryCount, 0) = :retryCount")
+    int extendRetryHold(@Param("id") Long id,
+                        @Param("retryCount") int retryCount,
+                        @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                        @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Load one page of events in the given statuses, for keyset pagination by ID.
+     * Only the columns needed to queue an event are selected (no payload).
+     * @param statuses Statuses to include
+     * @param afterId Only events with a larger ID are returned (0 for the first page)
+     * @param updatedBefore Only events last updated before this time are returned
+     * @param pageable Page size (the page number must be 0)
+     * @return Events ordered by ID
+     */
+    @Query("select e.id as id, e.webhookId as webhookId, e.retryCount as retryCount, e.status as status, "
+            + "e.nextAttemptAt as nextAttemptAt, length(e.payload) as payloadLength from Event e "
+            + "where e.status in :statuses and e.id > :afterId and e.updatedAt < :updatedBefore order by e.id")
+    List<RecoverableEvent> findRecoverablePage(@Param("statuses") Collection<Event.EventStatus> statuses,
+                                               @Param("afterId") Long afterId,
+                                               @Param("updatedBefore") LocalDateTime updatedBefore,
+                                               Pageable pageable);
+    
+    /**
+     * Find the nearest older event with the same webhook and ordering key that still holds the event back.
+     * Events without an ordering key never have one. Served by idx_events_ordering, which only
+     * visits the key's undelivered events, not its delivered history.
+     * @param id Event ID
+     * @param statuses Statuses that hold back later events of the key (all but SUCCESS and FAILURE)
+     * @param pageable Page size (1 for the nearest predecessor)
+     * @return Predecessors, newest first
+     */
+    @Query("select p.id as id, p.status as status, p.nextAttemptAt as nextAttemptAt from Event p, Event e "
+            + "where e.id = :id and p.webhookId = e.webhookId and p.orderingKey = e.orderingKey "
+            + "and p.status in :statuses and p.id < e.id order by p.id desc")
+    List<OrderingPredecessor> findUndeliveredPredecessors(@Param("id") Long id,
+                                                          @Param("statuses") Collection<Event.EventStatus> statuses,
+                                                          Pageable pageable);
+    
+    /**
+     * Projection of an event that an ordered event waits for.
+     */
+    interface OrderingPredecessor {
+        Long getId();
+        Event.EventStatus getStatus();
+        LocalDateTime getNextAttemptAt();
+    }
+    
+    /**
+     * Projection of the event columns needed to queue an event again.
+     */
+    interface RecoverableEvent {
+        Long getId();
+        Long getWebhookId();
+        Integer getRetryCount();
+        Event.EventStatus getStatus();
+        LocalDateTime getNextAttemptAt();
+        Integer getPayloadLength();
+    }
 }
-
@@ -1,11 +1,17 @@
 package com.hookhub.api.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.hookhub.api.circuitbreaker.CircuitBreakerState;
 import com.hookhub.api.model.Webhook;
 
 @Repository
@@ -37,5 +43,43 @@ public interface WebhookRepository extends JpaRepository<Webhook, Long> {
      * @return true if webhook exists
      */
     boolean existsByUrl(String url);
+    
+    /**
+     * Write a webhook's circuit breaker state and add to its delivery counters, without loading it.
+     * Counters are incremented in the database, so concurrent writers never lose counts.
+     * @param id Webhook ID
+     * @param state Circuit breaker state
+     * @param consecutiveFailures Consecutive failures
+     * @param circuitOpenedAt When the circuit opened (null if closed)
+     * @param lastFailureTime Time of the last failure
+     * @param failureDelta Failures since the last write
+     * @param successDelta Successes since the last write
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Webhook w set w.circuitBreakerState = :state, w.consecutiveFailures = :consecutiveFailures, "
+            + "w.circuitOpenedAt = :circuitOpenedAt, w.lastFailureTime = :lastFailureTime, "
+            + "w.totalFailures = coalesce(w.totalFailures, 0) + :failureDelta, "
+            + "w.totalSuccesses = coalesce(w.totalSuccesses, 0) + :successDelta, "
+            + "w.updatedAt = CURRENT_TIMESTAMP where w.id = :id")
+    int updateDeliveryState(@Param("id") Long id,
+                            @Param("state") CircuitBreakerState state,
+                            @Param("consecutiveFailures") Integer consecutiveFailures,
+                            @Param("circuitOpenedAt") LocalDateTime circuitOpenedAt,
+                            @Param("lastFailureTime") LocalDateTime lastFailureTime,
+                            @Param("failureDelta") Long failureDelta,
+                            @Param("successDelta") Long successDelta);
+    
+    /**
+     * Pause a webhook until the given time, without loading it
+     * @param id Webhook ID
+     * @param pausedUntil End of the pause
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Webhook w set w.pausedUntil = :pausedUntil, w.updatedAt = CURRENT_TIMESTAMP where w.id = :id")
+    int updatePausedUntil(@Param("id") Long id, @Param("pausedUntil") LocalDateTime pausedUntil);
 }
 
@@ -0,0 +1,129 @@
+package com.hookhub.api.service;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Event;
+import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.QueueCapacity;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.repository.EventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves SPILLED events back into the queue once it has drained.
+ * 
+ * With the spill overflow policy, POST /events stores events that do not fit in
+ * the queue with status SPILLED instead of rejecting them. This component
+ * periodically checks the queue usage and, while it is below the resume
+ * threshold, claims the oldest spilled events (SPILLED to PENDING, conditional
+ * so concurrent replayers cannot double-queue) and enqueues them on the FRESH lane.
+ * Stopping below the threshold leaves headroom for new events so the queue
+ * does not flip between full and spilling.
+ */
+@Component
+public class SpilledEventReplayer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SpilledEventReplayer.class);
+    
+    /**
+     * How often the replayer checks for room in the queue
+     */
+    private static final long REPLAY_INTERVAL_MS = 1000;
+    
+    /**
+     * Fraction of the queue capacity below which spilled events are replayed
+     */
+    private static final double RESUME_THRESHOLD = 0.8;
+    
+    private final EventRepository eventRepository;
+    private final EventQueue eventQueue;
+    private final QueueCapacity queueCapacity;
+    
+    private ScheduledExecutorService scheduler;
+    
+    public SpilledEventReplayer(EventRepository eventRepository,
+                                EventQueue eventQueue,
+                                QueueCapacity queueCapacity) {
+        this.eventRepository = eventRepository;
+        this.eventQueue = eventQueue;
+        this.queueCapacity = queueCapacity;
+    }
+    
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "SpilledEventReplayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::replay, REPLAY_INTERVAL_MS, REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+    
+    /**
+     * Replays spilled events in batches until the queue reaches the resume threshold
+     * or no spilled events are left.
+     */
+    void replay() {
+        try {
+            int replayed = 0;
+            while (queueCapacity.isBelow(RESUME_THRESHOLD)) {
+                List<Event> batch = eventRepository.findTop100ByStatusOrderByIdAsc(Event.EventStatus.SPILLED);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int replayedBefore = replayed;
+                for (Event event : batch) {
+                    if (!queueCapacity.isBelow(RESUME_THRESHOLD)) {
+                        break;
+                    }
+                    if (replayEvent(event)) {
+                        replayed++;
+                    } else if (!queueCapacity.isBelow(1.0)) {
+                        break;
+                    }
+                }
+                if (replayed == replayedBefore) {
+                    // Nothing fitted (e.g. an event larger than the free bytes); wait for the next run
+                    break;
+                }
+            }
+            if (replayed > 0) {
+                logger.info("Replayed {} spilled events into the queue", replayed);
+            }
+        } catch (Exception e) {
+            // Keep the schedule alive; the next run retries
+            logger.error("Error replaying spilled events", e);
+        }
+    }
+    
+    private boolean replayEvent(Event event) {
+        int claimed = eventRepository.updateStatusIfCurrent(
+                event.getId(), Event.EventStatus.SPILLED, Event.EventStatus.PENDING);
+        if (claimed == 0) {
+            return false;
+        }
+        if (eventQueue.enqueue(QueuedEvent.of(event))) {
+            return true;
+        }
+        // Lost the room to concurrent producers; leave it spilled for the next run
+        eventRepository.updateStatusIfCurrent(
+                event.getId(), Event.EventStatus.PENDING, Event.EventStatus.SPILLED);
+        return false;
+    }
+}
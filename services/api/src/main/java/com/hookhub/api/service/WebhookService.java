@@ -9,6 +9,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -22,8 +23,14 @@ import com.hookhub.api.dto.WebhookResponse;
 import com.hookhub.api.model.Event;
 import com.hookhub.api.model.Webhook;
 import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.EventQueueConfig;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.PayloadCache;
+import com.hookhub.api.queue.QueueCapacity;
+import com.hookhub.api.queue.QueuedEvent;
 import com.hookhub.api.repository.EventRepository;
 import com.hookhub.api.repository.WebhookRepository;
+import com.hookhub.api.worker.RetryPolicyResolver;
 
 @Service
 @Transactional
@@ -34,16 +41,28 @@ public class WebhookService {
     private final WebhookRepository webhookRepository;
     private final EventRepository eventRepository;
     private final EventQueue eventQueue;
+    private final QueueCapacity queueCapacity;
+    private final PayloadCache payloadCache;
     private final ObjectMapper objectMapper;
+    private final RetryPolicyResolver retryPolicyResolver;
+    private final boolean spillOnOverflow;
 
     public WebhookService(WebhookRepository webhookRepository, 
                          EventRepository eventRepository,
                          EventQueue eventQueue,
-                         ObjectMapper objectMapper) {
+                         QueueCapacity queueCapacity,
+                         PayloadCache payloadCache,
+                         EventQueueConfig queueConfig,
+                         ObjectMapper objectMapper,
+                         RetryPolicyResolver retryPolicyResolver) {
         this.webhookRepository = webhookRepository;
         this.eventRepository = eventRepository;
         this.eventQueue = eventQueue;
+        this.queueCapacity = queueCapacity;
+        this.payloadCache = payloadCache;
         this.objectMapper = objectMapper;
+        this.retryPolicyResolver = retryPolicyResolver;
+        this.spillOnOverflow = "spill".equalsIgnoreCase(queueConfig.getCapacity().getOverflowPolicy());
     }
 
     public WebhookRegistrationResponse registerWebhook(WebhookRegistrationRequest request) {
@@ -63,10 +82,27 @@ public class WebhookService {
             }
         }
 
+        // Reject retry settings that do not form a valid policy (400 via IllegalArgumentException)
+        retryPolicyResolver.build(request.getRetryStrategy(), request.getRetryBaseDelayMs(),
+                request.getRetryMaxDelayMs(), request.getRetryMaxAttempts(), request.getRetrySchedule());
+        validateBatchSettings(request);
+
         // Create and save webhook
         Webhook webhook = new Webhook();
         webhook.setUrl(request.getUrl());
         webhook.setMetadata(metadataJson);
+        webhook.setRetryStrategy(request.getRetryStrategy());
+        webhook.setRetryBaseDelayMs(request.getRetryBaseDelayMs());
+        webhook.setRetryMaxDelayMs(request.getRetryMaxDelayMs());
+        webhook.setRetryMaxAttempts(request.getRetryMaxAttempts());
+        webhook.setRetrySchedule(request.getRetrySchedule());
+        webhook.setOrderedDelivery(Boolean.TRUE.equals(request.getOrderedDelivery()));
+        webhook.setCaptureResponseBody(Boolean.TRUE.equals(request.getCaptureResponseBody()));
+        webhook.setBatchMaxEvents(request.getBatchMaxEvents());
+        webhook.setBatchMaxBytes(request.getBatchMaxBytes());
+        webhook.setBatchLingerMs(request.getBatchLingerMs());
+        webhook.setPayloadCompression(request.getPayloadCompression());
+        webhook.setCompressionMinBytes(request.getCompressionMinBytes());
         webhook = webhookRepository.save(webhook);
 
         // Convert to response DTO
@@ -93,7 +129,15 @@ public class WebhookService {
                 .collect(Collectors.toList());
     }
 
+    // Not transactional: the insert must be committed before the event is queued,
+    // otherwise the worker can claim it before the row is visible
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventResponse createEvent(EventRequest request) {
+        // Cheap early rejection so an overloaded queue does not also cost a database insert
+        if (!spillOnOverflow && !queueCapacity.isBelow(1.0)) {
+            throw new QueueSaturatedException(queueCapacity.estimateRetryAfterSeconds());
+        }
+
         // Verify webhook exists
         webhookRepository.findById(request.getWebhookId())
                 .orElseThrow(() -> new ResourceNotFoundException("Webhook not found with id: " + request.getWebhookId()));
@@ -112,18 +156,32 @@ public class WebhookService {
         Event event = new Event();
         event.setWebhookId(request.getWebhookId());
         event.setPayload(payloadJson);
+        event.setOrderingKey(request.getOrderingKey());
         event.setStatus(Event.EventStatus.PENDING);
         event.setRetryCount(0);
         event = eventRepository.save(event);
 
-        // Enqueue the event for processing
-        eventQueue.enqueue(event);
+        // Enqueue the event for processing; a full queue either rejects or spills the event
+        payloadCache.put(event.getId(), payloadJson);
+        if (!eventQueue.enqueue(QueuedEvent.of(event))) {
+            payloadCache.evict(event.getId());
+            if (!spillOnOverflow) {
+                eventRepository.deleteById(event.getId());
+                throw new QueueSaturatedException(queueCapacity.estimateRetryAfterSeconds());
+            }
+            event.setStatus(Event.EventStatus.SPILLED);
+            event = eventRepository.save(event);
+            logger.warn("Queue full, event spilled to storage: id={}, webhookId={}", event.getId(), event.getWebhookId());
+            return convertToEventResponse(event);
+        }
         
         logger.info("Event created and enqueued: id={}, webhookId={}", event.getId(), event.getWebhookId());
 
         return convertToEventResponse(event);
     }
 
+    // Not transactional for the same reason as createEvent
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventResponse resumeEvent(Long eventId) {
         Event event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new ResourceNotFoundException("Event not found with id: " + eventId));
@@ -135,9 +193,28 @@ public class WebhookService {
         event.setStatus(Event.EventStatus.PENDING);
         event = eventRepository.save(event);
 
+        // Resumed events go on the recovery lane so they cannot crowd out fresh events
+        eventQueue.enqueue(QueuedEvent.of(event), Lane.RECOVERY);
+        logger.info("Event resumed and enqueued: id={}, webhookId={}", event.getId(), event.getWebhookId());
+
         return convertToEventResponse(event);
     }
 
+    private void validateBatchSettings(WebhookRegistrationRequest request) {
+        if (request.getBatchMaxEvents() != null && request.getBatchMaxEvents() < 1) {
+            throw new IllegalArgumentException("batchMaxEvents must be at least 1");
+        }
+        if (request.getBatchMaxBytes() != null && request.getBatchMaxBytes() < 1) {
+            throw new IllegalArgumentException("batchMaxBytes must be positive");
+        }
+        if (request.getBatchLingerMs() != null && request.getBatchLingerMs() < 0) {
+            throw new IllegalArgumentException("batchLingerMs must not be negative");
+        }
+        if (request.getCompressionMinBytes() != null && request.getCompressionMinBytes() < 0) {
+            throw new IllegalArgumentException("compressionMinBytes must not be negative");
+        }
+    }
+
     private List<ValidationSuggestion> validateWebhookUrl(String url) {
         List<ValidationSuggestion> suggestions = new ArrayList<>();
 
@@ -200,5 +277,19 @@ public class WebhookService {
             super(message);
         }
     }
+
+    // Thrown when the event queue is at capacity and the overflow policy is reject
+    public static class QueueSaturatedException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public QueueSaturatedException(int retryAfterSeconds) {
+            super("Event queue is at capacity, retry after " + retryAfterSeconds + " seconds");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
 }
 
@@ -0,0 +1,193 @@
+package com.hookhub.api.worker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one receiver that adapts with AIMD (additive increase, multiplicative decrease).
+ * 
+ * Each completed request is a sample:
+ * - Overload (429, 5xx, network error or timeout): the limit is multiplied by
+ *   backoffRatio, at most once per baseline round trip so one burst of failures
+ *   counts once
+ * - Otherwise, if the limit was actually in use: while recent latency is above
+ *   latencyTolerance times the baseline the limit is decreased the same way,
+ *   else it grows by 1/limit, i.e. by about one per limit's worth of successes
+ * 
+ * Latency is compared as averages, not per response: recent latency is an
+ * exponentially weighted average over about the last SHORT_SAMPLES responses, the
+ * baseline one over about the last LONG_SAMPLES. A receiver's normal spread (a
+ * slow response now and then) moves neither much, while queueing at the receiver
+ * raises the recent average well above the baseline before the baseline follows.
+ * Latency only counts while the limit is in use, since an idle limit cannot be the
+ * cause. The limit stays between minLimit and maxLimit; a fixed limit is an
+ * instance with minLimit == maxLimit.
+ */
+final class AdaptiveConcurrencyLimit {
+    
+    /**
+     * How a completed request counts towards the limit
+     */
+    enum Outcome {
+        SUCCESS,
+        OVERLOAD,
+        IGNORED
+    }
+    
+    /**
+     * Responses the recent latency average roughly spans
+     */
+    private static final int SHORT_SAMPLES = 10;
+    
+    /**
+     * Responses the baseline latency average roughly spans
+     */
+    private static final int LONG_SAMPLES = 100;
+    
+    /**
+     * Responses seen before latency may decrease the limit
+     */
+    private static final int WARMUP_SAMPLES = SHORT_SAMPLES * 2;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    
+    private double limit;
+    private int inFlight = 0;
+    private double recentRttNanos = 0;
+    private double baselineRttNanos = 0;
+    private long samples = 0;
+    private long lastDecreaseNanos = System.nanoTime();
+    
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = Math.min(1, Math.max(0.1, backoffRatio));
+        this.latencyTolerance = Math.max(1, latencyTolerance);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+    
+    /**
+     * Waits up to the given time for a slot under the current limit.
+     * 
+     * @param timeoutMs Longest time to wait
+     * @return true if a slot was taken, false if none became free in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = slotFreed.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns a slot and adjusts the limit from the request's outcome.
+     * 
+     * @param rttNanos How long the request took
+     * @param outcome How the request counts towards the limit
+     */
+    void release(long rttNanos, Outcome outcome) {
+        release(rttNanos, outcome, System.nanoTime());
+    }
+    
+    /**
+     * Returns a slot and adjusts the limit, as of the given time.
+     * 
+     * @param rttNanos How long the request took
+     * @param outcome How the request counts towards the limit
+     * @param now System.nanoTime() at completion
+     */
+    void release(long rttNanos, Outcome outcome, long now) {
+        lock.lock();
+        try {
+            // inFlight before this request completed: was the limit actually in use?
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+            
+            if (outcome == Outcome.OVERLOAD) {
+                decrease(now);
+            } else if (outcome == Outcome.SUCCESS) {
+                updateLatency(rttNanos);
+                if (saturated) {
+                    if (samples >= WARMUP_SAMPLES && recentRttNanos > baselineRttNanos * latencyTolerance) {
+                        decrease(now);
+                    } else {
+                        limit = Math.min(maxLimit, limit + 1 / limit);
+                    }
+                }
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the current limit.
+     * 
+     * @return Requests that may be in flight at once
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of requests in flight.
+     * 
+     * @return Slots currently taken
+     */
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Folds a response into the recent and baseline averages. The baseline follows
+     * slowly, so a receiver that got slower for good is learned within a few hundred
+     * responses.
+     */
+    private void updateLatency(long rttNanos) {
+        if (samples++ == 0) {
+            recentRttNanos = rttNanos;
+            baselineRttNanos = rttNanos;
+            return;
+        }
+        recentRttNanos += (rttNanos - recentRttNanos) / SHORT_SAMPLES;
+        baselineRttNanos += (rttNanos - baselineRttNanos) / LONG_SAMPLES;
+    }
+    
+    private void decrease(long now) {
+        if (now - lastDecreaseNanos < baselineRttNanos) {
+            // Already backed off within this round trip
+            return;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastDecreaseNanos = now;
+    }
+}
@@ -0,0 +1,72 @@
+package com.hookhub.api.worker;
+
+/**
+ * Base class for retry policies computing a backoff from the attempt number.
+ * 
+ * A Retry-After header from the receiver acts as a lower bound: the retry waits
+ * at least that long, or longer if the backoff says so.
+ */
+public abstract class BackoffRetryPolicy implements RetryPolicy {
+    
+    protected final long baseDelayMs;
+    protected final long maxDelayMs;
+    private final int maxRetries;
+    
+    /**
+     * @param baseDelayMs Delay the backoff starts from
+     * @param maxDelayMs Maximum delay in milliseconds (caps the backoff)
+     * @param maxRetries Maximum number of retry attempts
+     */
+    protected BackoffRetryPolicy(long baseDelayMs, long maxDelayMs, int maxRetries) {
+        if (baseDelayMs < 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Retry delays must satisfy 0 <= baseDelayMs <= maxDelayMs");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries cannot be negative");
+        }
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRetries = maxRetries;
+    }
+    
+    /**
+     * Calculates the backoff for an attempt, ignoring Retry-After.
+     * 
+     * @param retryCount Current retry attempt number (0-based)
+     * @return Delay in milliseconds, at most maxDelayMs
+     */
+    protected abstract long backoff(int retryCount);
+    
+    @Override
+    public long calculateDelay(int retryCount, Integer retryAfterSeconds) {
+        long delay = backoff(retryCount);
+        if (retryAfterSeconds != null && retryAfterSeconds > 0) {
+            delay = Math.max(delay, retryAfterSeconds * 1000L);
+        }
+        return delay;
+    }
+    
+    @Override
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+    
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+    
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+    
+    /**
+     * Returns baseDelayMs * factor^retryCount, capped at maxDelayMs without overflowing.
+     */
+    protected long cappedExponential(int retryCount, int factor) {
+        long delay = Math.max(1, baseDelayMs);
+        for (int i = 0; i < retryCount && delay < maxDelayMs; i++) {
+            delay *= factor;
+        }
+        return Math.min(delay, maxDelayMs);
+    }
+}
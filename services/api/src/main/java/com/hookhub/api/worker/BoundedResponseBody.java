@@ -0,0 +1,125 @@
+package com.hookhub.api.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Reads receiver response bodies up to a size cap, so a large error page costs at
+ * most the cap in heap however often it is retried.
+ * 
+ * The first maxBytes bytes are kept; the rest is read and dropped as it streams
+ * in, never buffered, which leaves the connection reusable. Bodies are decoded
+ * with the charset of the Content-Type (UTF-8 if none), so a body cut at the cap
+ * may end in a replacement character.
+ */
+final class BoundedResponseBody {
+    
+    private BoundedResponseBody() {
+    }
+    
+    /**
+     * Reads at most maxBytes from a blocking response stream and discards the rest.
+     * 
+     * @param body The response body stream
+     * @param maxBytes Most bytes kept
+     * @param contentType The Content-Type header, or null
+     * @return The kept part of the body
+     * @throws IOException if reading fails
+     */
+    static String read(InputStream body, int maxBytes, String contentType) throws IOException {
+        byte[] kept = body.readNBytes(Math.max(0, maxBytes));
+        try {
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // The kept part is all that is needed; the connection is closed instead of reused
+        }
+        return new String(kept, charsetOf(contentType));
+    }
+    
+    /**
+     * Returns a body subscriber for the JDK HttpClient that keeps at most maxBytes
+     * and discards the rest.
+     * 
+     * @param maxBytes Most bytes kept
+     * @param contentType The Content-Type header, or null
+     * @return The subscriber
+     */
+    static HttpResponse.BodySubscriber<String> subscriber(int maxBytes, String contentType) {
+        return new CappedSubscriber(Math.max(0, maxBytes), charsetOf(contentType));
+    }
+    
+    /**
+     * Returns the charset parameter of a Content-Type, UTF-8 if missing or unknown.
+     */
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (index >= 0) {
+                String name = contentType.substring(index + "charset=".length()).split(";", 2)[0].trim().replace("\"", "");
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException e) {
+                    // Fall through to UTF-8
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+    
+    private static final class CappedSubscriber implements HttpResponse.BodySubscriber<String> {
+        
+        private final int maxBytes;
+        private final Charset charset;
+        private final ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        
+        CappedSubscriber(int maxBytes, Charset charset) {
+            this.maxBytes = maxBytes;
+            this.charset = charset;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                int take = Math.min(item.remaining(), maxBytes - kept.size());
+                if (take > 0) {
+                    byte[] bytes = new byte[take];
+                    item.get(bytes);
+                    kept.write(bytes, 0, take);
+                }
+                // Anything beyond the cap is dropped with the buffer
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            body.complete(kept.toString(charset));
+        }
+        
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+    }
+}
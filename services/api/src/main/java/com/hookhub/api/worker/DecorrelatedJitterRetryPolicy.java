@@ -0,0 +1,24 @@
+package com.hookhub.api.worker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decorrelated jitter: each delay is uniformly random between baseDelay and three
+ * times the previous one, capped at maxDelay. Delays grow quickly but stay
+ * spread out, and never drop below baseDelay.
+ * 
+ * The previous delay is not stored with the event, so its upper bound is
+ * reconstructed from the attempt number as baseDelay * 3^retryCount.
+ */
+public class DecorrelatedJitterRetryPolicy extends BackoffRetryPolicy {
+    
+    public DecorrelatedJitterRetryPolicy(long baseDelayMs, long maxDelayMs, int maxRetries) {
+        super(baseDelayMs, maxDelayMs, maxRetries);
+    }
+    
+    @Override
+    protected long backoff(int retryCount) {
+        long ceiling = cappedExponential(retryCount, 3);
+        return baseDelayMs + ThreadLocalRandom.current().nextLong(Math.max(0, ceiling - baseDelayMs) + 1);
+    }
+}
@@ -0,0 +1,277 @@
+package com.hookhub.api.worker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Webhook;
+import com.hookhub.api.queue.QueuedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Groups claimed events of batched webhooks into batches that are delivered as one request.
+ * 
+ * A webhook is batched when its batchMaxEvents is greater than 1. DeliveryWorker
+ * hands each claimed and admitted event of such a webhook to add() instead of
+ * delivering it. Events collect in the webhook's open batch until one of its
+ * limits is reached:
+ * - batchMaxEvents events (at most MAX_BATCH_EVENTS)
+ * - batchMaxBytes payload bytes (default hookhub.delivery.batch-max-bytes); an
+ *   event that would overflow the batch starts the next one, and a single event
+ *   larger than the limit is sent alone
+ * - batchLingerMs after its first event (default hookhub.delivery.batch-linger-ms,
+ *   at most MAX_LINGER_MS), checked by a single linger thread
+ * 
+ * A batch full by count or bytes is returned by add() to the caller; one whose
+ * linger time ran out is passed to the flush handler DeliveryWorker registers.
+ * Events in open batches are claimed (PROCESSING); at shutdown closeAll() returns
+ * the open batches so the drain can still send them.
+ */
+@Component
+public class DeliveryBatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryBatcher.class);
+    
+    /**
+     * Most events in one batch, whatever the webhook asks for
+     */
+    static final int MAX_BATCH_EVENTS = 1000;
+    
+    /**
+     * Longest linger time, whatever the webhook asks for
+     */
+    static final long MAX_LINGER_MS = 10000;
+    
+    /**
+     * How often the linger thread looks for batches whose linger time ran out
+     */
+    private static final long LINGER_CHECK_INTERVAL_MS = 10;
+    
+    /**
+     * Events of one webhook delivered together, in the order they were added
+     * 
+     * @param webhook The webhook, as loaded for the most recent event
+     * @param events The claimed events
+     */
+    public record Batch(Webhook webhook, List<QueuedEvent> events) {
+    }
+    
+    /**
+     * Open batch of one webhook, guarded by its own monitor
+     */
+    private static final class OpenBatch {
+        
+        private final long flushAt;
+        private final List<QueuedEvent> events = new ArrayList<>();
+        private Webhook webhook;
+        private long bytes = 0;
+        private boolean closed = false;
+        
+        OpenBatch(long flushAt) {
+            this.flushAt = flushAt;
+        }
+        
+        Batch close() {
+            closed = true;
+            return new Batch(webhook, List.copyOf(events));
+        }
+    }
+    
+    private final DeliveryExecutorConfig config;
+    
+    private final ConcurrentHashMap<Long, OpenBatch> openBatches = new ConcurrentHashMap<>();
+    
+    private volatile Consumer<Batch> flushHandler;
+    
+    /**
+     * Set by closeAll(): from then on every event is returned as a batch of its own
+     */
+    private volatile boolean closing = false;
+    
+    private volatile boolean running = false;
+    private Thread lingerThread;
+    
+    public DeliveryBatcher(DeliveryExecutorConfig config) {
+        this.config = config;
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        lingerThread = new Thread(this::lingerLoop, "DeliveryBatcher-Linger");
+        lingerThread.setDaemon(true);
+        lingerThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopLingering();
+        int open = size();
+        if (open > 0) {
+            logger.info("DeliveryBatcher stopped with {} batched events; they are recovered from the database at startup", open);
+        }
+    }
+    
+    /**
+     * Registers the handler that delivers batches whose linger time ran out.
+     * 
+     * @param handler Called on the linger thread with each such batch
+     */
+    public void setFlushHandler(Consumer<Batch> handler) {
+        this.flushHandler = handler;
+    }
+    
+    /**
+     * Returns whether a webhook's events are delivered in batches.
+     * 
+     * @param webhook The webhook
+     * @return true if batchMaxEvents is greater than 1
+     */
+    public boolean isBatched(Webhook webhook) {
+        return webhook.getBatchMaxEvents() != null && webhook.getBatchMaxEvents() > 1;
+    }
+    
+    /**
+     * Adds a claimed event to its webhook's open batch.
+     * 
+     * @param webhook The event's webhook
+     * @param event The claimed entry
+     * @return Batches that reached a limit and are to be delivered now (usually none)
+     */
+    public List<Batch> add(Webhook webhook, QueuedEvent event) {
+        if (closing) {
+            return List.of(new Batch(webhook, List.of(event)));
+        }
+        int maxEvents = Math.min(webhook.getBatchMaxEvents(), MAX_BATCH_EVENTS);
+        long maxBytes = webhook.getBatchMaxBytes() != null ? webhook.getBatchMaxBytes() : config.getBatchMaxBytes();
+        long lingerMs = Math.min(webhook.getBatchLingerMs() != null ? webhook.getBatchLingerMs() : config.getBatchLingerMs(),
+                MAX_LINGER_MS);
+        
+        List<Batch> ready = new ArrayList<>(2);
+        while (true) {
+            OpenBatch batch = openBatches.computeIfAbsent(webhook.getId(),
+                    id -> new OpenBatch(System.currentTimeMillis() + Math.max(0, lingerMs)));
+            synchronized (batch) {
+                if (batch.closed) {
+                    // Lost a race with the linger thread or a full batch; start a new one
+                    continue;
+                }
+                if (!batch.events.isEmpty() && batch.bytes + event.getPayloadBytes() > maxBytes) {
+                    // The event would overflow the batch: send what is there, the event opens the next one
+                    openBatches.remove(webhook.getId(), batch);
+                    ready.add(batch.close());
+                    continue;
+                }
+                batch.webhook = webhook;
+                batch.events.add(event);
+                batch.bytes += event.getPayloadBytes();
+                if (batch.events.size() >= maxEvents || batch.bytes >= maxBytes) {
+                    openBatches.remove(webhook.getId(), batch);
+                    ready.add(batch.close());
+                }
+                return ready;
+            }
+        }
+    }
+    
+    /**
+     * Stops lingering and closes every open batch, for the shutdown drain. Events
+     * added afterwards are returned by add() as batches of one.
+     * 
+     * @return The batches that were open
+     */
+    public List<Batch> closeAll() {
+        closing = true;
+        stopLingering();
+        List<Batch> closed = new ArrayList<>();
+        for (Long webhookId : openBatches.keySet()) {
+            OpenBatch batch = openBatches.remove(webhookId);
+            if (batch == null) {
+                continue;
+            }
+            synchronized (batch) {
+                if (!batch.closed && !batch.events.isEmpty()) {
+                    closed.add(batch.close());
+                }
+            }
+        }
+        return closed;
+    }
+    
+    /**
+     * Returns the number of events in open batches.
+     * 
+     * @return Batched events across all webhooks
+     */
+    public int size() {
+        int total = 0;
+        for (OpenBatch batch : openBatches.values()) {
+            synchronized (batch) {
+                total += batch.events.size();
+            }
+        }
+        return total;
+    }
+    
+    private void stopLingering() {
+        running = false;
+        if (lingerThread != null) {
+            lingerThread.interrupt();
+            try {
+                lingerThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void lingerLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(LINGER_CHECK_INTERVAL_MS);
+                flushExpired(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in DeliveryBatcher linger loop", e);
+            }
+        }
+    }
+    
+    /**
+     * Hands every batch whose linger time ran out to the flush handler.
+     */
+    private void flushExpired(long now) {
+        Consumer<Batch> handler = flushHandler;
+        if (handler == null) {
+            return;
+        }
+        Iterator<Map.Entry<Long, OpenBatch>> iterator = openBatches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, OpenBatch> entry = iterator.next();
+            OpenBatch batch = entry.getValue();
+            Batch expired;
+            synchronized (batch) {
+                if (batch.flushAt > now || batch.closed) {
+                    continue;
+                }
+                expired = batch.close();
+            }
+            openBatches.remove(entry.getKey(), batch);
+            if (!expired.events().isEmpty()) {
+                handler.accept(expired);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hookhub.api.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for compressing webhook request bodies.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.delivery.compression.min-bytes=1024
+ * hookhub.delivery.compression.gzip-level=6
+ * hookhub.delivery.compression.zstd-level=3
+ * hookhub.delivery.compression.cache-max-bytes=16777216
+ * hookhub.delivery.compression.refusal-recheck-ms=3600000
+ * 
+ * With these values a webhook that chose GZIP or ZSTD gets bodies of 1 KB and more
+ * compressed (unless it sets compressionMinBytes), up to 16 MB of compressed
+ * payloads are kept for retries, and a receiver that answers a compressed request
+ * with 415 gets plain JSON for an hour before compression is tried again.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.delivery.compression")
+public class DeliveryCompressionConfig {
+    
+    /**
+     * Bodies smaller than this are sent uncompressed, for webhooks without compressionMinBytes
+     */
+    private int minBytes = 1024;
+    
+    private int gzipLevel = 6;
+    
+    private int zstdLevel = 3;
+    
+    /**
+     * Heap for compressed payloads kept per event so retries do not compress again (0 = no cache)
+     */
+    private long cacheMaxBytes = 16777216;
+    
+    /**
+     * How long a webhook whose receiver refused a compressed body (415) gets plain bodies
+     */
+    private long refusalRecheckMs = 3600000;
+    
+    public int getMinBytes() {
+        return minBytes;
+    }
+    
+    public void setMinBytes(int minBytes) {
+        this.minBytes = minBytes;
+    }
+    
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+    
+    public void setGzipLevel(int gzipLevel) {
+        this.gzipLevel = gzipLevel;
+    }
+    
+    public int getZstdLevel() {
+        return zstdLevel;
+    }
+    
+    public void setZstdLevel(int zstdLevel) {
+        this.zstdLevel = zstdLevel;
+    }
+    
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+    
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+    
+    public long getRefusalRecheckMs() {
+        return refusalRecheckMs;
+    }
+    
+    public void setRefusalRecheckMs(long refusalRecheckMs) {
+        this.refusalRecheckMs = refusalRecheckMs;
+    }
+}
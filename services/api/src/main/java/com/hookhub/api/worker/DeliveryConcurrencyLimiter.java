@@ -0,0 +1,138 @@
+package com.hookhub.api.worker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Webhook;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Limits how many delivery attempts are in flight, on the node and per receiving host.
+ * 
+ * With virtual threads the executor no longer bounds concurrency, so two limits do:
+ * - Global (hookhub.delivery.max-in-flight): taken by the dispatcher before it hands
+ *   an event to the executor, so a saturated node stops dequeuing instead of
+ *   piling up tasks
+ * - Per host (keyed by host and port, see HostKey): taken right before the HTTP
+ *   request, so one receiver cannot take every connection
+ * 
+ * Per-host limits adapt to each receiver (AdaptiveConcurrencyLimit): they grow
+ * while responses stay fast and healthy and shrink on 429, 5xx, network errors or
+ * rising latency, between min-limit-per-host and max-in-flight-per-host, so a
+ * struggling receiver gets fewer requests before enough of them fail to open its
+ * circuit. With hookhub.delivery.adaptive-limit=false every host gets
+ * max-in-flight-per-host. The current limit and in-flight count of every host are
+ * published as hookhub.delivery.host.limit and hookhub.delivery.host.in.flight
+ * with a host tag.
+ * 
+ * Waiting for a host slot is bounded; DeliveryWorker puts the event back in the
+ * queue when it times out, so a slow host does not hold global slots for long.
+ */
+@Component
+public class DeliveryConcurrencyLimiter {
+    
+    /**
+     * A per-host slot taken by tryAcquireHost(); pass it back to release()
+     */
+    public static final class HostPermit {
+        
+        private final AdaptiveConcurrencyLimit limit;
+        private final long startNanos;
+        
+        private HostPermit(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+            this.startNanos = System.nanoTime();
+        }
+    }
+    
+    private final DeliveryExecutorConfig config;
+    private final MeterRegistry meterRegistry;
+    
+    private final Semaphore inFlight;
+    
+    /**
+     * Per-host limits, created on first use
+     */
+    private final ConcurrentHashMap<String, AdaptiveConcurrencyLimit> hostLimits = new ConcurrentHashMap<>();
+    
+    public DeliveryConcurrencyLimiter(DeliveryExecutorConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.inFlight = new Semaphore(Math.max(1, config.getMaxInFlight()));
+    }
+    
+    /**
+     * Waits for a global in-flight slot.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquireInFlight() throws InterruptedException {
+        inFlight.acquire();
+    }
+    
+    /**
+     * Returns a global in-flight slot taken with acquireInFlight().
+     */
+    public void releaseInFlight() {
+        inFlight.release();
+    }
+    
+    /**
+     * Waits up to the given time for a slot under the limit of the webhook's host.
+     * 
+     * @param webhook The webhook about to be delivered to
+     * @param timeoutMs Longest time to wait
+     * @return The permit to pass to release(), or null if no slot became free in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public HostPermit tryAcquireHost(Webhook webhook, long timeoutMs) throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = hostLimits.computeIfAbsent(HostKey.of(webhook), this::createLimit);
+        return limit.tryAcquire(timeoutMs) ? new HostPermit(limit) : null;
+    }
+    
+    /**
+     * Returns a host slot and feeds the delivery's outcome into the host's limit.
+     * 
+     * @param permit The permit returned by tryAcquireHost()
+     * @param result The delivery result, or null if the attempt did not complete
+     */
+    public void release(HostPermit permit, WebhookDeliveryClient.DeliveryResult result) {
+        permit.limit.release(System.nanoTime() - permit.startNanos, outcomeOf(result));
+    }
+    
+    private AdaptiveConcurrencyLimit createLimit(String hostKey) {
+        int max = Math.max(1, config.getMaxInFlightPerHost());
+        AdaptiveConcurrencyLimit limit = config.isAdaptiveLimit()
+                ? new AdaptiveConcurrencyLimit(config.getInitialLimitPerHost(), config.getMinLimitPerHost(), max,
+                        config.getLimitBackoffRatio(), config.getLatencyTolerance())
+                : new AdaptiveConcurrencyLimit(max, max, max, 1, 1);
+        Gauge.builder("hookhub.delivery.host.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("host", hostKey)
+                .description("Concurrent deliveries currently allowed to the host")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.delivery.host.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("host", hostKey)
+                .description("Deliveries in flight to the host")
+                .register(meterRegistry);
+        return limit;
+    }
+    
+    /**
+     * 429, 5xx and network errors (status 0) signal an overloaded receiver; other
+     * responses are latency samples.
+     */
+    private static AdaptiveConcurrencyLimit.Outcome outcomeOf(WebhookDeliveryClient.DeliveryResult result) {
+        if (result == null) {
+            return AdaptiveConcurrencyLimit.Outcome.IGNORED;
+        }
+        int status = result.getStatusCode();
+        if (!result.isSuccess() && (status == 429 || status >= 500 || status == 0)) {
+            return AdaptiveConcurrencyLimit.Outcome.OVERLOAD;
+        }
+        return AdaptiveConcurrencyLimit.Outcome.SUCCESS;
+    }
+}
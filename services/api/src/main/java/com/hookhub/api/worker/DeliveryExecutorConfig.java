@@ -0,0 +1,235 @@
+package com.hookhub.api.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for how DeliveryWorker runs delivery attempts.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.delivery.mode=VIRTUAL
+ * hookhub.delivery.platform-threads=5
+ * hookhub.delivery.max-in-flight=2000
+ * hookhub.delivery.max-in-flight-per-host=100
+ * hookhub.delivery.adaptive-limit=true
+ * hookhub.delivery.initial-limit-per-host=10
+ * hookhub.delivery.min-limit-per-host=1
+ * hookhub.delivery.limit-backoff-ratio=0.9
+ * hookhub.delivery.latency-tolerance=2.0
+ * hookhub.delivery.state-flush-interval-ms=1000
+ * hookhub.delivery.drain-timeout-ms=20000
+ * hookhub.delivery.handoff-spread-ms=30000
+ * hookhub.delivery.batch-max-bytes=1048576
+ * hookhub.delivery.batch-linger-ms=200
+ * 
+ * The mode defaults to PLATFORM, so VIRTUAL (like ASYNC) is opt-in. With these
+ * values every attempt runs on its own virtual thread and at most 2000 attempts
+ * are in flight on the node. Each host starts at 10 concurrent attempts,
+ * grows towards 100 while it answers quickly, and drops by 10% (down to 1) on
+ * 429/5xx/network errors or when latency exceeds twice its usual value. Circuit
+ * and health state changed by deliveries is written to the webhook rows every second.
+ * At shutdown, attempts in flight get 20 seconds to finish; whatever is left is
+ * handed off to the database, due over the following 30 seconds. Webhooks in batch
+ * mode that set no limits of their own send at most 1 MB of payloads per request and
+ * wait at most 200 ms for a batch to fill.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.delivery")
+public class DeliveryExecutorConfig {
+    
+    /**
+     * Threads that delivery attempts run on
+     */
+    public enum Mode {
+        /**
+         * A fixed pool of platform-threads threads
+         */
+        PLATFORM,
+        
+        /**
+         * One virtual thread per attempt; only the semaphores limit concurrency
+         */
+        VIRTUAL,
+        
+        /**
+         * platform-threads threads claim events and handle results; the HTTP exchange
+         * runs on the non-blocking JDK HttpClient (HTTP/2 where supported) and holds
+         * no thread while waiting for the receiver
+         */
+        ASYNC
+    }
+    
+    private Mode mode = Mode.PLATFORM;
+    
+    /**
+     * Pool size in PLATFORM and ASYNC mode
+     */
+    private int platformThreads = 5;
+    
+    /**
+     * Attempts in flight on this node across all hosts
+     */
+    private int maxInFlight = 2000;
+    
+    /**
+     * Attempts in flight against one host and port (the upper bound of an adaptive limit)
+     */
+    private int maxInFlightPerHost = 100;
+    
+    /**
+     * Adapt per-host limits to each receiver; false pins them at maxInFlightPerHost
+     */
+    private boolean adaptiveLimit = true;
+    
+    private int initialLimitPerHost = 10;
+    
+    private int minLimitPerHost = 1;
+    
+    /**
+     * Factor applied to a host's limit when it shows overload
+     */
+    private double limitBackoffRatio = 0.9;
+    
+    /**
+     * Recent average latency above this multiple of a host's long-run average counts as overload
+     */
+    private double latencyTolerance = 2.0;
+    
+    /**
+     * How often WebhookActors writes changed circuit and health state to the database
+     */
+    private long stateFlushIntervalMs = 1000;
+    
+    /**
+     * How long the shutdown drain waits for attempts in flight before cancelling them
+     */
+    private long drainTimeoutMs = 20000;
+    
+    /**
+     * Window over which events handed off at shutdown become due, so restarts cause no redelivery burst
+     */
+    private long handoffSpreadMs = 30000;
+    
+    /**
+     * Payload bytes per batch for batched webhooks without batchMaxBytes
+     */
+    private int batchMaxBytes = 1048576;
+    
+    /**
+     * Longest wait for a batch to fill, for batched webhooks without batchLingerMs
+     */
+    private long batchLingerMs = 200;
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+    
+    public int getPlatformThreads() {
+        return platformThreads;
+    }
+    
+    public void setPlatformThreads(int platformThreads) {
+        this.platformThreads = platformThreads;
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+    
+    public int getMaxInFlightPerHost() {
+        return maxInFlightPerHost;
+    }
+    
+    public void setMaxInFlightPerHost(int maxInFlightPerHost) {
+        this.maxInFlightPerHost = maxInFlightPerHost;
+    }
+    
+    public boolean isAdaptiveLimit() {
+        return adaptiveLimit;
+    }
+    
+    public void setAdaptiveLimit(boolean adaptiveLimit) {
+        this.adaptiveLimit = adaptiveLimit;
+    }
+    
+    public int getInitialLimitPerHost() {
+        return initialLimitPerHost;
+    }
+    
+    public void setInitialLimitPerHost(int initialLimitPerHost) {
+        this.initialLimitPerHost = initialLimitPerHost;
+    }
+    
+    public int getMinLimitPerHost() {
+        return minLimitPerHost;
+    }
+    
+    public void setMinLimitPerHost(int minLimitPerHost) {
+        this.minLimitPerHost = minLimitPerHost;
+    }
+    
+    public double getLimitBackoffRatio() {
+        return limitBackoffRatio;
+    }
+    
+    public void setLimitBackoffRatio(double limitBackoffRatio) {
+        this.limitBackoffRatio = limitBackoffRatio;
+    }
+    
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+    
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+    
+    public long getStateFlushIntervalMs() {
+        return stateFlushIntervalMs;
+    }
+    
+    public void setStateFlushIntervalMs(long stateFlushIntervalMs) {
+        this.stateFlushIntervalMs = stateFlushIntervalMs;
+    }
+    
+    public long getDrainTimeoutMs() {
+        return drainTimeoutMs;
+    }
+    
+    public void setDrainTimeoutMs(long drainTimeoutMs) {
+        this.drainTimeoutMs = drainTimeoutMs;
+    }
+    
+    public long getHandoffSpreadMs() {
+        return handoffSpreadMs;
+    }
+    
+    public void setHandoffSpreadMs(long handoffSpreadMs) {
+        this.handoffSpreadMs = handoffSpreadMs;
+    }
+    
+    public int getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+    
+    public void setBatchMaxBytes(int batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+    
+    public long getBatchLingerMs() {
+        return batchLingerMs;
+    }
+    
+    public void setBatchLingerMs(long batchLingerMs) {
+        this.batchLingerMs = batchLingerMs;
+    }
+}
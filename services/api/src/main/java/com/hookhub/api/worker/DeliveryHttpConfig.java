@@ -0,0 +1,175 @@
+package com.hookhub.api.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the HTTP transport used to deliver webhooks.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.delivery.http.connect-timeout-ms=5000
+ * hookhub.delivery.http.read-timeout-ms=10000
+ * hookhub.delivery.http.pool-acquire-timeout-ms=5000
+ * hookhub.delivery.http.keep-alive-ms=30000
+ * hookhub.delivery.http.idle-timeout-ms=30000
+ * hookhub.delivery.http.validate-after-inactivity-ms=2000
+ * hookhub.delivery.http.connection-ttl-ms=300000
+ * hookhub.delivery.http.tls-session-cache-size=20000
+ * hookhub.delivery.http.tls-session-timeout-seconds=3600
+ * hookhub.delivery.http.async-client-threads=4
+ * hookhub.delivery.http.max-response-bytes=8192
+ * 
+ * With these values a connection to a receiver is reused for up to 30 seconds
+ * after its last response (less if the receiver's Keep-Alive header says so),
+ * closed after 30 idle seconds or 5 minutes of age, and a new connection to a
+ * host seen in the last hour resumes its TLS session instead of doing a full
+ * handshake. Pool sizes follow hookhub.delivery.max-in-flight and
+ * max-in-flight-per-host. In ASYNC delivery mode four threads complete the
+ * exchanges of the non-blocking HTTP/2 client. Of a failed delivery's response
+ * body only the first 8 KB are kept.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.delivery.http")
+public class DeliveryHttpConfig {
+    
+    private long connectTimeoutMs = 5000;
+    
+    /**
+     * Longest wait for response data (socket timeout)
+     */
+    private long readTimeoutMs = 10000;
+    
+    /**
+     * Longest wait for a pooled connection before the attempt fails as a network error
+     */
+    private long poolAcquireTimeoutMs = 5000;
+    
+    /**
+     * How long an idle connection may be reused when the receiver sends no Keep-Alive timeout
+     */
+    private long keepAliveMs = 30000;
+    
+    /**
+     * Connections idle for longer are closed by the maintenance thread
+     */
+    private long idleTimeoutMs = 30000;
+    
+    /**
+     * Connections idle for longer are checked before reuse, to catch ones the receiver closed
+     */
+    private long validateAfterInactivityMs = 2000;
+    
+    /**
+     * Maximum age of a connection, so DNS changes are picked up (0 = unlimited)
+     */
+    private long connectionTtlMs = 300000;
+    
+    /**
+     * TLS sessions remembered for resumption (0 = unlimited)
+     */
+    private int tlsSessionCacheSize = 20000;
+    
+    /**
+     * How long a TLS session can be resumed
+     */
+    private int tlsSessionTimeoutSeconds = 3600;
+    
+    /**
+     * Threads of the non-blocking client in ASYNC delivery mode
+     */
+    private int asyncClientThreads = 4;
+    
+    /**
+     * Most bytes of a response body kept for diagnostics; the rest is discarded unread into memory
+     */
+    private int maxResponseBytes = 8192;
+    
+    public long getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+    
+    public void setConnectTimeoutMs(long connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+    
+    public long getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+    
+    public void setReadTimeoutMs(long readTimeoutMs) {
+        this.readTimeoutMs = readTimeoutMs;
+    }
+    
+    public long getPoolAcquireTimeoutMs() {
+        return poolAcquireTimeoutMs;
+    }
+    
+    public void setPoolAcquireTimeoutMs(long poolAcquireTimeoutMs) {
+        this.poolAcquireTimeoutMs = poolAcquireTimeoutMs;
+    }
+    
+    public long getKeepAliveMs() {
+        return keepAliveMs;
+    }
+    
+    public void setKeepAliveMs(long keepAliveMs) {
+        this.keepAliveMs = keepAliveMs;
+    }
+    
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+    
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+    
+    public long getValidateAfterInactivityMs() {
+        return validateAfterInactivityMs;
+    }
+    
+    public void setValidateAfterInactivityMs(long validateAfterInactivityMs) {
+        this.validateAfterInactivityMs = validateAfterInactivityMs;
+    }
+    
+    public long getConnectionTtlMs() {
+        return connectionTtlMs;
+    }
+    
+    public void setConnectionTtlMs(long connectionTtlMs) {
+        this.connectionTtlMs = connectionTtlMs;
+    }
+    
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+    
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+    
+    public int getTlsSessionTimeoutSeconds() {
+        return tlsSessionTimeoutSeconds;
+    }
+    
+    public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+    }
+    
+    public int getAsyncClientThreads() {
+        return asyncClientThreads;
+    }
+    
+    public void setAsyncClientThreads(int asyncClientThreads) {
+        this.asyncClientThreads = asyncClientThreads;
+    }
+    
+    public int getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+    
+    public void setMaxResponseBytes(int maxResponseBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+    }
+}
@@ -0,0 +1,277 @@
+package com.hookhub.api.worker;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pooled keep-alive HTTP transport for webhook delivery (Apache HttpClient 5).
+ * 
+ * Connections are pooled per route (scheme, host and port) and reused across
+ * deliveries and webhooks, so a busy receiver costs one TCP and TLS handshake per
+ * pooled connection instead of one per attempt:
+ * - Per-route and total pool sizes follow max-in-flight-per-host and max-in-flight,
+ *   so an attempt holding a host slot from DeliveryConcurrencyLimiter finds a
+ *   connection without queuing in the pool
+ * - Idle connections stay open for the receiver's Keep-Alive timeout (or
+ *   keep-alive-ms) and are checked before reuse after a short inactivity
+ * - A maintenance thread closes expired connections and those idle for longer than
+ *   idle-timeout-ms; connections are also retired after connection-ttl-ms
+ * - The transport has its own SSLContext whose client session cache resumes TLS
+ *   sessions when a new connection to a known host is opened
+ * 
+ * Cookies, automatic retries and redirects are disabled: receivers sharing a host
+ * must not see each other's cookies, and retries go through the RetryPolicy.
+ * 
+ * Pool utilization is published as hookhub.delivery.http.pool.leased, .available,
+ * .pending and .max, and per host as hookhub.delivery.http.pool.host.leased and
+ * .available with a host tag (same "host:port" form as the concurrency gauges).
+ * 
+ * In ASYNC delivery mode the transport also holds a non-blocking JDK HttpClient
+ * (getAsyncClient()) that prefers HTTP/2, negotiated over TLS with ALPN and
+ * falling back to HTTP/1.1, so requests to a receiver multiplex over few
+ * connections. It shares the SSLContext, and with it the TLS session cache, and
+ * completes exchanges on async-client-threads threads.
+ */
+@Component
+public class DeliveryHttpTransport {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryHttpTransport.class);
+    
+    /**
+     * How often the maintenance thread evicts connections and looks for new routes
+     */
+    private static final long MAINTENANCE_INTERVAL_MS = 5000;
+    
+    /**
+     * Treats every status as a response to classify, not as an error
+     */
+    private static final ResponseErrorHandler NO_ERRORS = new ResponseErrorHandler() {
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+        
+        @Override
+        public void handleError(ClientHttpResponse response) {
+            // Never called: hasError() is always false
+        }
+    };
+    
+    private final DeliveryHttpConfig config;
+    private final MeterRegistry meterRegistry;
+    
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    
+    /**
+     * Non-blocking client for ASYNC mode, null in the other modes
+     */
+    private final HttpClient asyncClient;
+    private final ExecutorService asyncClientExecutor;
+    
+    /**
+     * Routes whose per-host gauges are registered
+     */
+    private final Set<HttpRoute> meteredRoutes = ConcurrentHashMap.newKeySet();
+    
+    private volatile boolean running = false;
+    private Thread maintenanceThread;
+    
+    public DeliveryHttpTransport(DeliveryHttpConfig config, DeliveryExecutorConfig executorConfig,
+                                 RestTemplateBuilder restTemplateBuilder, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        
+        SSLContext sslContext = SSLContexts.createSystemDefault();
+        sslContext.getClientSessionContext().setSessionCacheSize(Math.max(0, config.getTlsSessionCacheSize()));
+        sslContext.getClientSessionContext().setSessionTimeout(Math.max(0, config.getTlsSessionTimeoutSeconds()));
+        
+        int maxPerHost = Math.max(1, executorConfig.getMaxInFlightPerHost());
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setSSLSocketFactory(SSLConnectionSocketFactoryBuilder.create().setSslContext(sslContext).build())
+                .setMaxConnPerRoute(maxPerHost)
+                .setMaxConnTotal(Math.max(maxPerHost, executorConfig.getMaxInFlight()))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(config.getConnectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(config.getValidateAfterInactivityMs()))
+                        .setTimeToLive(config.getConnectionTtlMs() > 0 ? TimeValue.ofMilliseconds(config.getConnectionTtlMs()) : null)
+                        .build())
+                .build();
+        
+        // Keep-alive: the default strategy honors the receiver's Keep-Alive header, else uses this value
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getPoolAcquireTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getReadTimeoutMs()))
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(config.getKeepAliveMs()))
+                        .build())
+                .disableCookieManagement()
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .build();
+        
+        // Timeouts live on the client; the factory must not override them. WebhookDeliveryClient
+        // classifies statuses itself, so 4xx/5xx bodies are not read whole by the default error handler
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        this.restTemplate = restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .errorHandler(NO_ERRORS)
+                .build();
+        
+        if (executorConfig.getMode() == DeliveryExecutorConfig.Mode.ASYNC) {
+            this.asyncClientExecutor = Executors.newFixedThreadPool(Math.max(1, config.getAsyncClientThreads()),
+                    Thread.ofPlatform().name("DeliveryHttp-Async-", 0).daemon().factory());
+            this.asyncClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .sslContext(sslContext)
+                    .executor(asyncClientExecutor)
+                    .build();
+        } else {
+            this.asyncClientExecutor = null;
+            this.asyncClient = null;
+        }
+        
+        registerPoolGauges();
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        maintenanceThread = new Thread(this::maintenanceLoop, "DeliveryHttpTransport-Maintenance");
+        maintenanceThread.setDaemon(true);
+        maintenanceThread.start();
+    }
+    
+    /**
+     * Closes the pool after DeliveryWorker has drained (it depends on this transport).
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (maintenanceThread != null) {
+            maintenanceThread.interrupt();
+        }
+        httpClient.close(CloseMode.GRACEFUL);
+        if (asyncClient != null) {
+            asyncClient.shutdownNow();
+            asyncClientExecutor.shutdownNow();
+        }
+        logger.info("DeliveryHttpTransport closed");
+    }
+    
+    /**
+     * Returns the RestTemplate that sends deliveries over the pooled connections.
+     * 
+     * @return The delivery RestTemplate
+     */
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+    
+    /**
+     * Returns the non-blocking HTTP/2 client used in ASYNC delivery mode.
+     * 
+     * @return The JDK HttpClient
+     * @throws IllegalStateException if the delivery mode is not ASYNC
+     */
+    public HttpClient getAsyncClient() {
+        if (asyncClient == null) {
+            throw new IllegalStateException("Async HTTP client is only available in ASYNC delivery mode");
+        }
+        return asyncClient;
+    }
+    
+    private void registerPoolGauges() {
+        Gauge.builder("hookhub.delivery.http.pool.leased", connectionManager, manager -> manager.getTotalStats().getLeased())
+                .description("Pooled delivery connections in use")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.delivery.http.pool.available", connectionManager, manager -> manager.getTotalStats().getAvailable())
+                .description("Idle delivery connections kept alive for reuse")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.delivery.http.pool.pending", connectionManager, manager -> manager.getTotalStats().getPending())
+                .description("Deliveries waiting for a pooled connection")
+                .register(meterRegistry);
+        Gauge.builder("hookhub.delivery.http.pool.max", connectionManager, manager -> manager.getTotalStats().getMax())
+                .description("Most delivery connections the pool may hold")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Registers per-host gauges for routes the pool has opened since the last check.
+     */
+    private void registerRouteGauges() {
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            if (!meteredRoutes.add(route)) {
+                continue;
+            }
+            String host = route.getTargetHost().getHostName() + ":" + route.getTargetHost().getPort();
+            Gauge.builder("hookhub.delivery.http.pool.host.leased", route, r -> routeStats(r).getLeased())
+                    .tag("host", host)
+                    .description("Pooled connections to the host in use")
+                    .register(meterRegistry);
+            Gauge.builder("hookhub.delivery.http.pool.host.available", route, r -> routeStats(r).getAvailable())
+                    .tag("host", host)
+                    .description("Idle connections to the host kept alive for reuse")
+                    .register(meterRegistry);
+        }
+    }
+    
+    private PoolStats routeStats(HttpRoute route) {
+        return connectionManager.getStats(route);
+    }
+    
+    private void maintenanceLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(MAINTENANCE_INTERVAL_MS);
+                connectionManager.closeExpired();
+                connectionManager.closeIdle(TimeValue.ofMilliseconds(config.getIdleTimeoutMs()));
+                registerRouteGauges();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in DeliveryHttpTransport maintenance loop", e);
+            }
+        }
+    }
+}
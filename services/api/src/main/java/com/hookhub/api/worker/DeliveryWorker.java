@@ -1,17 +1,29 @@
 package com.hookhub.api.worker;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.hookhub.api.circuitbreaker.CircuitBreaker;
 import com.hookhub.api.circuitbreaker.CircuitBreakerState;
 import com.hookhub.api.error.DiagnosticsService;
 import com.hookhub.api.error.ErrorClassifier;
@@ -20,6 +32,10 @@ import com.hookhub.api.model.ErrorClassification;
 import com.hookhub.api.model.Event;
 import com.hookhub.api.model.Webhook;
 import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.PayloadCache;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.queue.RetryScheduler;
 import com.hookhub.api.repository.ErrorClassificationRepository;
 import com.hookhub.api.repository.EventRepository;
 import com.hookhub.api.repository.WebhookRepository;
@@ -31,13 +47,29 @@ import jakarta.annotation.PreDestroy;
  * DeliveryWorker continuously dequeues events from the queue and delivers them to webhook URLs.
  * 
  * This is a multi-threaded background worker that:
- * - Polls the EventQueue for new events
- * - Fetches webhook details from the database
+ * - Waits on the EventQueue for new events (woken as soon as an event is enqueued)
+ * - Claims each event in the database (PENDING/RETRY_PENDING to PROCESSING), skipping stale queue entries
+ * - Fetches webhook details from the database, and the payload from the PayloadCache or database
  * - Sends HTTP POST requests to webhook URLs
- * - Implements retry logic with exponential backoff
+ * - Implements retry logic with exponential backoff (retries wait in the DueRetryPoller schedule, not in worker threads)
+ * - Limits retry traffic per webhook and overall with a RetryBudget
+ * - Holds events for receivers that sent Retry-After (HostBackoffRegistry), across all webhooks of the host
+ * - Parks the backlog of webhooks with an OPEN circuit or a pause in a WebhookParkingLot, without a write per event
+ * - Delivers events of ordered webhooks one at a time per ordering key (OrderedDeliveryGate)
+ * - Leaves circuit breaker and health state to each webhook's actor (WebhookActors), which persists it in the background
  * - Updates event status in the database
  * 
- * The worker uses a thread pool to process multiple events concurrently.
+ * Attempts run on a fixed pool of platform threads or on one virtual thread each
+ * (hookhub.delivery.mode); DeliveryConcurrencyLimiter bounds how many are in
+ * flight on the node and against each host. In ASYNC mode the pool only runs the
+ * steps before and after the HTTP exchange: the request goes out through
+ * WebhookDeliveryClient.deliverAsync(), and classification, retry scheduling and
+ * persistence run as a completion stage once the response arrives, so attempts
+ * waiting on receivers hold no thread.
+ * 
+ * Shutdown drains the node (see stop()): intake stops, attempts in flight get
+ * hookhub.delivery.drain-timeout-ms to finish, and everything still held in
+ * memory is handed off to the database through DrainHandoff.
  */
 @Component
 public class DeliveryWorker {
@@ -49,43 +81,161 @@ public class DeliveryWorker {
     private final EventRepository eventRepository;
     private final ErrorClassificationRepository errorClassificationRepository;
     private final WebhookDeliveryClient deliveryClient;
-    private final RetryPolicy retryPolicy;
+    private final RetryPolicyResolver retryPolicyResolver;
     private final ErrorClassifier errorClassifier;
-    private final CircuitBreaker circuitBreaker;
+    private final WebhookActors webhookActors;
     private final DiagnosticsService diagnosticsService;
+    private final PayloadCache payloadCache;
+    private final DueRetryPoller dueRetryPoller;
+    private final RetryBudget retryBudget;
+    private final HostBackoffRegistry hostBackoffRegistry;
+    private final RetryScheduler retryScheduler;
+    private final WebhookParkingLot parkingLot;
+    private final OrderedDeliveryGate orderedDeliveryGate;
+    private final DeliveryConcurrencyLimiter concurrencyLimiter;
+    private final DeliveryExecutorConfig executorConfig;
+    private final DrainHandoff drainHandoff;
+    private final DeliveryBatcher deliveryBatcher;
+    private final PayloadCompressor payloadCompressor;
+    
+    /**
+     * True in ASYNC mode: attempts complete through deliverAsync() and hold no thread while waiting
+     */
+    private final boolean asyncDelivery;
+    
+    /**
+     * True when the queue keeps due times in the database itself (jdbc), so held events go back to it
+     */
+    private final boolean queueSchedulesDueTimes;
     
     private volatile boolean running = false;
     private ExecutorService executorService;
     private Thread workerThread;
     
     /**
-     * Number of worker threads for concurrent processing
+     * Attempts currently running, by event ID
+     */
+    private final ConcurrentHashMap<Long, QueuedEvent> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * Entries taken from the queue after the drain began but never started; handed off as queued
+     */
+    private final ConcurrentLinkedQueue<QueuedEvent> undispatched = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * Claimed events whose attempt the drain cancelled; handed off as in flight
+     */
+    private final ConcurrentLinkedQueue<QueuedEvent> cancelledAttempts = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * Pending HTTP exchanges of ASYNC mode by event ID, so the drain can cancel them
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<WebhookDeliveryClient.DeliveryResult>> exchanges =
+            new ConcurrentHashMap<>();
+    
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+    
+    /**
+     * Batches submitted for delivery and not yet completed
+     */
+    private final Set<DeliveryBatcher.Batch> batchesInFlight = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * A claimed event cleared for delivery, holding a slot against its host
+     */
+    private record Attempt(Webhook webhook, DeliveryConcurrencyLimiter.HostPermit hostPermit) {
+    }
+    
+    /**
+     * How often the drain checks whether ASYNC attempts have completed
+     */
+    private static final long DRAIN_POLL_INTERVAL_MS = 50;
+    
+    /**
+     * Longest time an attempt waits for a slot against its host before the event goes back to the queue
+     */
+    private static final long HOST_PERMIT_WAIT_MS = 5000;
+    
+    /**
+     * Delay before an event whose host stayed saturated is offered again
+     */
+    private static final long HOST_BUSY_RETRY_DELAY_MS = 1000;
+    
+    /**
+     * How far ahead of now a RETRY_PENDING row's due time may be and still count as
+     * due when claimed; covers rounding of the stored time, not real early releases
+     */
+    private static final long CLAIM_DUE_SLACK_MS = 1000;
+    
+    /**
+     * Maximum time the dispatcher blocks waiting for an event before re-checking
+     * whether it should keep running. Enqueue wakes it immediately.
      */
-    private static final int WORKER_THREADS = 5;
+    private static final long IDLE_WAIT_MS = 1000;
     
     /**
-     * Polling interval in milliseconds when queue is empty
+     * Maximum number of additional events drained per wake-up once one event has arrived
      */
-    private static final long POLL_INTERVAL_MS = 100;
+    private static final int DISPATCH_BATCH_SIZE = 64;
+    
+    /**
+     * Statuses from which a queued event may be claimed for delivery. Anything else
+     * (delivered, failed, paused, deleted) means the queue entry is stale.
+     */
+    private static final EnumSet<Event.EventStatus> DELIVERABLE_STATUSES =
+            EnumSet.of(Event.EventStatus.PENDING, Event.EventStatus.RETRY_PENDING);
+    
+    /**
+     * Statuses in which an older event with the same ordering key holds back later ones
+     * (everything but delivered and permanently failed)
+     */
+    private static final EnumSet<Event.EventStatus> ORDERING_BLOCKING_STATUSES =
+            EnumSet.complementOf(EnumSet.of(Event.EventStatus.SUCCESS, Event.EventStatus.FAILURE));
     
     public DeliveryWorker(EventQueue eventQueue,
                          WebhookRepository webhookRepository,
                          EventRepository eventRepository,
                          ErrorClassificationRepository errorClassificationRepository,
                          WebhookDeliveryClient deliveryClient,
-                         RetryPolicy retryPolicy,
+                         RetryPolicyResolver retryPolicyResolver,
                          ErrorClassifier errorClassifier,
-                         CircuitBreaker circuitBreaker,
-                         DiagnosticsService diagnosticsService) {
+                         WebhookActors webhookActors,
+                         DiagnosticsService diagnosticsService,
+                         PayloadCache payloadCache,
+                         DueRetryPoller dueRetryPoller,
+                         RetryBudget retryBudget,
+                         HostBackoffRegistry hostBackoffRegistry,
+                         RetryScheduler retryScheduler,
+                         WebhookParkingLot parkingLot,
+                         OrderedDeliveryGate orderedDeliveryGate,
+                         DeliveryConcurrencyLimiter concurrencyLimiter,
+                         DeliveryExecutorConfig executorConfig,
+                         DrainHandoff drainHandoff,
+                         DeliveryBatcher deliveryBatcher,
+                         PayloadCompressor payloadCompressor) {
         this.eventQueue = eventQueue;
         this.webhookRepository = webhookRepository;
         this.eventRepository = eventRepository;
         this.errorClassificationRepository = errorClassificationRepository;
         this.deliveryClient = deliveryClient;
-        this.retryPolicy = retryPolicy;
+        this.retryPolicyResolver = retryPolicyResolver;
         this.errorClassifier = errorClassifier;
-        this.circuitBreaker = circuitBreaker;
+        this.webhookActors = webhookActors;
         this.diagnosticsService = diagnosticsService;
+        this.payloadCache = payloadCache;
+        this.dueRetryPoller = dueRetryPoller;
+        this.retryBudget = retryBudget;
+        this.hostBackoffRegistry = hostBackoffRegistry;
+        this.retryScheduler = retryScheduler;
+        this.parkingLot = parkingLot;
+        this.orderedDeliveryGate = orderedDeliveryGate;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.executorConfig = executorConfig;
+        this.drainHandoff = drainHandoff;
+        this.deliveryBatcher = deliveryBatcher;
+        this.payloadCompressor = payloadCompressor;
+        this.asyncDelivery = executorConfig.getMode() == DeliveryExecutorConfig.Mode.ASYNC;
+        this.queueSchedulesDueTimes = eventQueue.selfRecoveredStatuses().contains(Event.EventStatus.RETRY_PENDING);
     }
     
     /**
@@ -99,21 +249,126 @@ public class DeliveryWorker {
         }
         
         running = true;
-        executorService = Executors.newFixedThreadPool(WORKER_THREADS);
+        executorService = createExecutor();
+        deliveryBatcher.setFlushHandler(this::submitBatch);
         workerThread = new Thread(this::workerLoop, "DeliveryWorker-Thread");
         workerThread.setDaemon(true);
         workerThread.start();
-        logger.info("DeliveryWorker started with {} worker threads", WORKER_THREADS);
+        if (executorConfig.getMode() == DeliveryExecutorConfig.Mode.VIRTUAL) {
+            logger.info("DeliveryWorker started with virtual threads, max in flight={}, per host={}",
+                    executorConfig.getMaxInFlight(), executorConfig.getMaxInFlightPerHost());
+        } else if (asyncDelivery) {
+            logger.info("DeliveryWorker started in async mode with {} worker threads, max in flight={}, per host={}",
+                    executorConfig.getPlatformThreads(), executorConfig.getMaxInFlight(), executorConfig.getMaxInFlightPerHost());
+        } else {
+            logger.info("DeliveryWorker started with {} worker threads", executorConfig.getPlatformThreads());
+        }
     }
     
     /**
-     * Stops the delivery worker gracefully before application shutdown.
+     * Creates the executor that delivery attempts run on.
+     */
+    private ExecutorService createExecutor() {
+        if (executorConfig.getMode() == DeliveryExecutorConfig.Mode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DeliveryWorker-", 0).factory());
+        }
+        // PLATFORM and ASYNC
+        return Executors.newFixedThreadPool(Math.max(1, executorConfig.getPlatformThreads()));
+    }
+    
+    /**
+     * Drains the delivery worker before application shutdown:
+     * 1. Stops intake: the dispatcher stops taking from the queue and this node
+     *    stops claiming due retries; open batches are sent without lingering
+     * 2. Lets attempts in flight finish for up to drain-timeout-ms, then cancels the
+     *    rest; a cancelled attempt records no outcome
+     * 3. Takes everything still held in memory: queued entries, retry and hold
+     *    timers, parked backlogs and events waiting for an ordered predecessor
+     * 4. Hands it all off to the database as RETRY_PENDING with a due time, where
+     *    any node picks it up, and logs what was handed off
      */
     @PreDestroy
     public void stop() {
-        logger.info("Stopping DeliveryWorker...");
+        logger.info("Stopping DeliveryWorker, draining...");
+        long startNanos = System.nanoTime();
         running = false;
         
+        stopDispatcher();
+        dueRetryPoller.stop();
+        // Open batches are sent now instead of lingering
+        deliveryBatcher.closeAll().forEach(this::submitBatch);
+        
+        int inFlightAtStop = inFlight.size() + batchedEventsInFlight().size();
+        long deadline = System.currentTimeMillis() + Math.max(0, executorConfig.getDrainTimeoutMs());
+        Map<Long, QueuedEvent> cutShort = new LinkedHashMap<>();
+        if (asyncDelivery) {
+            awaitExchanges(deadline).forEach(event -> cutShort.put(event.getEventId(), event));
+        }
+        if (executorService != null) {
+            shutdownExecutorService(deadline);
+        }
+        cancelledAttempts.forEach(event -> cutShort.put(event.getEventId(), event));
+        inFlight.values().forEach(event -> cutShort.put(event.getEventId(), event));
+        batchedEventsInFlight().forEach(event -> cutShort.put(event.getEventId(), event));
+        
+        List<QueuedEvent> scheduled = retryScheduler.drain();
+        List<QueuedEvent> parked = parkingLot.drain();
+        List<QueuedEvent> waiting = orderedDeliveryGate.drain();
+        List<QueuedEvent> queued = new ArrayList<>(undispatched);
+        while (eventQueue.drainTo(queued, Integer.MAX_VALUE) > 0) {
+            // Keep draining until the queue stays empty
+        }
+        
+        List<QueuedEvent> held = new ArrayList<>(queued.size() + scheduled.size() + parked.size() + waiting.size());
+        held.addAll(queued);
+        held.addAll(scheduled);
+        held.addAll(parked);
+        held.addAll(waiting);
+        int handedOffInFlight = drainHandoff.handOffInFlight(cutShort.values());
+        int handedOffHeld = drainHandoff.handOffQueued(held);
+        
+        logger.info("DeliveryWorker drained in {}ms: in flight at stop={}, cut short={}, queued={}, scheduled={}, "
+                + "parked={}, waiting for predecessor={}; handed off {} attempts and {} held events",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), inFlightAtStop, cutShort.size(),
+                queued.size(), scheduled.size(), parked.size(), waiting.size(), handedOffInFlight, handedOffHeld);
+    }
+    
+    /**
+     * Waits until ASYNC attempts have completed or the deadline has passed, then
+     * cancels the exchanges still pending.
+     * 
+     * @return Events whose attempts were still in flight at the deadline
+     */
+    private List<QueuedEvent> awaitExchanges(long deadline) {
+        try {
+            while ((!inFlight.isEmpty() || !batchesInFlight.isEmpty()) && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(DRAIN_POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<QueuedEvent> cutShort = new ArrayList<>(inFlight.values());
+        cutShort.addAll(batchedEventsInFlight());
+        if (!cutShort.isEmpty()) {
+            logger.warn("{} delivery attempts still in flight after the drain timeout, cancelling them", cutShort.size());
+            exchanges.values().forEach(exchange -> exchange.cancel(true));
+        }
+        return cutShort;
+    }
+    
+    /**
+     * Returns the events of batches submitted and not yet completed.
+     */
+    private List<QueuedEvent> batchedEventsInFlight() {
+        List<QueuedEvent> events = new ArrayList<>();
+        batchesInFlight.forEach(batch -> events.addAll(batch.events()));
+        return events;
+    }
+    
+    /**
+     * Stops the dispatcher thread; entries it had taken but not dispatched go to undispatched.
+     */
+    private void stopDispatcher() {
         if (workerThread != null) {
             try {
                 workerThread.interrupt();
@@ -123,31 +378,37 @@ public class DeliveryWorker {
                 Thread.currentThread().interrupt();
             }
         }
-        
-        if (executorService != null) {
-            shutdownExecutorService();
-        }
-        
-        logger.info("DeliveryWorker stopped");
     }
     
     /**
-     * Main worker loop that continuously polls the queue for events.
+     * Main worker loop that blocks on the queue and hands events to the thread pool.
      */
     private void workerLoop() {
-        logger.info("DeliveryWorker thread started, polling queue every {}ms", POLL_INTERVAL_MS);
+        logger.info("DeliveryWorker thread started, waiting on queue (idle re-check every {}ms)", IDLE_WAIT_MS);
         
+        List<QueuedEvent> batch = new ArrayList<>(DISPATCH_BATCH_SIZE);
         while (running) {
             try {
-                if (!eventQueue.isEmpty()) {
-                    Event event = eventQueue.dequeue();
-                    if (event != null) {
-                        // Submit event processing to thread pool
-                        executorService.submit(() -> processEvent(event));
+                QueuedEvent event = eventQueue.take(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                
+                // Submit event processing to thread pool, along with anything else already queued
+                batch.clear();
+                batch.add(event);
+                int dispatched = 0;
+                try {
+                    dispatch(event);
+                    dispatched++;
+                    eventQueue.drainTo(batch, DISPATCH_BATCH_SIZE);
+                    for (; dispatched < batch.size(); dispatched++) {
+                        dispatch(batch.get(dispatched));
                     }
-                } else {
-                    // Queue is empty, sleep to avoid busy-waiting
-                    Thread.sleep(POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    // Stopping: the drain hands off what was taken but not dispatched
+                    undispatched.addAll(batch.subList(dispatched, batch.size()));
+                    throw e;
                 }
             } catch (InterruptedException e) {
                 logger.info("DeliveryWorker thread interrupted, shutting down");
@@ -161,162 +422,503 @@ public class DeliveryWorker {
         logger.info("DeliveryWorker thread stopped");
     }
     
+    /**
+     * Hands an event to the executor once a global in-flight slot is free, parks it
+     * if its webhook's backlog is parked, or holds it while its receiver's host is
+     * backing off. Held events are not claimed: they wait in the RetryScheduler with
+     * their rows untouched (startup recovery still covers them), or, for queues that
+     * schedule from the database, go back to the queue with the new due time.
+     * 
+     * @param event The dequeued entry
+     * @throws InterruptedException if interrupted while waiting for an in-flight slot
+     */
+    private void dispatch(QueuedEvent event) throws InterruptedException {
+        if (parkingLot.parkIfParked(event)) {
+            return;
+        }
+        long holdUntil = hostBackoffRegistry.holdUntil(event.getWebhookId());
+        if (holdUntil > System.currentTimeMillis()) {
+            logger.debug("Receiver backing off, holding event: id={}, webhookId={}, until={}",
+                    event.getEventId(), event.getWebhookId(), holdUntil);
+            Lane lane = event.getAttempt() > 0 ? Lane.RETRY : Lane.FRESH;
+            if (!queueSchedulesDueTimes || !eventQueue.enqueue(event.dueAt(holdUntil), lane)) {
+                // A backoff can outlast the row's lease; keep the poller from enqueuing a second copy
+                dueRetryPoller.hold(event, holdUntil);
+                retryScheduler.schedule(event.dueAt(holdUntil), lane);
+            }
+            return;
+        }
+        // Blocks while the node is at max in flight, so the queue (not the executor) holds the backlog
+        concurrencyLimiter.acquireInFlight();
+        try {
+            executorService.submit(() -> runAttempt(event));
+        } catch (RejectedExecutionException e) {
+            concurrencyLimiter.releaseInFlight();
+            throw e;
+        }
+    }
+    
     /**
      * Processes a single event: fetches webhook, delivers payload, handles retries.
      * 
      * Phase 4: Enhanced with error classification, circuit breaker, and smart retry.
      * 
-     * @param event The event to process
+     * The queue entry only carries IDs and the attempt number; status changes are
+     * written with targeted updates instead of saving a shared entity.
+     * 
+     * @param event The queue entry to process
      */
     @Transactional
-    private void processEvent(Event event) {
-        Long eventId = event.getId();
-        Long webhookId = event.getWebhookId();
-        
-        logger.info("Processing event: id={}, webhookId={}, retryCount={}", 
-                eventId, webhookId, event.getRetryCount());
-        
+    private void processEvent(QueuedEvent event) {
+        long eventId = event.getEventId();
         try {
-            // Fetch webhook from database
-            Optional<Webhook> webhookOpt = webhookRepository.findById(webhookId);
-            if (webhookOpt.isEmpty()) {
-                logger.error("Webhook not found: id={}, marking event as FAILURE", webhookId);
-                markEventAsFailure(event, "Webhook not found");
+            Attempt attempt = prepareAttempt(event);
+            if (attempt == null) {
                 return;
             }
             
-            Webhook webhook = webhookOpt.get();
-            
-            // Check if webhook is disabled or paused
-            if (Boolean.TRUE.equals(webhook.getIsDisabled())) {
-                logger.warn("Webhook is disabled: id={}, skipping event", webhookId);
-                event.setStatus(Event.EventStatus.PAUSED);
-                eventRepository.save(event);
-                return;
+            // Deliver webhook (status is already PROCESSING from the claim)
+            // Its outcome and latency adjust the host's concurrency limit
+            WebhookDeliveryClient.DeliveryResult result = null;
+            try {
+                result = deliveryClient.deliver(attempt.webhook(), eventId, loadPayload(eventId));
+            } finally {
+                concurrencyLimiter.release(attempt.hostPermit(), result);
+                if (result == null) {
+                    // Not sent (payload or client error): no outcome will free the HALF_OPEN test slot
+                    webhookActors.cancelAdmission(attempt.webhook());
+                }
             }
             
-            if (webhook.getPausedUntil() != null && webhook.getPausedUntil().isAfter(LocalDateTime.now())) {
-                logger.warn("Webhook is paused until: {}, skipping event", webhook.getPausedUntil());
-                event.setStatus(Event.EventStatus.PAUSED);
-                eventRepository.save(event);
+            if (isCancelledByDrain()) {
+                // The outcome is unknown: record nothing and leave the row PROCESSING for the handoff
+                logger.info("Delivery attempt cancelled by shutdown, handing off event: id={}", eventId);
+                webhookActors.cancelAdmission(attempt.webhook());
+                cancelledAttempts.add(event);
                 return;
             }
             
-            // Check circuit breaker state
-            CircuitBreaker.WebhookCircuitState circuitState = getOrCreateCircuitState(webhook);
-            if (!circuitBreaker.allowRequest(circuitState)) {
-                logger.warn("Circuit breaker is {} for webhook: id={}, blocking request", 
-                        circuitState.getState(), webhookId);
-                // Update webhook state in database
-                updateWebhookCircuitState(webhook, circuitState);
-                event.setStatus(Event.EventStatus.RETRY_PENDING);
-                eventRepository.save(event);
-                // Re-enqueue after cooldown
-                scheduleRetryAfterCooldown(event, webhook);
-                return;
+            handleResult(List.of(event), attempt.webhook(), result);
+        
+        } catch (Exception e) {
+            handleProcessingError(event, e);
+        }
+    }
+    
+    /**
+     * Claims an event and runs every check that precedes the HTTP request: webhook
+     * state, ordering, receiver backoff, retry budget, circuit breaker and the host's
+     * concurrency limit. An event that must not be delivered now is parked,
+     * rescheduled or marked here.
+     * 
+     * @param event The queue entry to process
+     * @return The attempt to deliver, or null if the event was handled otherwise
+     */
+    private Attempt prepareAttempt(QueuedEvent event) {
+        long eventId = event.getEventId();
+        long webhookId = event.getWebhookId();
+        
+        logger.info("Processing event: id={}, webhookId={}, retryCount={}",
+                eventId, webhookId, event.getAttempt());
+        
+        // Claim the event; fails if it was already delivered, failed, paused or deleted, or if this entry is a stale copy
+        if (claim(event) == 0) {
+            logger.info("Skipping stale queue entry: id={}", eventId);
+            evictPayload(eventId);
+            return null;
+        }
+        
+        // Fetch webhook from database
+        Optional<Webhook> webhookOpt = webhookRepository.findById(webhookId);
+        if (webhookOpt.isEmpty()) {
+            logger.error("Webhook not found: id={}, marking event as FAILURE", webhookId);
+            markEventAsFailure(event, "Webhook not found");
+            return null;
+        }
+        
+        Webhook webhook = webhookOpt.get();
+        
+        // Check if webhook is disabled or paused
+        if (Boolean.TRUE.equals(webhook.getIsDisabled())) {
+            logger.warn("Webhook is disabled: id={}, skipping event", webhookId);
+            markEventAsPaused(event);
+            return null;
+        }
+        
+        if (webhook.getPausedUntil() != null && webhook.getPausedUntil().isAfter(LocalDateTime.now())) {
+            logger.warn("Webhook is paused until: {}, parking event: id={}", webhook.getPausedUntil(), eventId);
+            if (!parkClaimed(event, webhook.getPausedUntil())) {
+                markEventAsPaused(event);
+            }
+            return null;
+        }
+        
+        // Ordered mode: wait while an older event with the same ordering key is not delivered or failed
+        if (Boolean.TRUE.equals(webhook.getOrderedDelivery()) && waitForPredecessor(event)) {
+            return null;
+        }
+        
+        // Hold the event if its receiver asked us to wait; catches webhooks the dispatcher has not seen yet
+        hostBackoffRegistry.rememberWebhook(webhook);
+        long holdUntil = hostBackoffRegistry.holdUntil(webhookId);
+        if (holdUntil > System.currentTimeMillis()) {
+            logger.info("Receiver backing off for webhook: id={}, deferring event: id={}, delay={}ms",
+                    webhookId, eventId, holdUntil - System.currentTimeMillis());
+            dueRetryPoller.schedule(event.dueAt(holdUntil));
+            return null;
+        }
+        
+        // Retries spend from the webhook's and the global retry budget; when exhausted, defer instead of dropping
+        if (event.getAttempt() > 0 && !retryBudget.tryAcquire(webhookId)) {
+            long deferMs = retryBudget.deferDelayMs(webhookId);
+            logger.info("Retry budget exhausted for webhook: id={}, deferring event: id={}, delay={}ms",
+                    webhookId, eventId, deferMs);
+            dueRetryPoller.schedule(event.dueAt(System.currentTimeMillis() + deferMs));
+            return null;
+        }
+        
+        // Check circuit breaker state (the webhook's actor decides, and counts HALF_OPEN test requests).
+        // From here on every path gives the test slot back: cancelAdmission() if nothing is sent, or the
+        // outcome recorded by handleResult()
+        WebhookActors.Admission admission = webhookActors.admit(webhook);
+        if (!admission.allowed()) {
+            logger.warn("Circuit breaker is {} for webhook: id={}, blocking request",
+                    admission.state(), webhookId);
+            // Park behind the circuit's probe; fall back to a durable retry if it cannot be parked
+            if (!parkRefused(event, admission)) {
+                scheduleRetryAfterCooldown(event, admission.retryAt());
+            }
+            return null;
+        }
+        
+        // Batch mode: the event joins its webhook's open batch, which takes the host slot when it is sent
+        if (deliveryBatcher.isBatched(webhook)) {
+            if (event.getAttempt() == 0) {
+                retryBudget.recordFirstAttempt(webhookId);
+            }
+            List<DeliveryBatcher.Batch> ready;
+            try {
+                ready = deliveryBatcher.add(webhook, event);
+            } catch (RuntimeException e) {
+                webhookActors.cancelAdmission(webhook);
+                throw e;
+            }
+            ready.forEach(this::submitBatch);
+            return null;
+        }
+        
+        // Wait for a slot against the receiver's host (ASYNC: no wait); if it stays saturated, offer the event again shortly
+        DeliveryConcurrencyLimiter.HostPermit hostPermit = acquireHostPermit(webhook);
+        if (hostPermit == null) {
+            logger.debug("Host busy for webhook: id={}, re-offering event: id={}", webhookId, eventId);
+            webhookActors.cancelAdmission(webhook);
+            long dueAt = System.currentTimeMillis() + HOST_BUSY_RETRY_DELAY_MS;
+            unclaim(event, dueAt);
+            retryScheduler.schedule(event.dueAt(dueAt), event.getAttempt() > 0 ? Lane.RETRY : Lane.FRESH);
+            return null;
+        }
+        
+        // First attempts earn retry budget for their webhook
+        if (event.getAttempt() == 0) {
+            retryBudget.recordFirstAttempt(webhookId);
+        }
+        
+        return new Attempt(webhook, hostPermit);
+    }
+    
+    /**
+     * Records the outcome of a delivery attempt: success, or failure classification,
+     * circuit and health updates and the resulting retry, pause or final failure.
+     * 
+     * A batch is one request: circuit, health and receiver backoff see one outcome,
+     * the failure is classified once (as of the batch's highest attempt number), and
+     * the outcome is then applied to every event, each retried by its own attempt.
+     * 
+     * @param events The delivered queue entries, one unless batched
+     * @param webhook The webhook they were delivered to
+     * @param result The delivery result
+     */
+    private void handleResult(List<QueuedEvent> events, Webhook webhook, WebhookDeliveryClient.DeliveryResult result) {
+        if (result.isSuccess()) {
+            // Delivery successful
+            for (QueuedEvent event : events) {
+                logger.info("Event delivered successfully: id={}, statusCode={}", event.getEventId(), result.getStatusCode());
             }
             
-            // Update event status to PROCESSING
-            event.setStatus(Event.EventStatus.PROCESSING);
-            eventRepository.save(event);
+            // Record success in circuit breaker and webhook health metrics; a successful probe releases the parked backlog
+            webhookActors.recordSuccess(webhook);
+            parkingLot.circuitClosed(webhook.getId());
             
-            // Deliver webhook
-            WebhookDeliveryClient.DeliveryResult result = deliveryClient.deliver(webhook, event.getPayload());
+            events.forEach(this::markEventAsSuccess);
+        
+        } else {
+            // Delivery failed - a Retry-After on 429/503 holds every event for the receiver's host
+            hostBackoffRegistry.recordRetryAfter(webhook, result.getStatusCode(), result.getRetryAfterSeconds());
             
-            if (result.isSuccess()) {
-                // Delivery successful
-                logger.info("Event delivered successfully: id={}, statusCode={}", eventId, result.getStatusCode());
-                
-                // Record success in circuit breaker
-                circuitBreaker.recordSuccess(circuitState);
-                updateWebhookCircuitState(webhook, circuitState);
-                
-                // Update webhook health metrics
-                webhook.setTotalSuccesses(webhook.getTotalSuccesses() + 1);
-                webhookRepository.save(webhook);
-                
-                markEventAsSuccess(event);
-                
-            } else {
-                // Delivery failed - classify the error using decision engine
+            ErrorDecision decision;
+            String explanation;
+            try {
+                // Classify the error using decision engine
                 // Calculate recent failure rate (last 10 events)
                 double recentFailureRate = calculateRecentFailureRate(webhook.getId());
-                
-                ErrorDecision decision = errorClassifier.classify(
+                WebhookActors.Health health = webhookActors.health(webhook);
+            
+                int attempt = events.stream().mapToInt(QueuedEvent::getAttempt).max().orElse(0);
+                decision = errorClassifier.classify(
                         result,
-                        event.getRetryCount(),
+                        attempt,
                         recentFailureRate,
                         webhook.getId(),
-                        webhook.getTotalFailures(),
-                        webhook.getTotalSuccesses(),
-                        webhook.getConsecutiveFailures(),
-                        webhook.getCircuitBreakerState() != null ? webhook.getCircuitBreakerState().name() : null
+                        health.totalFailures(),
+                        health.totalSuccesses(),
+                        health.consecutiveFailures(),
+                        health.state().name()
                 );
-                
-                String explanation = diagnosticsService.generateExplanation(
-                        result.getStatusCode(), 
-                        result.getErrorMessage(), 
+            
+                explanation = diagnosticsService.generateExplanation(
+                        result.getStatusCode(),
+                        result.getErrorMessage(),
                         decision
                 );
-                
+            
                 // Record error classification
-                recordErrorClassification(event, webhook, result, decision, explanation);
-                
-                // Record failure in circuit breaker
-                circuitBreaker.recordFailure(circuitState);
-                updateWebhookCircuitState(webhook, circuitState);
-                
-                // Update webhook health metrics
-                webhook.setTotalFailures(webhook.getTotalFailures() + 1);
-                webhook.setLastFailureTime(LocalDateTime.now());
-                webhookRepository.save(webhook);
-                
-                // Apply decision
-                applyErrorDecision(event, webhook, result, decision, explanation, circuitState);
+                for (QueuedEvent event : events) {
+                    recordErrorClassification(event, webhook, result, decision, explanation);
+                }
+            } finally {
+                // Record failure in circuit breaker and webhook health metrics, even if classification
+                // failed, so the attempt's HALF_OPEN test slot is always given back
+                webhookActors.recordFailure(webhook);
+                if (parkingLot.isProbing(webhook.getId())) {
+                    // A failed probe reopens the circuit: the parked backlog waits for the new cooldown
+                    LocalDateTime cooldownEnd = webhookActors.cooldownEnd(webhook);
+                    if (cooldownEnd != null) {
+                        parkingLot.circuitReopened(webhook.getId(), toEpochMillis(cooldownEnd));
+                    }
+                }
             }
             
+            // Apply decision
+            for (QueuedEvent event : events) {
+                applyErrorDecision(event, webhook, result, decision, explanation);
+            }
+        }
+    }
+    
+    /**
+     * Runs one attempt on the executor. The global in-flight slot is returned when the
+     * attempt completes, which in ASYNC mode is once its response has been handled.
+     */
+    private void runAttempt(QueuedEvent event) {
+        if (!running) {
+            // Queued in the pool when the drain began: hand off instead of starting it
+            undispatched.add(event);
+            concurrencyLimiter.releaseInFlight();
+            return;
+        }
+        inFlight.put(event.getEventId(), event);
+        CompletableFuture<Void> completion = COMPLETED;
+        try {
+            if (asyncDelivery) {
+                completion = processEventAsync(event);
+            } else {
+                processEvent(event);
+            }
+        } finally {
+            completion.whenComplete((ignored, error) -> {
+                inFlight.remove(event.getEventId());
+                concurrencyLimiter.releaseInFlight();
+            });
+        }
+    }
+    
+    /**
+     * Processes a single event in ASYNC mode: the steps up to the host slot run on the
+     * calling worker thread, the HTTP exchange on the async client, and the result is
+     * handled by a worker thread once the response has arrived.
+     * 
+     * @param event The queue entry to process
+     * @return Completes when the attempt's outcome has been recorded (or it was cancelled)
+     */
+    private CompletableFuture<Void> processEventAsync(QueuedEvent event) {
+        long eventId = event.getEventId();
+        Attempt attempt;
+        CompletableFuture<WebhookDeliveryClient.DeliveryResult> delivery;
+        try {
+            attempt = prepareAttempt(event);
+            if (attempt == null) {
+                return COMPLETED;
+            }
         } catch (Exception e) {
-            logger.error("Error processing event: id={}", eventId, e);
-            // Mark as failure on unexpected error
-            markEventAsFailure(event, "Unexpected error: " + e.getMessage());
+            handleProcessingError(event, e);
+            return COMPLETED;
+        }
+        try {
+            delivery = deliveryClient.deliverAsync(attempt.webhook(), eventId, loadPayload(eventId));
+        } catch (Exception e) {
+            concurrencyLimiter.release(attempt.hostPermit(), null);
+            webhookActors.cancelAdmission(attempt.webhook());
+            handleProcessingError(event, e);
+            return COMPLETED;
+        }
+        
+        exchanges.put(eventId, delivery);
+        return delivery.handleAsync((result, error) -> {
+            exchanges.remove(eventId);
+            concurrencyLimiter.release(attempt.hostPermit(), result);
+            if (error != null) {
+                // deliverAsync() only fails when the drain cancels the exchange: record nothing
+                logger.info("Delivery attempt cancelled by shutdown, handing off event: id={}", eventId);
+                webhookActors.cancelAdmission(attempt.webhook());
+                cancelledAttempts.add(event);
+                return null;
+            }
+            try {
+                handleResult(List.of(event), attempt.webhook(), result);
+            } catch (Exception e) {
+                handleProcessingError(event, e);
+            }
+            return null;
+        }, executorService);
+    }
+    
+    /**
+     * Submits a batch of claimed events to the executor for delivery.
+     */
+    private void submitBatch(DeliveryBatcher.Batch batch) {
+        batchesInFlight.add(batch);
+        try {
+            executorService.submit(() -> deliverBatch(batch));
+        } catch (RejectedExecutionException e) {
+            // The executor has shut down for the drain: hand the events off
+            batchesInFlight.remove(batch);
+            cancelledAttempts.addAll(batch.events());
+        }
+    }
+    
+    /**
+     * Delivers a batch as one request whose body is the JSON array of the events'
+     * payloads, in the order they were batched, and records the outcome for each event.
+     * The batch holds one host slot and, in a HALF_OPEN circuit, one test slot.
+     */
+    private void deliverBatch(DeliveryBatcher.Batch batch) {
+        Webhook webhook = batch.webhook();
+        List<QueuedEvent> events = batch.events();
+        CompletableFuture<Void> completion = COMPLETED;
+        try {
+            // Every event was admitted on its own; the single request needs only one HALF_OPEN test slot
+            for (int i = 1; i < events.size(); i++) {
+                webhookActors.cancelAdmission(webhook);
+            }
+            completion = sendBatch(webhook, events);
+        } catch (Exception e) {
+            events.forEach(event -> handleProcessingError(event, e));
+        } finally {
+            completion.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    // The result could not be handled (the executor shut down): hand the events off
+                    cancelledAttempts.addAll(events);
+                }
+                batchesInFlight.remove(batch);
+            });
         }
     }
     
     /**
-     * Gets or creates circuit breaker state for a webhook.
+     * Sends a batch once a host slot is free and records its outcome.
      * 
-     * @param webhook The webhook
-     * @return Circuit breaker state
+     * @return Completes when the outcome has been recorded (or the request was cancelled)
      */
-    private CircuitBreaker.WebhookCircuitState getOrCreateCircuitState(Webhook webhook) {
-        CircuitBreaker.WebhookCircuitState state = new CircuitBreaker.WebhookCircuitState();
+    private CompletableFuture<Void> sendBatch(Webhook webhook, List<QueuedEvent> events) {
+        StringJoiner body = new StringJoiner(",", "[", "]");
+        try {
+            for (QueuedEvent event : events) {
+                body.add(String.valueOf(loadPayload(event.getEventId())));
+            }
+        } catch (RuntimeException e) {
+            webhookActors.cancelAdmission(webhook);
+            throw e;
+        }
         
-        // Initialize from webhook entity
-        if (webhook.getCircuitBreakerState() != null) {
-            state.setState(webhook.getCircuitBreakerState());
-        } else {
-            state.setState(CircuitBreakerState.CLOSED);
+        DeliveryConcurrencyLimiter.HostPermit hostPermit = acquireHostPermit(webhook);
+        if (hostPermit == null) {
+            logger.debug("Host busy for webhook: id={}, re-offering batch of {} events", webhook.getId(), events.size());
+            webhookActors.cancelAdmission(webhook);
+            long dueAt = System.currentTimeMillis() + HOST_BUSY_RETRY_DELAY_MS;
+            for (QueuedEvent event : events) {
+                unclaim(event, dueAt);
+                retryScheduler.schedule(event.dueAt(dueAt), event.getAttempt() > 0 ? Lane.RETRY : Lane.FRESH);
+            }
+            return COMPLETED;
         }
+        logger.info("Delivering batch of {} events to webhook: id={}", events.size(), webhook.getId());
         
-        state.setConsecutiveFailures(webhook.getConsecutiveFailures() != null ? webhook.getConsecutiveFailures() : 0);
-        state.setCircuitOpenedAt(webhook.getCircuitOpenedAt());
-        state.setLastFailureTime(webhook.getLastFailureTime());
+        if (!asyncDelivery) {
+            WebhookDeliveryClient.DeliveryResult result = null;
+            try {
+                result = deliveryClient.deliver(webhook, null, body.toString());
+            } finally {
+                concurrencyLimiter.release(hostPermit, result);
+                if (result == null) {
+                    webhookActors.cancelAdmission(webhook);
+                }
+            }
+            if (isCancelledByDrain()) {
+                logger.info("Batch delivery cancelled by shutdown, handing off {} events", events.size());
+                webhookActors.cancelAdmission(webhook);
+                cancelledAttempts.addAll(events);
+                return COMPLETED;
+            }
+            handleResult(events, webhook, result);
+            return COMPLETED;
+        }
         
-        return state;
+        CompletableFuture<WebhookDeliveryClient.DeliveryResult> delivery;
+        try {
+            delivery = deliveryClient.deliverAsync(webhook, null, body.toString());
+        } catch (RuntimeException e) {
+            concurrencyLimiter.release(hostPermit, null);
+            webhookActors.cancelAdmission(webhook);
+            throw e;
+        }
+        events.forEach(event -> exchanges.put(event.getEventId(), delivery));
+        return delivery.handleAsync((result, error) -> {
+            events.forEach(event -> exchanges.remove(event.getEventId()));
+            concurrencyLimiter.release(hostPermit, result);
+            if (error != null) {
+                logger.info("Batch delivery cancelled by shutdown, handing off {} events", events.size());
+                webhookActors.cancelAdmission(webhook);
+                cancelledAttempts.addAll(events);
+                return null;
+            }
+            try {
+                handleResult(events, webhook, result);
+            } catch (Exception e) {
+                events.forEach(event -> handleProcessingError(event, e));
+            }
+            return null;
+        }, executorService);
     }
     
     /**
-     * Updates webhook entity with circuit breaker state.
-     * 
-     * @param webhook The webhook to update
-     * @param circuitState The circuit breaker state
+     * Handles an exception thrown while processing an event.
+     */
+    private void handleProcessingError(QueuedEvent event, Exception e) {
+        if (isCancelledByDrain()) {
+            logger.info("Processing cancelled by shutdown, handing off event: id={}", event.getEventId());
+            cancelledAttempts.add(event);
+            return;
+        }
+        logger.error("Error processing event: id={}", event.getEventId(), e);
+        // Mark as failure on unexpected error
+        markEventAsFailure(event, "Unexpected error: " + e.getMessage());
+    }
+    
+    /**
+     * Whether the current attempt was interrupted by the shutdown drain.
      */
-    private void updateWebhookCircuitState(Webhook webhook, CircuitBreaker.WebhookCircuitState circuitState) {
-        webhook.setCircuitBreakerState(circuitState.getState());
-        webhook.setConsecutiveFailures(circuitState.getConsecutiveFailures());
-        webhook.setCircuitOpenedAt(circuitState.getCircuitOpenedAt());
-        webhook.setLastFailureTime(circuitState.getLastFailureTime());
-        webhookRepository.save(webhook);
+    private boolean isCancelledByDrain() {
+        return !running && Thread.currentThread().isInterrupted();
     }
     
     /**
@@ -327,35 +929,37 @@ public class DeliveryWorker {
      * @param result Delivery result
      * @param decision Error decision
      * @param explanation Human-readable explanation
-     * @param circuitState Circuit breaker state
      */
-    private void applyErrorDecision(Event event, Webhook webhook, 
+    private void applyErrorDecision(QueuedEvent event, Webhook webhook,
                                    WebhookDeliveryClient.DeliveryResult result,
-                                   ErrorDecision decision, String explanation,
-                                   CircuitBreaker.WebhookCircuitState circuitState) {
+                                   ErrorDecision decision, String explanation) {
         switch (decision) {
             case RETRY:
-                if (retryPolicy.shouldRetry(event.getRetryCount())) {
-                    logger.info("Error decision: RETRY - scheduling retry for event: id={}", event.getId());
-                    scheduleRetry(event, result);
+                if (retryPolicyResolver.resolve(webhook).shouldRetry(event.getAttempt())) {
+                    logger.info("Error decision: RETRY - scheduling retry for event: id={}", event.getEventId());
+                    scheduleRetry(event, webhook, result);
                 } else {
                     logger.warn("Error decision: RETRY but max retries reached - marking as FAILURE");
                     markEventAsFailure(event, explanation);
                 }
                 break;
-                
+            
             case FAIL_PERMANENT:
                 logger.warn("Error decision: FAIL_PERMANENT - marking event as permanently failed");
                 markEventAsFailure(event, explanation);
                 break;
-                
+            
             case PAUSE_WEBHOOK:
                 logger.warn("Error decision: PAUSE_WEBHOOK - pausing webhook temporarily");
-                pauseWebhook(webhook, explanation);
-                event.setStatus(Event.EventStatus.PAUSED);
-                eventRepository.save(event);
+                // The other events of a batch find the webhook paused already
+                if (webhook.getPausedUntil() == null || !webhook.getPausedUntil().isAfter(LocalDateTime.now())) {
+                    pauseWebhook(webhook, explanation);
+                }
+                if (!parkClaimed(event, webhook.getPausedUntil())) {
+                    markEventAsPaused(event);
+                }
                 break;
-                
+            
             case ESCALATE:
                 logger.error("Error decision: ESCALATE - requires manual intervention");
                 // TODO: Send alert/notification
@@ -373,13 +977,13 @@ public class DeliveryWorker {
      * @param decision Error decision
      * @param explanation Human-readable explanation
      */
-    private void recordErrorClassification(Event event, Webhook webhook,
+    private void recordErrorClassification(QueuedEvent event, Webhook webhook,
                                           WebhookDeliveryClient.DeliveryResult result,
                                           ErrorDecision decision, String explanation) {
         String errorType = determineErrorType(result.getStatusCode());
         
         ErrorClassification classification = new ErrorClassification(
-                event.getId(),
+                event.getEventId(),
                 webhook.getId(),
                 result.getStatusCode(),
                 result.getErrorMessage(),
@@ -390,8 +994,8 @@ public class DeliveryWorker {
         );
         
         errorClassificationRepository.save(classification);
-        logger.debug("Recorded error classification: eventId={}, decision={}, errorType={}", 
-                event.getId(), decision, errorType);
+        logger.debug("Recorded error classification: eventId={}, decision={}, errorType={}",
+                event.getEventId(), decision, errorType);
     }
     
     /**
@@ -427,105 +1031,213 @@ public class DeliveryWorker {
      */
     private void pauseWebhook(Webhook webhook, String reason) {
         // Pause for 1 hour by default
+        // Only pausedUntil is written; circuit and health columns belong to the webhook's actor
         webhook.setPausedUntil(LocalDateTime.now().plusHours(1));
-        webhookRepository.save(webhook);
+        webhookRepository.updatePausedUntil(webhook.getId(), webhook.getPausedUntil());
         logger.warn("Webhook paused until: {}, reason: {}", webhook.getPausedUntil(), reason);
     }
     
+    /**
+     * Parks a claimed event in the WebhookParkingLot until its webhook may be
+     * delivered to again. The claim is handed back first (status back to PENDING or
+     * RETRY_PENDING), so the entry can claim the event again once released.
+     * 
+     * @param event The claimed event
+     * @param releaseAt When the webhook's backlog is released
+     * @return true if parked, false if the webhook's parking lot is full
+     */
+    private boolean parkClaimed(QueuedEvent event, LocalDateTime releaseAt) {
+        long releaseAtMillis = toEpochMillis(releaseAt);
+        unclaim(event, releaseAtMillis);
+        return parkingLot.park(event, releaseAtMillis);
+    }
+    
+    /**
+     * Parks a claimed event its webhook's circuit breaker refused, behind the
+     * circuit's probe (see WebhookParkingLot.parkForCircuit()), so neither OPEN nor
+     * HALF_OPEN refusals cost a retry write and timer per event.
+     * 
+     * @param event The claimed event
+     * @param admission The refusal
+     * @return true if parked, false if the webhook's parking lot is full
+     */
+    private boolean parkRefused(QueuedEvent event, WebhookActors.Admission admission) {
+        long releaseAtMillis = toEpochMillis(admission.retryAt());
+        boolean reopened = admission.state() == CircuitBreakerState.OPEN;
+        // A HALF_OPEN backlog is released as soon as the circuit closes, so it is due now
+        unclaim(event, reopened ? releaseAtMillis : System.currentTimeMillis());
+        return parkingLot.parkForCircuit(event, releaseAtMillis, reopened);
+    }
+    
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * Makes an event of an ordered webhook wait if an older event with the same
+     * ordering key is still undelivered. Retries and pauses of that event keep it
+     * ahead, so later events never overtake it. The claim is handed back while waiting.
+     * 
+     * @param event The claimed event
+     * @return true if the event waits in the OrderedDeliveryGate, false if it may be delivered now
+     */
+    private boolean waitForPredecessor(QueuedEvent event) {
+        List<EventRepository.OrderingPredecessor> predecessors = eventRepository.findUndeliveredPredecessors(
+                event.getEventId(), ORDERING_BLOCKING_STATUSES, PageRequest.of(0, 1));
+        if (predecessors.isEmpty()) {
+            return false;
+        }
+        EventRepository.OrderingPredecessor predecessor = predecessors.get(0);
+        logger.debug("Ordered event waits for predecessor: id={}, predecessorId={}, predecessorStatus={}",
+                event.getEventId(), predecessor.getId(), predecessor.getStatus());
+        unclaim(event, System.currentTimeMillis());
+        orderedDeliveryGate.await(event, predecessor.getId(), predecessor.getNextAttemptAt());
+        return true;
+    }
+    
+    /**
+     * Moves an event to PROCESSING. Queues that lease rows (jdbc) get a fresh lease
+     * here, so other nodes do not take the event over while the attempt runs.
+     * 
+     * Only the entry for the event's current attempt claims it, and a retry only
+     * once due. An event can have two entries when a hold outlives its lease and
+     * the due-time poller enqueues it again; whichever copy runs second finds the
+     * row at a later attempt, or rescheduled into the future, and is dropped
+     * instead of skipping the backoff with a stale attempt number.
+     * 
+     * @return 1 if claimed, 0 if the event is no longer deliverable by this entry
+     */
+    private int claim(QueuedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dueBy = now.plusNanos(CLAIM_DUE_SLACK_MS * 1_000_000);
+        EventQueue.ProcessingLease lease = eventQueue.processingLease();
+        if (lease == null) {
+            return eventRepository.claimForDelivery(event.getEventId(), DELIVERABLE_STATUSES, event.getAttempt(), dueBy);
+        }
+        return eventRepository.claimForDeliveryLeased(event.getEventId(), DELIVERABLE_STATUSES, event.getAttempt(),
+                dueBy, lease.owner(), now.plusSeconds(lease.seconds()));
+    }
+    
+    /**
+     * Hands back the claim on an event that is not delivered now: PROCESSING goes
+     * back to PENDING for first attempts, and for retries to RETRY_PENDING due at
+     * heldUntil (see DueRetryPoller.unclaim()).
+     * 
+     * @param event The claimed event
+     * @param heldUntil Epoch millis until which this node holds the event
+     */
+    private void unclaim(QueuedEvent event, long heldUntil) {
+        if (event.getAttempt() > 0) {
+            dueRetryPoller.unclaim(event, heldUntil);
+        } else {
+            eventRepository.updateStatusIfCurrentIn(event.getEventId(), EnumSet.of(Event.EventStatus.PROCESSING),
+                    Event.EventStatus.PENDING);
+        }
+    }
+    
+    /**
+     * Waits up to HOST_PERMIT_WAIT_MS (ASYNC mode: not at all) for a slot against the webhook's host.
+     * 
+     * @return The permit to release after delivery, or null if the host stayed saturated or the worker is stopping
+     */
+    private DeliveryConcurrencyLimiter.HostPermit acquireHostPermit(Webhook webhook) {
+        try {
+            // ASYNC mode does not block its few worker threads on a busy host
+            return concurrencyLimiter.tryAcquireHost(webhook, asyncDelivery ? 0 : HOST_PERMIT_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
     /**
      * Schedules retry after circuit breaker cooldown period.
      * 
      * @param event The event
-     * @param webhook The webhook
+     * @param retryAt When the circuit breaker may let the event through
      */
-    private void scheduleRetryAfterCooldown(Event event, Webhook webhook) {
-        if (webhook.getCircuitOpenedAt() != null) {
-            // Calculate when cooldown ends (60 seconds default)
-            LocalDateTime cooldownEnd = webhook.getCircuitOpenedAt().plusSeconds(60);
-            long delayMs = java.time.Duration.between(LocalDateTime.now(), cooldownEnd).toMillis();
-            
-            if (delayMs > 0) {
-                executorService.submit(() -> {
-                    try {
-                        Thread.sleep(delayMs);
-                        if (running) {
-                            eventQueue.enqueue(event);
-                            logger.info("Event re-enqueued after circuit breaker cooldown: id={}", event.getId());
-                        }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                });
-            }
-        }
+    private void scheduleRetryAfterCooldown(QueuedEvent event, LocalDateTime retryAt) {
+        long delayMs = Math.max(0, java.time.Duration.between(LocalDateTime.now(), retryAt).toMillis());
+        dueRetryPoller.schedule(event.dueAt(System.currentTimeMillis() + delayMs));
+        logger.info("Event scheduled for re-enqueue after circuit breaker cooldown: id={}, delay={}ms",
+                event.getEventId(), delayMs);
     }
     
     /**
      * Marks an event as successfully delivered.
      */
     @Transactional
-    private void markEventAsSuccess(Event event) {
-        event.setStatus(Event.EventStatus.SUCCESS);
-        eventRepository.save(event);
-        logger.info("Event marked as SUCCESS: id={}", event.getId());
+    private void markEventAsSuccess(QueuedEvent event) {
+        eventRepository.updateStatus(event.getEventId(), Event.EventStatus.SUCCESS);
+        evictPayload(event.getEventId());
+        orderedDeliveryGate.release(event.getEventId());
+        logger.info("Event marked as SUCCESS: id={}", event.getEventId());
     }
     
     /**
      * Marks an event as failed (non-retryable or max retries reached).
      */
     @Transactional
-    private void markEventAsFailure(Event event, String errorMessage) {
-        event.setStatus(Event.EventStatus.FAILURE);
-        eventRepository.save(event);
-        logger.error("Event marked as FAILURE: id={}, error={}", event.getId(), errorMessage);
+    private void markEventAsFailure(QueuedEvent event, String errorMessage) {
+        eventRepository.updateStatus(event.getEventId(), Event.EventStatus.FAILURE);
+        evictPayload(event.getEventId());
+        orderedDeliveryGate.release(event.getEventId());
+        logger.error("Event marked as FAILURE: id={}, error={}", event.getEventId(), errorMessage);
         // TODO: Send alert/notification for failed events
     }
     
     /**
-     * Schedules a retry for a failed event using exponential backoff.
+     * Marks an event as paused (disabled webhook, or a paused webhook whose parking lot is full).
+     * It is queued again when resumed.
+     */
+    private void markEventAsPaused(QueuedEvent event) {
+        eventRepository.updateStatus(event.getEventId(), Event.EventStatus.PAUSED);
+        evictPayload(event.getEventId());
+    }
+    
+    /**
+     * Drops the cached payload, plain and compressed, of an event that no longer needs delivering.
+     */
+    private void evictPayload(long eventId) {
+        payloadCache.evict(eventId);
+        payloadCompressor.evict(eventId);
+    }
+    
+    /**
+     * Returns the event payload from the cache, falling back to the database.
+     */
+    private String loadPayload(long eventId) {
+        String payload = payloadCache.get(eventId);
+        return payload != null ? payload : eventRepository.findPayloadById(eventId);
+    }
+    
+    /**
+     * Schedules a retry for a failed event using the webhook's retry policy.
      * Enhanced to respect Retry-After headers from rate limiting.
      */
     @Transactional
-    private void scheduleRetry(Event event, WebhookDeliveryClient.DeliveryResult result) {
-        int currentRetryCount = event.getRetryCount();
-        int newRetryCount = currentRetryCount + 1;
+    private void scheduleRetry(QueuedEvent event, Webhook webhook, WebhookDeliveryClient.DeliveryResult result) {
+        int currentRetryCount = event.getAttempt();
         
-        // Calculate delay before retry - respect Retry-After header if present
-        long delayMs = retryPolicy.calculateDelay(currentRetryCount, result.getRetryAfterSeconds());
+        // Calculate delay before retry with the webhook's policy - respect Retry-After header if present
+        long delayMs = retryPolicyResolver.resolve(webhook).calculateDelay(currentRetryCount, result.getRetryAfterSeconds());
+        QueuedEvent retry = event.nextAttempt(System.currentTimeMillis() + delayMs);
         
-        logger.info("Scheduling retry for event: id={}, retryCount={}, delay={}ms, retryAfter={}", 
-                event.getId(), newRetryCount, delayMs, result.getRetryAfterSeconds());
+        logger.info("Scheduling retry for event: id={}, retryCount={}, delay={}ms, retryAfter={}",
+                retry.getEventId(), retry.getAttempt(), delayMs, result.getRetryAfterSeconds());
         
-        // Update event status and retry count
-        event.setStatus(Event.EventStatus.RETRY_PENDING);
-        event.setRetryCount(newRetryCount);
-        eventRepository.save(event);
-        
-        // Schedule retry after delay
-        executorService.submit(() -> {
-            try {
-                Thread.sleep(delayMs);
-                // Re-enqueue the event for retry
-                if (running) {
-                    eventQueue.enqueue(event);
-                    logger.info("Event re-enqueued for retry: id={}, retryCount={}", 
-                            event.getId(), event.getRetryCount());
-                }
-            } catch (InterruptedException e) {
-                logger.warn("Retry delay interrupted for event: id={}", event.getId());
-                Thread.currentThread().interrupt();
-            }
-        });
+        // Persist status, retry count and due time; the retry is re-enqueued on the RETRY lane once due
+        dueRetryPoller.schedule(retry);
     }
     
     /**
-     * Gracefully shuts down the executor service.
+     * Waits until the drain deadline for attempts in flight, then interrupts the rest.
      */
-    private void shutdownExecutorService() {
+    private void shutdownExecutorService(long deadline) {
         executorService.shutdown();
         try {
-            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                logger.warn("ExecutorService did not terminate gracefully, forcing shutdown");
+            if (!executorService.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                logger.warn("{} delivery attempts still in flight after the drain timeout, cancelling them", inFlight.size());
                 executorService.shutdownNow();
                 if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
                     logger.error("ExecutorService did not terminate");
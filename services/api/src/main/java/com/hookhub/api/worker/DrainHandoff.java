@@ -0,0 +1,136 @@
+package com.hookhub.api.worker;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.queue.QueuedEvent;
+
+/**
+ * Writes the events a node still holds at shutdown back to the database, so any
+ * node can deliver them.
+ * 
+ * Each event becomes RETRY_PENDING with a next_attempt_at and no lease, keeping
+ * its attempt number. DueRetryPoller on a running node (or the jdbc queue) claims
+ * it once due, so a rolling deploy loses nothing and does not wait for this node
+ * to come back. Events that were due already get a random due time within
+ * hookhub.delivery.handoff-spread-ms, so a node handing off thousands of events
+ * does not cause a redelivery burst; events held until a later time (retry
+ * timers, parked or backed-off webhooks) keep that time.
+ * 
+ * Updates are conditional on the row's status: queued entries only move rows
+ * that are still PENDING or RETRY_PENDING, attempts that were cut short only
+ * rows still PROCESSING, so stale entries and attempts that finished meanwhile
+ * are left alone.
+ */
+@Component
+public class DrainHandoff {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DrainHandoff.class);
+    
+    /**
+     * Rows per batch update
+     */
+    private static final int BATCH_SIZE = 500;
+    
+    private static final String HANDOFF_QUEUED_SQL =
+            "UPDATE events SET status = 'RETRY_PENDING', next_attempt_at = ?, lease_owner = NULL, "
+            + "lease_expires_at = NULL, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = ? AND status IN ('PENDING', 'RETRY_PENDING')";
+    
+    private static final String HANDOFF_IN_FLIGHT_SQL =
+            "UPDATE events SET status = 'RETRY_PENDING', next_attempt_at = ?, lease_owner = NULL, "
+            + "lease_expires_at = NULL, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id = ? AND status = 'PROCESSING'";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final long spreadMs;
+    
+    public DrainHandoff(JdbcTemplate jdbcTemplate, DeliveryExecutorConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.spreadMs = Math.max(0, config.getHandoffSpreadMs());
+    }
+    
+    /**
+     * Hands off entries that were waiting on this node (queued, scheduled, parked or
+     * waiting for an ordered predecessor). An event listed more than once is written
+     * once, with its latest due time.
+     * 
+     * @param events Entries, each carrying its due time
+     * @return Rows handed off
+     */
+    public int handOffQueued(Collection<QueuedEvent> events) {
+        return handOff(events, HANDOFF_QUEUED_SQL);
+    }
+    
+    /**
+     * Hands off attempts that were cancelled, or still running, when the drain ended.
+     * Their outcome is unknown, so they are delivered again (at-least-once).
+     * 
+     * @param events Entries of the attempts
+     * @return Rows handed off
+     */
+    public int handOffInFlight(Collection<QueuedEvent> events) {
+        return handOff(events, HANDOFF_IN_FLIGHT_SQL);
+    }
+    
+    private int handOff(Collection<QueuedEvent> events, String sql) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, Long> dueAtById = new LinkedHashMap<>();
+        for (QueuedEvent event : events) {
+            long dueAt = event.getNextDueAt() > now
+                    ? event.getNextDueAt()
+                    : now + (spreadMs > 0 ? ThreadLocalRandom.current().nextLong(spreadMs) : 0);
+            dueAtById.merge(event.getEventId(), dueAt, Math::max);
+        }
+        
+        int handedOff = 0;
+        List<Object[]> batch = new ArrayList<>(Math.min(BATCH_SIZE, dueAtById.size()));
+        for (Map.Entry<Long, Long> entry : dueAtById.entrySet()) {
+            batch.add(new Object[] { Timestamp.valueOf(toLocalDateTime(entry.getValue())), entry.getKey() });
+            if (batch.size() == BATCH_SIZE) {
+                handedOff += write(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            handedOff += write(sql, batch);
+        }
+        return handedOff;
+    }
+    
+    private int write(String sql, List<Object[]> batch) {
+        try {
+            int written = 0;
+            for (int rows : jdbcTemplate.batchUpdate(sql, batch)) {
+                // Drivers may report SUCCESS_NO_INFO (-2) for batched statements
+                written += rows > 0 ? rows : 0;
+            }
+            return written;
+        } catch (DataAccessException e) {
+            // Rows keep their status; startup recovery and lease expiry still cover them
+            logger.warn("Failed to hand off {} events at shutdown: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,278 @@
+package com.hookhub.api.worker;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hookhub.api.model.Event;
+import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.EventQueueConfig;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.QueueCapacity;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.queue.RetryScheduler;
+import com.hookhub.api.repository.EventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the retry schedule in the database and feeds due retries into the EventQueue.
+ * 
+ * Every retry is written as RETRY_PENDING with its next_attempt_at, so retry
+ * timing survives restarts. Where the retry then waits depends on its delay:
+ * - due within hookhub.queue.retry.in-memory-horizon-ms: in the RetryScheduler's
+ *   timing wheel, with a lease that hides the row from this poller meanwhile
+ * - due later: only in the database; this poller claims it once due
+ * 
+ * The poller claims due rows in batches through the (status, next_attempt_at)
+ * index with SELECT ... FOR UPDATE SKIP LOCKED, stamps a lease so they are not
+ * claimed again while queued, and enqueues them on the RETRY lane. It only claims
+ * while the queue is below 80% of its capacity, so a backlog of millions of
+ * deferred retries costs disk rather than heap.
+ * 
+ * Rows without a next_attempt_at (written before the column existed) count as
+ * due. Retries this node holds in memory outside the timing wheel (recovered,
+ * parked, waiting for a host slot or an ordered predecessor) are handed back with
+ * unclaim(), which also stamps a due time and lease; unclaimed retries the
+ * dispatcher holds while their receiver backs off are recorded with hold().
+ * 
+ * A retry can still end up queued twice, e.g. when it sits in a deep RETRY lane
+ * past its lease. DeliveryWorker only claims a row for the entry at its current
+ * retry_count and due time, so the second copy is dropped rather than delivered
+ * early with a stale attempt number.
+ * 
+ * Queues that already schedule RETRY_PENDING rows from the database (jdbc) get
+ * the row only; the poller does not run for them. Leases are never released
+ * early, since other live nodes hold retries under theirs: retries a node held in
+ * memory when it stopped are claimed once their lease runs out, lease-seconds
+ * after they were due.
+ */
+@Component
+public class DueRetryPoller {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DueRetryPoller.class);
+    
+    /**
+     * Fraction of the queue capacity above which the poller stops claiming
+     */
+    private static final double PAUSE_THRESHOLD = 0.8;
+    
+    /**
+     * Delay before a retry refused by a full queue is offered again
+     */
+    private static final long REFUSED_RETRY_DELAY_MS = 1000;
+    
+    /**
+     * Due retries without a live lease, earliest first (served by idx_events_status_next_attempt)
+     */
+    private static final String CLAIM_DUE_SQL =
+            "SELECT id, webhook_id, retry_count, COALESCE(CHAR_LENGTH(payload), 0) AS payload_length FROM events "
+            + "WHERE status = 'RETRY_PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "AND (lease_expires_at IS NULL OR lease_expires_at < ?) "
+            + "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    
+    private static final RowMapper<QueuedEvent> CLAIMED_MAPPER = (rs, rowNum) -> new QueuedEvent(
+            rs.getLong("id"), rs.getLong("webhook_id"), rs.getInt("retry_count"), 0L, rs.getInt("payload_length"));
+    
+    private final EventRepository eventRepository;
+    private final EventQueue eventQueue;
+    private final QueueCapacity queueCapacity;
+    private final RetryScheduler retryScheduler;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final long inMemoryHorizonMs;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final long leaseSeconds;
+    
+    /**
+     * False when the queue itself claims due RETRY_PENDING rows from the database
+     */
+    private final boolean polling;
+    
+    private volatile boolean running = false;
+    private Thread pollerThread;
+    
+    public DueRetryPoller(EventRepository eventRepository,
+                          EventQueue eventQueue,
+                          QueueCapacity queueCapacity,
+                          RetryScheduler retryScheduler,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          EventQueueConfig config) {
+        this.eventRepository = eventRepository;
+        this.eventQueue = eventQueue;
+        this.queueCapacity = queueCapacity;
+        this.retryScheduler = retryScheduler;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        
+        EventQueueConfig.Retry settings = config.getRetry();
+        this.inMemoryHorizonMs = Math.max(0, settings.getInMemoryHorizonMs());
+        this.pollIntervalMs = Math.max(10, settings.getPollIntervalMs());
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.leaseSeconds = Math.max(1, settings.getLeaseSeconds());
+        this.polling = !eventQueue.selfRecoveredStatuses().contains(Event.EventStatus.RETRY_PENDING);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!polling) {
+            logger.info("Queue schedules retries from the database itself, DueRetryPoller not started");
+            return;
+        }
+        running = true;
+        pollerThread = new Thread(this::pollLoop, "DueRetryPoller-Thread");
+        pollerThread.setDaemon(true);
+        pollerThread.start();
+        logger.info("DueRetryPoller started: in-memory horizon={}ms, poll interval={}ms, batch size={}",
+                inMemoryHorizonMs, pollIntervalMs, batchSize);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (pollerThread != null) {
+            pollerThread.interrupt();
+            try {
+                pollerThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Records a retry as RETRY_PENDING with its due time and arranges for it to be
+     * enqueued on the RETRY lane once due (QueuedEvent.getNextDueAt()).
+     * 
+     * @param retry The queue entry to deliver again, carrying its attempt number and due time
+     */
+    public void schedule(QueuedEvent retry) {
+        long delayMs = retry.getNextDueAt() - System.currentTimeMillis();
+        LocalDateTime dueAt = toLocalDateTime(retry.getNextDueAt());
+        
+        if (polling && delayMs <= inMemoryHorizonMs) {
+            // Short delay: hold it in memory and hide the row from the poller until well past due
+            eventRepository.updateForRetry(retry.getEventId(), retry.getAttempt(), dueAt,
+                    dueAt.plusSeconds(leaseSeconds));
+            retryScheduler.schedule(retry, Lane.RETRY);
+        } else {
+            // Long delay (or a queue that claims due rows itself): the database row is the only copy
+            eventRepository.updateForRetry(retry.getEventId(), retry.getAttempt(), dueAt, null);
+        }
+    }
+    
+    /**
+     * Hands back the claim on a retry that this node keeps holding in memory until
+     * heldUntil: PROCESSING goes back to RETRY_PENDING with heldUntil as its due
+     * time and a lease past it, so the poller only takes the retry over if this
+     * node loses it.
+     * 
+     * @param event The claimed entry
+     * @param heldUntil Epoch millis until which the entry is held (now if unknown)
+     * @return true if the row was PROCESSING and has been handed back
+     */
+    public boolean unclaim(QueuedEvent event, long heldUntil) {
+        LocalDateTime dueAt = toLocalDateTime(heldUntil);
+        return eventRepository.updateToRetryPendingIfCurrentIn(event.getEventId(),
+                EnumSet.of(Event.EventStatus.PROCESSING), dueAt, dueAt.plusSeconds(leaseSeconds)) > 0;
+    }
+    
+    /**
+     * Records that this node holds an unclaimed retry in memory until heldUntil:
+     * the RETRY_PENDING row gets heldUntil as its due time and a lease past it, so
+     * a hold longer than the row's current lease does not let the poller enqueue a
+     * second copy. First attempts (PENDING) are never polled and need nothing.
+     * 
+     * @param event The held entry
+     * @param heldUntil Epoch millis at which the entry is released
+     */
+    public void hold(QueuedEvent event, long heldUntil) {
+        if (!polling || event.getAttempt() == 0) {
+            return;
+        }
+        LocalDateTime dueAt = toLocalDateTime(heldUntil);
+        eventRepository.extendRetryHold(event.getEventId(), event.getAttempt(), dueAt, dueAt.plusSeconds(leaseSeconds));
+    }
+    
+    private void pollLoop() {
+        while (running) {
+            try {
+                int claimed = queueCapacity.isBelow(PAUSE_THRESHOLD) ? claimDue() : 0;
+                // A full batch means more are due; otherwise wait for the next interval
+                if (claimed < batchSize) {
+                    TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in DueRetryPoller loop", e);
+            }
+        }
+    }
+    
+    /**
+     * Claims one batch of due retries and enqueues them.
+     * 
+     * @return Number of retries claimed
+     */
+    private int claimDue() {
+        List<QueuedEvent> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                Timestamp nowTimestamp = Timestamp.valueOf(now);
+                List<QueuedEvent> due = jdbcTemplate.query(CLAIM_DUE_SQL, CLAIMED_MAPPER,
+                        nowTimestamp, nowTimestamp, batchSize);
+                if (!due.isEmpty()) {
+                    List<Object> args = new ArrayList<>(due.size() + 1);
+                    args.add(Timestamp.valueOf(now.plusSeconds(leaseSeconds)));
+                    for (QueuedEvent event : due) {
+                        args.add(event.getEventId());
+                    }
+                    jdbcTemplate.update("UPDATE events SET lease_expires_at = ? WHERE id IN ("
+                            + String.join(", ", Collections.nCopies(due.size(), "?")) + ")", args.toArray());
+                }
+                return due;
+            });
+        } catch (DataAccessException e) {
+            // Keep polling through database hiccups
+            logger.warn("Failed to claim due retries: {}", e.getMessage());
+            return 0;
+        }
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        
+        for (QueuedEvent event : claimed) {
+            if (!eventQueue.enqueue(event, Lane.RETRY)) {
+                // Bounded queues (ring) can refuse; the timing wheel offers it again shortly
+                retryScheduler.schedule(event.dueAt(System.currentTimeMillis() + REFUSED_RETRY_DELAY_MS), Lane.RETRY);
+            }
+        }
+        logger.debug("Claimed {} due retries", claimed.size());
+        return claimed.size();
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
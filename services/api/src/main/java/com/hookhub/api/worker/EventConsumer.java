@@ -3,8 +3,8 @@ package com.hookhub.api.worker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hookhub.api.model.Event;
 import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.QueuedEvent;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -88,7 +88,7 @@ public class EventConsumer {
         while (running) {
             try {
                 if (!eventQueue.isEmpty()) {
-                    Event event = eventQueue.dequeue();
+                    QueuedEvent event = eventQueue.dequeue();
                     if (event != null) {
                         processEvent(event);
                     }
@@ -121,13 +121,11 @@ public class EventConsumer {
      * 
      * @param event The event to process
      */
-    private void processEvent(Event event) {
-        logger.info("Processing event: id={}, webhookId={}, status={}, retryCount={}, payload={}",
-                event.getId(),
+    private void processEvent(QueuedEvent event) {
+        logger.info("Processing event: id={}, webhookId={}, attempt={}",
+                event.getEventId(),
                 event.getWebhookId(),
-                event.getStatus(),
-                event.getRetryCount(),
-                event.getPayload());
+                event.getAttempt());
         
         // NOTE: Actual webhook delivery is now handled by DeliveryWorker (Phase 3).
         // DeliveryWorker provides:
@@ -140,12 +138,10 @@ public class EventConsumer {
         // This console output is kept for debugging purposes only
         System.out.println("========================================");
         System.out.println("Event Dequeued (EventConsumer - Deprecated):");
-        System.out.println("  ID: " + event.getId());
+        System.out.println("  ID: " + event.getEventId());
         System.out.println("  Webhook ID: " + event.getWebhookId());
-        System.out.println("  Status: " + event.getStatus());
-        System.out.println("  Retry Count: " + event.getRetryCount());
-        System.out.println("  Payload: " + event.getPayload());
-        System.out.println("  Created At: " + event.getCreatedAt());
+        System.out.println("  Attempt: " + event.getAttempt());
+        System.out.println("  Payload Bytes: " + event.getPayloadBytes());
         System.out.println("  NOTE: Use DeliveryWorker for actual webhook delivery");
         System.out.println("========================================");
     }
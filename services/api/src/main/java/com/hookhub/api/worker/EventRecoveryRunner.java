@@ -0,0 +1,226 @@
+package com.hookhub.api.worker;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Event;
+import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.EventQueueConfig;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.QueueCapacity;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.repository.EventRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Re-enqueues events left unfinished by the previous run of the application.
+ * 
+ * Events queued in memory, in flight, or waiting out a retry delay when the JVM
+ * stopped remain PENDING or PROCESSING in MySQL with nothing left to deliver them.
+ * Once the application is ready, this component streams those events from the
+ * database on a background thread (readiness is not delayed) and puts them on the
+ * RECOVERY lane:
+ * - PENDING: queued again
+ * - PROCESSING: moved back to RETRY_PENDING (delivery is at-least-once), due now
+ *   and leased through DueRetryPoller.unclaim(), and queued
+ * 
+ * RETRY_PENDING events need no recovery: DueRetryPoller claims them when their
+ * next_attempt_at has passed (or right away if it is not set) and their lease,
+ * if any, has run out.
+ * 
+ * Statuses the configured queue restores by itself (see
+ * EventQueue.selfRecoveredStatuses()) are skipped.
+ * 
+ * Events are read with keyset pagination on the primary key, a page at a time and
+ * without payloads, so memory use is independent of the backlog size. Only rows
+ * last updated before this JVM started are considered; anything newer belongs to
+ * the live worker. The re-enqueue rate is capped, and recovery pauses while the
+ * queue is above 80% of its capacity so it never crowds out new events.
+ */
+@Component
+public class EventRecoveryRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EventRecoveryRunner.class);
+    
+    /**
+     * Fraction of the queue capacity above which recovery pauses
+     */
+    private static final double PAUSE_THRESHOLD = 0.8;
+    
+    /**
+     * How long recovery waits before re-checking a full queue
+     */
+    private static final long BACKOFF_MS = 100;
+    
+    private static final Set<Event.EventStatus> UNFINISHED_STATUSES = EnumSet.of(
+            Event.EventStatus.PENDING, Event.EventStatus.PROCESSING);
+    
+    private final EventRepository eventRepository;
+    private final EventQueue eventQueue;
+    private final QueueCapacity queueCapacity;
+    private final JdbcTemplate jdbcTemplate;
+    private final DueRetryPoller dueRetryPoller;
+    private final EventQueueConfig.Recovery settings;
+    
+    private volatile boolean running = false;
+    private Thread recoveryThread;
+    
+    public EventRecoveryRunner(EventRepository eventRepository,
+                               EventQueue eventQueue,
+                               QueueCapacity queueCapacity,
+                               JdbcTemplate jdbcTemplate,
+                               DueRetryPoller dueRetryPoller,
+                               EventQueueConfig queueConfig) {
+        this.eventRepository = eventRepository;
+        this.eventQueue = eventQueue;
+        this.queueCapacity = queueCapacity;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dueRetryPoller = dueRetryPoller;
+        this.settings = queueConfig.getRecovery();
+    }
+    
+    /**
+     * Starts recovery in the background once the application is ready to serve traffic.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!settings.isEnabled()) {
+            logger.info("Startup recovery disabled");
+            return;
+        }
+        
+        Set<Event.EventStatus> statuses = EnumSet.copyOf(UNFINISHED_STATUSES);
+        statuses.removeAll(eventQueue.selfRecoveredStatuses());
+        if (statuses.isEmpty()) {
+            logger.info("Queue recovers all unfinished events itself, skipping startup recovery");
+            return;
+        }
+        
+        running = true;
+        recoveryThread = new Thread(() -> recover(statuses), "EventRecovery-Thread");
+        recoveryThread.setDaemon(true);
+        recoveryThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (recoveryThread != null) {
+            recoveryThread.interrupt();
+        }
+    }
+    
+    /**
+     * Streams unfinished events page by page and re-enqueues them.
+     * 
+     * @param statuses Statuses to recover
+     */
+    private void recover(Set<Event.EventStatus> statuses) {
+        try {
+            LocalDateTime cutoff = processStartTime();
+            int pageSize = Math.max(1, settings.getPageSize());
+            int eventsPerSecond = Math.max(1, settings.getEventsPerSecond());
+            logger.info("Startup recovery started: statuses={}, updatedBefore={}, rate={}/s",
+                    statuses, cutoff, eventsPerSecond);
+            
+            long startNanos = System.nanoTime();
+            long afterId = 0;
+            long recovered = 0;
+            while (running) {
+                List<EventRepository.RecoverableEvent> page = eventRepository.findRecoverablePage(
+                        statuses, afterId, cutoff, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (EventRepository.RecoverableEvent row : page) {
+                    if (!running) {
+                        break;
+                    }
+                    afterId = row.getId();
+                    if (recoverEvent(row)) {
+                        recovered++;
+                        throttle(recovered, eventsPerSecond, startNanos);
+                    }
+                }
+                logger.debug("Startup recovery progress: recovered={}, lastId={}", recovered, afterId);
+            }
+            
+            logger.info("Startup recovery finished: recovered={} events in {}ms",
+                    recovered, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Startup recovery interrupted");
+        } catch (Exception e) {
+            logger.error("Startup recovery failed", e);
+        }
+    }
+    
+    /**
+     * Queues one event again.
+     * 
+     * @return true if the event was queued, false if its status changed meanwhile
+     */
+    private boolean recoverEvent(EventRepository.RecoverableEvent row) throws InterruptedException {
+        QueuedEvent event = new QueuedEvent(row.getId(), row.getWebhookId(),
+                row.getRetryCount() != null ? row.getRetryCount() : 0,
+                0L, row.getPayloadLength() != null ? row.getPayloadLength() : 0);
+        // Due now, leased so the poller leaves it alone while it waits in the queue
+        if (row.getStatus() == Event.EventStatus.PROCESSING
+                && !dueRetryPoller.unclaim(event, System.currentTimeMillis())) {
+            return false;
+        }
+        
+        offer(event);
+        return true;
+    }
+    
+    /**
+     * Enqueues on the RECOVERY lane, waiting while the queue is nearly full.
+     */
+    private void offer(QueuedEvent event) throws InterruptedException {
+        while (running && !queueCapacity.isBelow(PAUSE_THRESHOLD)) {
+            Thread.sleep(BACKOFF_MS);
+        }
+        // Bounded queues (ring) can still refuse; wait for a consumer to make room
+        while (running && !eventQueue.enqueue(event, Lane.RECOVERY)) {
+            Thread.sleep(BACKOFF_MS);
+        }
+    }
+    
+    /**
+     * Sleeps just long enough to keep the average rate at or below the limit.
+     */
+    private static void throttle(long recovered, int eventsPerSecond, long startNanos) throws InterruptedException {
+        long targetNanos = recovered * 1_000_000_000L / eventsPerSecond;
+        long aheadNanos = targetNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 1_000_000) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+    
+    /**
+     * Database time at which this JVM started, so it compares correctly with
+     * updated_at values written with CURRENT_TIMESTAMP.
+     */
+    private LocalDateTime processStartTime() {
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+        long uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        LocalDateTime databaseNow = now != null ? now.toLocalDateTime() : LocalDateTime.now();
+        return databaseNow.minus(Duration.ofMillis(uptimeMs));
+    }
+}
@@ -0,0 +1,64 @@
+package com.hookhub.api.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retries after a fixed list of delays, one per attempt (e.g. 1s, 10s, 1m, 10m).
+ * The number of retries is the length of the schedule.
+ */
+public class FixedScheduleRetryPolicy implements RetryPolicy {
+    
+    private final long[] delaysMs;
+    
+    /**
+     * @param delaysMs Delay before each retry, in order
+     */
+    public FixedScheduleRetryPolicy(long[] delaysMs) {
+        if (delaysMs == null || delaysMs.length == 0) {
+            throw new IllegalArgumentException("Retry schedule cannot be empty");
+        }
+        for (long delay : delaysMs) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("Retry schedule delays cannot be negative");
+            }
+        }
+        this.delaysMs = delaysMs.clone();
+    }
+    
+    /**
+     * Parses a comma-separated list of delays in milliseconds, e.g. "1000,10000,60000".
+     * 
+     * @param schedule Delays in milliseconds
+     * @return The policy
+     * @throws IllegalArgumentException if the schedule is empty or not a list of numbers
+     */
+    public static FixedScheduleRetryPolicy parse(String schedule) {
+        if (schedule == null || schedule.isBlank()) {
+            throw new IllegalArgumentException("Retry schedule cannot be empty");
+        }
+        List<Long> delays = new ArrayList<>();
+        for (String part : schedule.split(",")) {
+            try {
+                delays.add(Long.parseLong(part.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid retry schedule delay: " + part.trim());
+            }
+        }
+        return new FixedScheduleRetryPolicy(delays.stream().mapToLong(Long::longValue).toArray());
+    }
+    
+    @Override
+    public long calculateDelay(int retryCount, Integer retryAfterSeconds) {
+        long delay = delaysMs[Math.min(retryCount, delaysMs.length - 1)];
+        if (retryAfterSeconds != null && retryAfterSeconds > 0) {
+            delay = Math.max(delay, retryAfterSeconds * 1000L);
+        }
+        return delay;
+    }
+    
+    @Override
+    public int getMaxRetries() {
+        return delaysMs.length;
+    }
+}
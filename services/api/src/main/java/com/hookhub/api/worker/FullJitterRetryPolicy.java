@@ -0,0 +1,27 @@
+package com.hookhub.api.worker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the delay is uniformly random between 0
+ * and min(maxDelay, baseDelay * 2^retryCount), so it never exceeds the cap and
+ * retries of many events spread out instead of arriving together.
+ * 
+ * Example delays (with baseDelay=1000ms, maxDelay=60000ms):
+ * - Retry 1: 0-1000ms
+ * - Retry 2: 0-2000ms
+ * - Retry 3: 0-4000ms
+ * - Retry 7+: 0-60000ms (capped at maxDelay)
+ */
+public class FullJitterRetryPolicy extends BackoffRetryPolicy {
+    
+    public FullJitterRetryPolicy(long baseDelayMs, long maxDelayMs, int maxRetries) {
+        super(baseDelayMs, maxDelayMs, maxRetries);
+    }
+    
+    @Override
+    protected long backoff(int retryCount) {
+        long ceiling = cappedExponential(retryCount, 2);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.hookhub.api.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for honoring receivers' Retry-After across webhooks.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.retry.backoff.enabled=true
+ * hookhub.retry.backoff.scope=HOST
+ * hookhub.retry.backoff.max-backoff-seconds=3600
+ * hookhub.retry.backoff.release-jitter-ms=1000
+ * 
+ * With these values a 429 or 503 carrying Retry-After holds every event bound for
+ * the same host and port until the advertised time (at most an hour), then lets
+ * them go spread over one second.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.retry.backoff")
+public class HostBackoffConfig {
+    
+    /**
+     * What a Retry-After applies to
+     */
+    public enum Scope {
+        /**
+         * Every webhook whose URL has the same host and port
+         */
+        HOST,
+        
+        /**
+         * Only the webhook that received it
+         */
+        WEBHOOK
+    }
+    
+    private boolean enabled = true;
+    
+    private Scope scope = Scope.HOST;
+    
+    /**
+     * Longest backoff honored, however far away the advertised time is
+     */
+    private long maxBackoffSeconds = 3600;
+    
+    /**
+     * Held events are released at a random point within this window after the backoff ends
+     */
+    private long releaseJitterMs = 1000;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Scope getScope() {
+        return scope;
+    }
+    
+    public void setScope(Scope scope) {
+        this.scope = scope;
+    }
+    
+    public long getMaxBackoffSeconds() {
+        return maxBackoffSeconds;
+    }
+    
+    public void setMaxBackoffSeconds(long maxBackoffSeconds) {
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+    
+    public long getReleaseJitterMs() {
+        return releaseJitterMs;
+    }
+    
+    public void setReleaseJitterMs(long releaseJitterMs) {
+        this.releaseJitterMs = releaseJitterMs;
+    }
+}
@@ -0,0 +1,197 @@
+package com.hookhub.api.worker;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Webhook;
+
+/**
+ * HostBackoffRegistry remembers receivers that asked us to wait and holds their events until then.
+ * 
+ * A 429 or 503 with Retry-After is recorded for the receiver's host and port
+ * (or only for the webhook, with hookhub.retry.backoff.scope=WEBHOOK). Until the
+ * advertised time, holdUntil() tells the DeliveryWorker to keep every event bound
+ * there out of the delivery threads, including events of other webhooks that
+ * point at the same host, instead of sending requests the receiver already said
+ * it will reject.
+ * 
+ * Queue entries carry only the webhook ID, so the registry learns each webhook's
+ * host when one of its events is processed (rememberWebhook()). Held events are
+ * released with a little jitter so they do not all arrive the moment the backoff
+ * ends. Backoffs live in memory only.
+ */
+@Component
+public class HostBackoffRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HostBackoffRegistry.class);
+    
+    /**
+     * RFC 850 dates (obsolete, but recipients must accept them); two-digit years map to 1970-2069
+     */
+    private static final DateTimeFormatter RFC_850_DATE_TIME = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("EEEE, dd-MMM-")
+            .appendValueReduced(ChronoField.YEAR, 2, 2, 1970)
+            .appendPattern(" HH:mm:ss zzz")
+            .toFormatter(Locale.US);
+    
+    /**
+     * ANSI C asctime() dates (obsolete), always in GMT
+     */
+    private static final DateTimeFormatter ASCTIME_DATE_TIME = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("EEE MMM d HH:mm:ss yyyy")
+            .toFormatter(Locale.US);
+    
+    /**
+     * Webhook URL and the backoff key derived from it
+     */
+    private record WebhookKey(String url, String key) {
+    }
+    
+    private final HostBackoffConfig config;
+    
+    /**
+     * Backoff key (host:port or webhook ID) to the epoch millis until which it is held
+     */
+    private final ConcurrentHashMap<String, Long> backoffs = new ConcurrentHashMap<>();
+    
+    /**
+     * Backoff key of each webhook seen so far
+     */
+    private final ConcurrentHashMap<Long, WebhookKey> webhookKeys = new ConcurrentHashMap<>();
+    
+    public HostBackoffRegistry(HostBackoffConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Records which host a webhook delivers to, so its queued events can be held
+     * when that host backs off.
+     * 
+     * @param webhook The webhook being delivered to
+     */
+    public void rememberWebhook(Webhook webhook) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        WebhookKey known = webhookKeys.get(webhook.getId());
+        if (known == null || !known.url().equals(webhook.getUrl())) {
+            webhookKeys.put(webhook.getId(), new WebhookKey(webhook.getUrl(), keyFor(webhook)));
+        }
+    }
+    
+    /**
+     * Records a Retry-After received from a webhook's receiver. Only 429 and 503
+     * responses are honored; a later time extends an active backoff, an earlier
+     * one does not shorten it.
+     * 
+     * @param webhook The webhook whose delivery received the response
+     * @param statusCode HTTP status of the response
+     * @param retryAfterSeconds Retry-After in seconds from now, or null if absent
+     */
+    public void recordRetryAfter(Webhook webhook, int statusCode, Integer retryAfterSeconds) {
+        if (!config.isEnabled() || retryAfterSeconds == null || retryAfterSeconds <= 0) {
+            return;
+        }
+        if (statusCode != 429 && statusCode != 503) {
+            return;
+        }
+        rememberWebhook(webhook);
+        String key = webhookKeys.get(webhook.getId()).key();
+        long seconds = Math.min(retryAfterSeconds, Math.max(0, config.getMaxBackoffSeconds()));
+        long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        
+        Long previous = backoffs.get(key);
+        backoffs.merge(key, until, Math::max);
+        if (previous == null || previous < until) {
+            logger.info("Backing off {} for {}s after status {} from webhook: id={}",
+                    key, seconds, statusCode, webhook.getId());
+        }
+    }
+    
+    /**
+     * Returns until when events of a webhook should be held, including release jitter.
+     * 
+     * @param webhookId Webhook the event is bound for
+     * @return Epoch millis to hold the event until, or 0 if it may be delivered now
+     */
+    public long holdUntil(long webhookId) {
+        if (!config.isEnabled() || backoffs.isEmpty()) {
+            return 0;
+        }
+        WebhookKey webhookKey = webhookKeys.get(webhookId);
+        if (webhookKey == null) {
+            return 0;
+        }
+        Long until = backoffs.get(webhookKey.key());
+        if (until == null) {
+            return 0;
+        }
+        if (until <= System.currentTimeMillis()) {
+            // Expired; drop it unless it was extended meanwhile
+            backoffs.remove(webhookKey.key(), until);
+            return 0;
+        }
+        long jitter = Math.max(0, config.getReleaseJitterMs());
+        return until + ThreadLocalRandom.current().nextLong(jitter + 1);
+    }
+    
+    /**
+     * Parses a Retry-After header value: delay-seconds, or an HTTP-date in IMF-fixdate,
+     * RFC 850 or asctime format.
+     * 
+     * @param value The header value
+     * @param nowMs Current time in epoch millis, to turn a date into a delay
+     * @return Delay in milliseconds (0 for a date in the past), or null if the value cannot be parsed
+     */
+    public static Long parseRetryAfterMillis(String value, long nowMs) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            // Anything beyond nine digits is longer than any backoff we honor
+            return trimmed.length() > 9 ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+        }
+        
+        String normalized = trimmed.replaceAll("\\s+", " ");
+        Long dateMs = parseDate(normalized, DateTimeFormatter.RFC_1123_DATE_TIME);
+        if (dateMs == null) {
+            dateMs = parseDate(normalized, RFC_850_DATE_TIME);
+        }
+        if (dateMs == null) {
+            try {
+                dateMs = LocalDateTime.parse(normalized, ASCTIME_DATE_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return Math.max(0, dateMs - nowMs);
+    }
+    
+    private static Long parseDate(String value, DateTimeFormatter formatter) {
+        try {
+            return ZonedDateTime.parse(value, formatter).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private String keyFor(Webhook webhook) {
+        return config.getScope() == HostBackoffConfig.Scope.HOST ? HostKey.of(webhook) : HostKey.forWebhook(webhook);
+    }
+}
@@ -0,0 +1,48 @@
+package com.hookhub.api.worker;
+
+import java.net.URI;
+import java.util.Locale;
+
+import com.hookhub.api.model.Webhook;
+
+/**
+ * Derives the key under which per-receiver state (backoffs, concurrency limits) is kept.
+ * 
+ * Webhooks whose URLs share host and port share a key, so limits apply to the
+ * receiving server rather than to each webhook. URLs without a parseable host get
+ * a key of their own per webhook.
+ */
+final class HostKey {
+    
+    private HostKey() {
+    }
+    
+    /**
+     * Returns "host:port" of the webhook's URL, with the scheme's default port if none is given.
+     * 
+     * @param webhook The webhook
+     * @return The receiver key, or "webhook:{id}" if the URL has no parseable host
+     */
+    static String of(Webhook webhook) {
+        try {
+            URI uri = URI.create(webhook.getUrl());
+            if (uri.getHost() != null) {
+                int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+                return uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall through to a per-webhook key
+        }
+        return forWebhook(webhook);
+    }
+    
+    /**
+     * Returns the key used when state is kept per webhook rather than per host.
+     * 
+     * @param webhook The webhook
+     * @return "webhook:{id}"
+     */
+    static String forWebhook(Webhook webhook) {
+        return "webhook:" + webhook.getId();
+    }
+}
@@ -0,0 +1,234 @@
+package com.hookhub.api.worker;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.queue.RetryScheduler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds events of ordered webhooks until the event before them (same webhook and
+ * ordering key) is delivered or has failed for good.
+ * 
+ * Which event comes first is decided in the database: DeliveryWorker looks up the
+ * nearest older undelivered event of the same key after the claim and, if there
+ * is one, hands its claim back and waits here on that predecessor. Each event
+ * waits on its immediate predecessor, so a backlog forms a chain and every
+ * completion wakes exactly one event; keys with nothing waiting cost no memory,
+ * so the number of distinct keys is unbounded.
+ * 
+ * A waiting event is released:
+ * - As soon as its predecessor is marked SUCCESS or FAILURE on this node (release())
+ * - Otherwise when its re-check time comes: shortly after the predecessor's next
+ *   retry is due, at most MAX_RECHECK_MS later. This covers predecessors delivered
+ *   by another node, after a restart, or in the moment between lookup and wait
+ * 
+ * Released events go back to the queue and check their predecessor again, so a
+ * stale release only costs a lookup. Waiting events are not written anywhere
+ * while waiting: their rows keep their status. At shutdown DeliveryWorker's drain
+ * takes them with drain() and records their re-check times in the database.
+ */
+@Component
+public class OrderedDeliveryGate {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderedDeliveryGate.class);
+    
+    /**
+     * Most events waiting in memory; beyond this they only re-check on a timer
+     */
+    private static final int MAX_WAITING = 1_000_000;
+    
+    /**
+     * Earliest re-check of a waiting event, e.g. while its predecessor is being delivered elsewhere
+     */
+    private static final long MIN_RECHECK_MS = 2000;
+    
+    /**
+     * Latest re-check of a waiting event, however far off its predecessor's retry is
+     */
+    private static final long MAX_RECHECK_MS = 60_000;
+    
+    /**
+     * How often the release thread looks for waiting events whose re-check time has come
+     */
+    private static final long RELEASE_CHECK_INTERVAL_MS = 250;
+    
+    /**
+     * Delay before offering a refused entry to the queue again
+     */
+    private static final long REFUSED_RETRY_DELAY_MS = 1000;
+    
+    /**
+     * An event waiting on its predecessor
+     */
+    private record Waiter(QueuedEvent event, long recheckAt) {
+    }
+    
+    private final EventQueue eventQueue;
+    private final RetryScheduler retryScheduler;
+    
+    /**
+     * Waiting events by the ID of the predecessor they wait on
+     */
+    private final ConcurrentHashMap<Long, Waiter> waiters = new ConcurrentHashMap<>();
+    
+    private volatile boolean running = false;
+    private Thread releaseThread;
+    
+    public OrderedDeliveryGate(EventQueue eventQueue, RetryScheduler retryScheduler) {
+        this.eventQueue = eventQueue;
+        this.retryScheduler = retryScheduler;
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        releaseThread = new Thread(this::releaseLoop, "OrderedDeliveryGate-Release");
+        releaseThread.setDaemon(true);
+        releaseThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopReleasing();
+        int waiting = size();
+        if (waiting > 0) {
+            logger.info("OrderedDeliveryGate stopped with {} waiting events; they are recovered from the database at startup", waiting);
+        }
+    }
+    
+    /**
+     * Holds an unclaimed event until its predecessor completes.
+     * 
+     * @param event The event that must not be delivered yet
+     * @param predecessorId ID of the nearest older undelivered event with the same key
+     * @param predecessorDueAt When the predecessor's next retry is due, or null if unknown
+     */
+    public void await(QueuedEvent event, long predecessorId, LocalDateTime predecessorDueAt) {
+        long now = System.currentTimeMillis();
+        long recheckAt = now + MIN_RECHECK_MS;
+        if (predecessorDueAt != null) {
+            long dueAt = predecessorDueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            recheckAt = Math.min(now + MAX_RECHECK_MS, Math.max(recheckAt, dueAt + MIN_RECHECK_MS));
+        }
+        
+        Waiter waiter = new Waiter(event, recheckAt);
+        if (waiters.size() < MAX_WAITING) {
+            Waiter existing = waiters.putIfAbsent(predecessorId, waiter);
+            if (existing == null || existing.event().getEventId() == event.getEventId()) {
+                return;
+            }
+        }
+        // Full, or another event already waits on the same predecessor: re-check on a timer only
+        retryScheduler.schedule(event.dueAt(recheckAt), laneOf(event));
+    }
+    
+    /**
+     * Releases the event waiting on a completed event, if any. Called for every
+     * event marked SUCCESS or FAILURE.
+     * 
+     * @param eventId ID of the event that completed
+     */
+    public void release(long eventId) {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        Waiter waiter = waiters.remove(eventId);
+        if (waiter != null) {
+            offer(waiter.event(), System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Stops releasing and removes every waiting event, for the shutdown drain.
+     * 
+     * @return Waiting entries, each due at its re-check time
+     */
+    public List<QueuedEvent> drain() {
+        stopReleasing();
+        List<QueuedEvent> drained = new ArrayList<>();
+        for (Long predecessorId : waiters.keySet()) {
+            Waiter waiter = waiters.remove(predecessorId);
+            if (waiter != null) {
+                drained.add(waiter.event().dueAt(waiter.recheckAt()));
+            }
+        }
+        return drained;
+    }
+    
+    /**
+     * Returns the number of events waiting in memory.
+     * 
+     * @return Waiting events across all webhooks and keys
+     */
+    public int size() {
+        return waiters.size();
+    }
+    
+    private void stopReleasing() {
+        running = false;
+        if (releaseThread != null) {
+            releaseThread.interrupt();
+            try {
+                releaseThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void releaseLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(RELEASE_CHECK_INTERVAL_MS);
+                releaseDue(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in OrderedDeliveryGate release loop", e);
+            }
+        }
+    }
+    
+    /**
+     * Releases every waiting event whose re-check time has come.
+     */
+    private void releaseDue(long now) {
+        Iterator<Map.Entry<Long, Waiter>> iterator = waiters.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Waiter> entry = iterator.next();
+            Waiter waiter = entry.getValue();
+            if (waiter.recheckAt() <= now && waiters.remove(entry.getKey(), waiter)) {
+                offer(waiter.event(), now);
+            }
+        }
+    }
+    
+    private void offer(QueuedEvent event, long now) {
+        Lane lane = laneOf(event);
+        if (!eventQueue.enqueue(event, lane)) {
+            // Bounded queues (ring) can refuse; the timing wheel offers it again shortly
+            retryScheduler.schedule(event.dueAt(now + REFUSED_RETRY_DELAY_MS), lane);
+        }
+    }
+    
+    private static Lane laneOf(QueuedEvent event) {
+        return event.getAttempt() > 0 ? Lane.RETRY : Lane.FRESH;
+    }
+}
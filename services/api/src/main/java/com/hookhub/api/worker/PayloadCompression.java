@@ -0,0 +1,10 @@
+package com.hookhub.api.worker;
+
+/**
+ * Content encodings a webhook can choose for its request bodies (Webhook.payloadCompression).
+ */
+public enum PayloadCompression {
+    NONE,   // Bodies are sent as plain JSON
+    GZIP,   // Content-Encoding: gzip
+    ZSTD    // Content-Encoding: zstd (faster than gzip at a similar ratio)
+}
@@ -0,0 +1,240 @@
+package com.hookhub.api.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Component;
+
+import com.github.luben.zstd.Zstd;
+import com.hookhub.api.model.Webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Encodes webhook request bodies with the webhook's PayloadCompression.
+ * 
+ * Bodies below the webhook's compressionMinBytes (default
+ * hookhub.delivery.compression.min-bytes) are sent as they are, since small
+ * bodies gain little and cost a compression per attempt. Compressed payloads are
+ * kept per event, bounded by cache-max-bytes and evicted oldest-first like
+ * PayloadCache, so retries send the same bytes without compressing again; a body
+ * that does not get smaller is remembered and sent plain.
+ * 
+ * Compression is opt-in per webhook and there is no way to ask a receiver
+ * beforehand, so a 415 answer to a compressed request is taken as a refusal
+ * (RFC 7694): WebhookDeliveryClient resends the body plain and the webhook gets
+ * plain bodies for refusal-recheck-ms.
+ * 
+ * Compression is measured per codec as hookhub.delivery.compression.ratio
+ * (original / compressed size, per compression) and
+ * hookhub.delivery.compression.bytes.in and .out (per request sent).
+ */
+@Component
+public class PayloadCompressor {
+    
+    /**
+     * Approximate fixed cost of a cache entry (map node, boxed key, array header)
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    
+    /**
+     * A request body and the Content-Encoding it is sent with
+     * 
+     * @param bytes The body, or null for no body
+     * @param contentEncoding "gzip" or "zstd", or null if the body is not compressed
+     */
+    public record EncodedBody(byte[] bytes, String contentEncoding) {
+        
+        static EncodedBody plain(String payload) {
+            return new EncodedBody(payload != null ? payload.getBytes(StandardCharsets.UTF_8) : null, null);
+        }
+        
+        boolean isCompressed() {
+            return contentEncoding != null;
+        }
+    }
+    
+    /**
+     * Result of compressing an event's payload; compressed is null if it did not get smaller
+     */
+    private record Compressed(PayloadCompression codec, byte[] compressed, int originalBytes) {
+    }
+    
+    private final DeliveryCompressionConfig config;
+    
+    /**
+     * Insertion-ordered so the eldest entry is evicted first
+     */
+    private final LinkedHashMap<Long, Compressed> cache = new LinkedHashMap<>();
+    private long cachedBytes;
+    
+    /**
+     * Webhooks whose receiver refused compressed bodies, until when
+     */
+    private final ConcurrentHashMap<Long, Long> refusedUntil = new ConcurrentHashMap<>();
+    
+    private final Map<PayloadCompression, DistributionSummary> ratios = new EnumMap<>(PayloadCompression.class);
+    private final Map<PayloadCompression, Counter> bytesIn = new EnumMap<>(PayloadCompression.class);
+    private final Map<PayloadCompression, Counter> bytesOut = new EnumMap<>(PayloadCompression.class);
+    
+    public PayloadCompressor(DeliveryCompressionConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        for (PayloadCompression codec : PayloadCompression.values()) {
+            if (codec == PayloadCompression.NONE) {
+                continue;
+            }
+            String tag = contentEncoding(codec);
+            ratios.put(codec, DistributionSummary.builder("hookhub.delivery.compression.ratio")
+                    .tag("codec", tag)
+                    .description("Original size / compressed size of compressed webhook bodies")
+                    .register(meterRegistry));
+            bytesIn.put(codec, Counter.builder("hookhub.delivery.compression.bytes.in")
+                    .tag("codec", tag)
+                    .baseUnit("bytes")
+                    .description("Webhook body bytes before compression")
+                    .register(meterRegistry));
+            bytesOut.put(codec, Counter.builder("hookhub.delivery.compression.bytes.out")
+                    .tag("codec", tag)
+                    .baseUnit("bytes")
+                    .description("Webhook body bytes sent after compression")
+                    .register(meterRegistry));
+        }
+    }
+    
+    /**
+     * Encodes a request body for a webhook.
+     * 
+     * @param webhook The webhook the body is sent to
+     * @param eventId The event whose payload this is, or null if the body is not one
+     *                event's payload (a batch); only event payloads are cached
+     * @param payload The JSON body, or null
+     * @return The body to send
+     */
+    public EncodedBody encode(Webhook webhook, Long eventId, String payload) {
+        PayloadCompression codec = webhook.getPayloadCompression();
+        if (payload == null || codec == null || codec == PayloadCompression.NONE || isRefused(webhook.getId())) {
+            return EncodedBody.plain(payload);
+        }
+        
+        Compressed compressed = eventId != null ? cached(eventId, codec) : null;
+        if (compressed == null) {
+            byte[] original = payload.getBytes(StandardCharsets.UTF_8);
+            int minBytes = webhook.getCompressionMinBytes() != null ? webhook.getCompressionMinBytes() : config.getMinBytes();
+            if (original.length < minBytes) {
+                return new EncodedBody(original, null);
+            }
+            byte[] bytes = compress(codec, original);
+            ratios.get(codec).record((double) original.length / Math.max(1, bytes.length));
+            compressed = new Compressed(codec, bytes.length < original.length ? bytes : null, original.length);
+            if (eventId != null) {
+                cache(eventId, compressed);
+            }
+        }
+        
+        if (compressed.compressed() == null) {
+            // Incompressible (already compressed or random data): plain is smaller
+            return EncodedBody.plain(payload);
+        }
+        bytesIn.get(codec).increment(compressed.originalBytes());
+        bytesOut.get(codec).increment(compressed.compressed().length);
+        return new EncodedBody(compressed.compressed(), contentEncoding(codec));
+    }
+    
+    /**
+     * Records that a webhook's receiver refused a compressed body; it gets plain
+     * bodies for refusal-recheck-ms.
+     * 
+     * @param webhook The webhook
+     */
+    public void refuse(Webhook webhook) {
+        refusedUntil.put(webhook.getId(), System.currentTimeMillis() + config.getRefusalRecheckMs());
+    }
+    
+    /**
+     * Removes an event's compressed payload once the event no longer needs delivering.
+     * 
+     * @param eventId Event ID
+     */
+    public void evict(long eventId) {
+        synchronized (cache) {
+            Compressed removed = cache.remove(eventId);
+            if (removed != null) {
+                cachedBytes -= estimateBytes(removed);
+            }
+        }
+    }
+    
+    private boolean isRefused(Long webhookId) {
+        Long until = refusedUntil.get(webhookId);
+        if (until == null) {
+            return false;
+        }
+        if (until > System.currentTimeMillis()) {
+            return true;
+        }
+        refusedUntil.remove(webhookId, until);
+        return false;
+    }
+    
+    private Compressed cached(long eventId, PayloadCompression codec) {
+        synchronized (cache) {
+            Compressed compressed = cache.get(eventId);
+            // The webhook may have switched codecs since the event was compressed
+            return compressed != null && compressed.codec() == codec ? compressed : null;
+        }
+    }
+    
+    private void cache(long eventId, Compressed compressed) {
+        long size = estimateBytes(compressed);
+        if (size > config.getCacheMaxBytes()) {
+            return;
+        }
+        synchronized (cache) {
+            Compressed previous = cache.put(eventId, compressed);
+            if (previous != null) {
+                cachedBytes -= estimateBytes(previous);
+            }
+            cachedBytes += size;
+            Iterator<Map.Entry<Long, Compressed>> eldest = cache.entrySet().iterator();
+            while (cachedBytes > config.getCacheMaxBytes() && eldest.hasNext()) {
+                cachedBytes -= estimateBytes(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+    }
+    
+    private byte[] compress(PayloadCompression codec, byte[] original) {
+        if (codec == PayloadCompression.ZSTD) {
+            return Zstd.compress(original, config.getZstdLevel());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, original.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(config.getGzipLevel());
+            }
+        }) {
+            gzip.write(original);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to gzip webhook payload", e);
+        }
+        return out.toByteArray();
+    }
+    
+    private static String contentEncoding(PayloadCompression codec) {
+        return codec.name().toLowerCase(Locale.ROOT);
+    }
+    
+    private static long estimateBytes(Compressed compressed) {
+        return ENTRY_OVERHEAD_BYTES + (compressed.compressed() != null ? compressed.compressed().length : 0);
+    }
+}
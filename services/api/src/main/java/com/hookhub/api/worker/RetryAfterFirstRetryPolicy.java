@@ -0,0 +1,24 @@
+package com.hookhub.api.worker;
+
+/**
+ * Honours the receiver's Retry-After header exactly when present (not sooner
+ * than baseDelay), and falls back to full jitter backoff otherwise.
+ * 
+ * Suited to rate-limited endpoints that say when they can take traffic again:
+ * unlike the other strategies, a Retry-After shorter than the backoff is not
+ * stretched.
+ */
+public class RetryAfterFirstRetryPolicy extends FullJitterRetryPolicy {
+    
+    public RetryAfterFirstRetryPolicy(long baseDelayMs, long maxDelayMs, int maxRetries) {
+        super(baseDelayMs, maxDelayMs, maxRetries);
+    }
+    
+    @Override
+    public long calculateDelay(int retryCount, Integer retryAfterSeconds) {
+        if (retryAfterSeconds != null && retryAfterSeconds > 0) {
+            return Math.max(retryAfterSeconds * 1000L, baseDelayMs);
+        }
+        return backoff(retryCount);
+    }
+}
@@ -0,0 +1,151 @@
+package com.hookhub.api.worker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * RetryBudget bounds how many retries are sent, per webhook and overall.
+ * 
+ * RetryPolicy limits retries per event; during an outage every event of a
+ * webhook still retries up to that limit, multiplying the load on the failing
+ * receiver. The budget caps retry traffic with token buckets:
+ * - Per webhook: each first delivery attempt earns ratio tokens, and every
+ *   webhook earns minRetriesPerSecond on top, up to maxTokens
+ * - Globally: tokens refill at globalRetriesPerSecond
+ * 
+ * A retry spends one token from both buckets when it is about to be sent. When
+ * either is empty the retry is not dropped; DeliveryWorker defers it by
+ * deferDelayMs() and tries again then, with the same attempt number.
+ * 
+ * Buckets live in memory only and start full on each run.
+ */
+@Component
+public class RetryBudget {
+    
+    /**
+     * Bounds for how long a retry is deferred when the budget is exhausted
+     */
+    private static final long MIN_DEFER_MS = 1000;
+    private static final long MAX_DEFER_MS = 60000;
+    
+    /**
+     * Token bucket refilled continuously at a fixed rate, plus explicit deposits.
+     */
+    static final class TokenBucket {
+        
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+        
+        TokenBucket(double capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+        
+        synchronized boolean tryTake() {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+        
+        synchronized void deposit(double amount) {
+            refill();
+            tokens = Math.min(capacity, tokens + amount);
+        }
+        
+        /**
+         * Milliseconds until the refill alone yields a whole token (0 if one is available).
+         */
+        synchronized long millisUntilToken() {
+            refill();
+            if (tokens >= 1) {
+                return 0;
+            }
+            if (refillPerNano <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return TimeUnit.NANOSECONDS.toMillis((long) ((1 - tokens) / refillPerNano));
+        }
+        
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+        }
+    }
+    
+    private final RetryBudgetConfig config;
+    
+    private final TokenBucket globalBucket;
+    
+    /**
+     * Per-webhook buckets, created on first use
+     */
+    private final ConcurrentHashMap<Long, TokenBucket> webhookBuckets = new ConcurrentHashMap<>();
+    
+    public RetryBudget(RetryBudgetConfig config) {
+        this.config = config;
+        double globalRate = Math.max(0.001, config.getGlobalRetriesPerSecond());
+        this.globalBucket = new TokenBucket(Math.max(1, globalRate), globalRate);
+    }
+    
+    /**
+     * Credits a webhook with retry tokens for one first delivery attempt.
+     * 
+     * @param webhookId Webhook the attempt was sent to
+     */
+    public void recordFirstAttempt(long webhookId) {
+        if (config.isEnabled()) {
+            bucket(webhookId).deposit(config.getRatio());
+        }
+    }
+    
+    /**
+     * Spends one retry token of the webhook and of the global budget.
+     * 
+     * @param webhookId Webhook the retry would be sent to
+     * @return true if the retry may be sent now, false if it should be deferred
+     */
+    public boolean tryAcquire(long webhookId) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        TokenBucket bucket = bucket(webhookId);
+        if (!bucket.tryTake()) {
+            return false;
+        }
+        if (!globalBucket.tryTake()) {
+            // Give the webhook its token back; the global cap was the limit
+            bucket.deposit(1);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns how long to defer a retry refused by tryAcquire(), with jitter so
+     * deferred retries do not all come back at once.
+     * 
+     * @param webhookId Webhook the retry would be sent to
+     * @return Delay in milliseconds
+     */
+    public long deferDelayMs(long webhookId) {
+        long wait = Math.max(bucket(webhookId).millisUntilToken(), globalBucket.millisUntilToken());
+        long base = Math.min(MAX_DEFER_MS, Math.max(MIN_DEFER_MS, wait));
+        return base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+    
+    private TokenBucket bucket(long webhookId) {
+        return webhookBuckets.computeIfAbsent(webhookId,
+                id -> new TokenBucket(Math.max(1, config.getMaxTokens()), Math.max(0, config.getMinRetriesPerSecond())));
+    }
+}
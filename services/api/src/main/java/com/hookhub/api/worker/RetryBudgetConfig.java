@@ -0,0 +1,86 @@
+package com.hookhub.api.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for retry budgets.
+ * Properties are loaded from application.properties or application.yml.
+ * 
+ * Example configuration:
+ * hookhub.retry.budget.enabled=true
+ * hookhub.retry.budget.ratio=0.2
+ * hookhub.retry.budget.min-retries-per-second=0.1
+ * hookhub.retry.budget.max-tokens=10
+ * hookhub.retry.budget.global-retries-per-second=500
+ * 
+ * With these values each webhook may retry at most 20% of its first-attempt
+ * traffic (plus one retry every 10 seconds, so quiet webhooks can still retry),
+ * and all webhooks together at most 500 retries per second.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hookhub.retry.budget")
+public class RetryBudgetConfig {
+    
+    private boolean enabled = true;
+    
+    /**
+     * Retry tokens earned by each first delivery attempt of a webhook
+     */
+    private double ratio = 0.2;
+    
+    /**
+     * Retry tokens every webhook earns per second regardless of traffic
+     */
+    private double minRetriesPerSecond = 0.1;
+    
+    /**
+     * Most retry tokens a webhook can save up (its burst size)
+     */
+    private double maxTokens = 10;
+    
+    /**
+     * Retries per second across all webhooks; also the global burst size
+     */
+    private double globalRetriesPerSecond = 500;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public double getRatio() {
+        return ratio;
+    }
+    
+    public void setRatio(double ratio) {
+        this.ratio = ratio;
+    }
+    
+    public double getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+    
+    public void setMinRetriesPerSecond(double minRetriesPerSecond) {
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+    
+    public double getMaxTokens() {
+        return maxTokens;
+    }
+    
+    public void setMaxTokens(double maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+    
+    public double getGlobalRetriesPerSecond() {
+        return globalRetriesPerSecond;
+    }
+    
+    public void setGlobalRetriesPerSecond(double globalRetriesPerSecond) {
+        this.globalRetriesPerSecond = globalRetriesPerSecond;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hookhub.api.worker;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.model.Webhook;
+
+/**
+ * Resolves the RetryPolicy of a webhook from its retry columns.
+ * 
+ * Webhooks without a retry strategy use the global default policy (AppConfig).
+ * Unset parameters fall back to the default policy's values. Resolved policies
+ * are cached per webhook together with the settings they were built from, so the
+ * delivery hot path only compares a few fields; a changed webhook is rebuilt on
+ * its next delivery.
+ */
+@Component
+public class RetryPolicyResolver {
+    
+    private static final long FALLBACK_BASE_DELAY_MS = 1000;
+    private static final long FALLBACK_MAX_DELAY_MS = 60000;
+    
+    /**
+     * Retry columns of a webhook, compared to detect changes
+     */
+    private record Settings(RetryStrategy strategy, Long baseDelayMs, Long maxDelayMs,
+                            Integer maxAttempts, String schedule) {
+    }
+    
+    private record CachedPolicy(Settings settings, RetryPolicy policy) {
+    }
+    
+    private final RetryPolicy defaultPolicy;
+    private final long defaultBaseDelayMs;
+    private final long defaultMaxDelayMs;
+    
+    private final ConcurrentHashMap<Long, CachedPolicy> cache = new ConcurrentHashMap<>();
+    
+    public RetryPolicyResolver(RetryPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+        if (defaultPolicy instanceof BackoffRetryPolicy backoff) {
+            this.defaultBaseDelayMs = backoff.getBaseDelayMs();
+            this.defaultMaxDelayMs = backoff.getMaxDelayMs();
+        } else {
+            this.defaultBaseDelayMs = FALLBACK_BASE_DELAY_MS;
+            this.defaultMaxDelayMs = FALLBACK_MAX_DELAY_MS;
+        }
+    }
+    
+    /**
+     * Returns the retry policy for a webhook.
+     * 
+     * @param webhook The webhook
+     * @return Its own policy, or the default if it has no retry strategy
+     */
+    public RetryPolicy resolve(Webhook webhook) {
+        if (webhook.getRetryStrategy() == null) {
+            return defaultPolicy;
+        }
+        Settings settings = new Settings(webhook.getRetryStrategy(), webhook.getRetryBaseDelayMs(),
+                webhook.getRetryMaxDelayMs(), webhook.getRetryMaxAttempts(), webhook.getRetrySchedule());
+        CachedPolicy cached = cache.get(webhook.getId());
+        if (cached != null && cached.settings().equals(settings)) {
+            return cached.policy();
+        }
+        
+        RetryPolicy policy;
+        try {
+            policy = build(settings.strategy(), settings.baseDelayMs(), settings.maxDelayMs(),
+                    settings.maxAttempts(), settings.schedule());
+        } catch (IllegalArgumentException e) {
+            // Settings are validated on registration; never let a bad row stop deliveries
+            policy = defaultPolicy;
+        }
+        if (webhook.getId() != null) {
+            cache.put(webhook.getId(), new CachedPolicy(settings, policy));
+        }
+        return policy;
+    }
+    
+    /**
+     * Builds a retry policy, filling unset parameters from the default policy.
+     * 
+     * @param strategy Retry strategy (null for the default policy)
+     * @param baseDelayMs Base delay, or null
+     * @param maxDelayMs Maximum delay, or null
+     * @param maxAttempts Maximum retries, or null (ignored by FIXED_SCHEDULE)
+     * @param schedule Comma-separated delays in milliseconds (FIXED_SCHEDULE only)
+     * @return The policy
+     * @throws IllegalArgumentException if the parameters are invalid for the strategy
+     */
+    public RetryPolicy build(RetryStrategy strategy, Long baseDelayMs, Long maxDelayMs,
+                             Integer maxAttempts, String schedule) {
+        if (strategy == null) {
+            return defaultPolicy;
+        }
+        long base = Objects.requireNonNullElse(baseDelayMs, defaultBaseDelayMs);
+        long max = Objects.requireNonNullElse(maxDelayMs, Math.max(base, defaultMaxDelayMs));
+        int attempts = Objects.requireNonNullElse(maxAttempts, defaultPolicy.getMaxRetries());
+        
+        switch (strategy) {
+            case FULL_JITTER:
+                return new FullJitterRetryPolicy(base, max, attempts);
+            case DECORRELATED_JITTER:
+                return new DecorrelatedJitterRetryPolicy(base, max, attempts);
+            case FIXED_SCHEDULE:
+                return FixedScheduleRetryPolicy.parse(schedule);
+            case RETRY_AFTER_FIRST:
+                return new RetryAfterFirstRetryPolicy(base, max, attempts);
+            default:
+                throw new IllegalArgumentException("Unsupported retry strategy: " + strategy);
+        }
+    }
+}
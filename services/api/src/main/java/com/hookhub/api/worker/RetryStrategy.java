@@ -0,0 +1,11 @@
+package com.hookhub.api.worker;
+
+/**
+ * Retry strategies a webhook can choose (Webhook.retryStrategy).
+ */
+public enum RetryStrategy {
+    FULL_JITTER,            // Random delay in [0, min(maxDelay, baseDelay * 2^retryCount)]
+    DECORRELATED_JITTER,    // Random delay in [baseDelay, min(maxDelay, baseDelay * 3^retryCount)]
+    FIXED_SCHEDULE,         // Delays taken from Webhook.retrySchedule, one per retry
+    RETRY_AFTER_FIRST       // Retry-After header as given when present, full jitter otherwise
+}
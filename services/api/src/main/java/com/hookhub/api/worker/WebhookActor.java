@@ -0,0 +1,199 @@
+package com.hookhub.api.worker;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hookhub.api.circuitbreaker.CircuitBreaker;
+import com.hookhub.api.circuitbreaker.CircuitBreakerState;
+import com.hookhub.api.model.Webhook;
+
+/**
+ * The single writer of one webhook's circuit breaker and health state.
+ * 
+ * Messages are queued in the actor's mailbox and run one at a time on a shared
+ * carrier pool, so the state needs no locks and no message ever sees another
+ * half-applied. An actor occupies a carrier only while it has messages, and
+ * yields after MAX_MESSAGES_PER_TURN so a busy webhook cannot starve others.
+ * 
+ * Messages must be short and must not block: they only read and update State.
+ */
+final class WebhookActor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebhookActor.class);
+    
+    /**
+     * Messages handled before the actor gives its carrier to others
+     */
+    private static final int MAX_MESSAGES_PER_TURN = 64;
+    
+    /**
+     * Circuit breaker and health state of one webhook, touched only by the actor's messages.
+     * 
+     * Counter changes are kept as deltas until they are persisted, so the database
+     * adds them to whatever it holds instead of being overwritten.
+     */
+    static final class State {
+        
+        private final long webhookId;
+        private final CircuitBreaker.WebhookCircuitState circuit;
+        private long totalFailures;
+        private long totalSuccesses;
+        private long failureDelta = 0;
+        private long successDelta = 0;
+        private volatile boolean dirty = false;
+        
+        private State(Webhook webhook) {
+            this.webhookId = webhook.getId();
+            this.circuit = new CircuitBreaker.WebhookCircuitState();
+            circuit.setState(webhook.getCircuitBreakerState() != null
+                    ? webhook.getCircuitBreakerState() : CircuitBreakerState.CLOSED);
+            circuit.setConsecutiveFailures(webhook.getConsecutiveFailures() != null ? webhook.getConsecutiveFailures() : 0);
+            circuit.setCircuitOpenedAt(webhook.getCircuitOpenedAt());
+            circuit.setLastFailureTime(webhook.getLastFailureTime());
+            this.totalFailures = webhook.getTotalFailures() != null ? webhook.getTotalFailures() : 0;
+            this.totalSuccesses = webhook.getTotalSuccesses() != null ? webhook.getTotalSuccesses() : 0;
+        }
+        
+        CircuitBreaker.WebhookCircuitState circuit() {
+            return circuit;
+        }
+        
+        void recordSuccess() {
+            totalSuccesses++;
+            successDelta++;
+            dirty = true;
+        }
+        
+        void recordFailure() {
+            totalFailures++;
+            failureDelta++;
+            dirty = true;
+        }
+        
+        void markDirty() {
+            dirty = true;
+        }
+        
+        WebhookActors.Health health() {
+            return new WebhookActors.Health(totalFailures, totalSuccesses,
+                    circuit.getConsecutiveFailures(), circuit.getState());
+        }
+        
+        /**
+         * Takes what has to be written since the last flush and clears the deltas.
+         * 
+         * @return The changes, or null if nothing changed
+         */
+        Changes drainChanges() {
+            if (!dirty) {
+                return null;
+            }
+            Changes changes = new Changes(webhookId, circuit.getState(), circuit.getConsecutiveFailures(),
+                    circuit.getCircuitOpenedAt(), circuit.getLastFailureTime(), failureDelta, successDelta);
+            failureDelta = 0;
+            successDelta = 0;
+            dirty = false;
+            return changes;
+        }
+        
+        /**
+         * Puts back deltas whose write failed, so the next flush retries them.
+         */
+        void restore(Changes changes) {
+            failureDelta += changes.failureDelta();
+            successDelta += changes.successDelta();
+            dirty = true;
+        }
+    }
+    
+    /**
+     * A webhook's state as it is to be persisted
+     */
+    record Changes(long webhookId, CircuitBreakerState state, int consecutiveFailures,
+                   LocalDateTime circuitOpenedAt, LocalDateTime lastFailureTime,
+                   long failureDelta, long successDelta) {
+    }
+    
+    private final State state;
+    private final Executor carriers;
+    
+    private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    
+    WebhookActor(Webhook webhook, Executor carriers) {
+        this.state = new State(webhook);
+        this.carriers = carriers;
+    }
+    
+    /**
+     * Sends a message without waiting for it to run.
+     * 
+     * @param message Update of the actor's state
+     */
+    void tell(Consumer<State> message) {
+        mailbox.add(() -> message.accept(state));
+        schedule();
+    }
+    
+    /**
+     * Sends a message and returns its reply once it has run.
+     * 
+     * @param message Read or update of the actor's state
+     * @return The message's result
+     */
+    <T> CompletableFuture<T> ask(Function<State, T> message) {
+        CompletableFuture<T> reply = new CompletableFuture<>();
+        tell(s -> {
+            try {
+                reply.complete(message.apply(s));
+            } catch (RuntimeException e) {
+                reply.completeExceptionally(e);
+            }
+        });
+        return reply;
+    }
+    
+    /**
+     * Whether the state has changes that are not persisted yet. May be stale by the
+     * time it is acted on; drainChanges() is the authoritative check.
+     */
+    boolean isDirty() {
+        return state.dirty;
+    }
+    
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            carriers.execute(this::drain);
+        }
+    }
+    
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_MESSAGES_PER_TURN; i++) {
+                Runnable message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                try {
+                    message.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error in message for webhook actor: id={}", state.webhookId, e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // Messages that arrived after the last poll, or beyond this turn's share
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.hookhub.api.worker;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.circuitbreaker.CircuitBreaker;
+import com.hookhub.api.circuitbreaker.CircuitBreakerState;
+import com.hookhub.api.model.Webhook;
+import com.hookhub.api.repository.WebhookRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Owns the circuit breaker and health state of every webhook, one WebhookActor per webhook.
+ * 
+ * Delivery threads no longer rebuild a WebhookCircuitState from the webhook row
+ * and save it back, which lost counter updates and never enforced the half-open
+ * test limit when threads raced on the same webhook. Instead they send messages
+ * to the webhook's actor: admit() before delivering, recordSuccess() and
+ * recordFailure() afterwards. Each actor applies its messages one at a time on a
+ * small shared pool of carrier threads.
+ * 
+ * State is loaded from the webhook row when its actor is created and written back
+ * asynchronously: a flusher writes the state of changed actors every
+ * hookhub.delivery.state-flush-interval-ms, adding counter deltas in the database
+ * (WebhookRepository.updateDeliveryState()), and once more at shutdown. A crash
+ * loses at most one interval of counter updates. Actors live as long as the process.
+ */
+@Component
+public class WebhookActors {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebhookActors.class);
+    
+    /**
+     * How long a webhook whose half-open test slots are taken waits before asking again
+     */
+    private static final long HALF_OPEN_RECHECK_SECONDS = 5;
+    
+    /**
+     * Result of asking to deliver to a webhook.
+     * 
+     * @param allowed Whether the circuit breaker lets the request through
+     * @param state Circuit state after the check
+     * @param retryAt When to ask again if not allowed (end of the cooldown, or shortly for a busy HALF_OPEN circuit)
+     */
+    public record Admission(boolean allowed, CircuitBreakerState state, LocalDateTime retryAt) {
+    }
+    
+    /**
+     * A webhook's health counters, as the ErrorClassifier takes them.
+     */
+    public record Health(long totalFailures, long totalSuccesses, int consecutiveFailures, CircuitBreakerState state) {
+    }
+    
+    private final CircuitBreaker circuitBreaker;
+    private final WebhookRepository webhookRepository;
+    private final long flushIntervalMs;
+    
+    private final ConcurrentHashMap<Long, WebhookActor> actors = new ConcurrentHashMap<>();
+    
+    private ExecutorService carriers;
+    private volatile boolean running = false;
+    private Thread flusherThread;
+    
+    public WebhookActors(CircuitBreaker circuitBreaker,
+                         WebhookRepository webhookRepository,
+                         DeliveryExecutorConfig config) {
+        this.circuitBreaker = circuitBreaker;
+        this.webhookRepository = webhookRepository;
+        this.flushIntervalMs = Math.max(10, config.getStateFlushIntervalMs());
+    }
+    
+    @PostConstruct
+    public void start() {
+        AtomicInteger carrierIndex = new AtomicInteger();
+        carriers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "WebhookActor-" + carrierIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        flusherThread = new Thread(this::flushLoop, "WebhookActors-Flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        logger.info("WebhookActors started: flush interval={}ms", flushIntervalMs);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusherThread != null) {
+            flusherThread.interrupt();
+            try {
+                flusherThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Write what changed since the last interval before the carriers go away
+        flush();
+        if (carriers != null) {
+            carriers.shutdown();
+        }
+    }
+    
+    /**
+     * Asks the webhook's circuit breaker whether a delivery may go out now. In
+     * HALF_OPEN an allowed request takes one of the limited test slots.
+     * 
+     * @param webhook The webhook about to be delivered to
+     * @return Whether to deliver, and when to try again if not
+     */
+    public Admission admit(Webhook webhook) {
+        return actorFor(webhook).ask(state -> {
+            CircuitBreaker.WebhookCircuitState circuit = state.circuit();
+            CircuitBreakerState before = circuit.getState();
+            if (before == CircuitBreakerState.OPEN && circuit.getCircuitOpenedAt() == null) {
+                // Opened without a timestamp (legacy rows): start the cooldown now rather than never
+                circuit.setCircuitOpenedAt(LocalDateTime.now());
+                state.markDirty();
+            }
+            boolean allowed = circuitBreaker.allowRequest(circuit);
+            if (circuit.getState() != before) {
+                state.markDirty();
+            }
+            LocalDateTime retryAt = null;
+            if (!allowed) {
+                LocalDateTime cooldownEnd = circuitBreaker.getCooldownEnd(circuit);
+                retryAt = circuit.getState() == CircuitBreakerState.OPEN && cooldownEnd != null
+                        ? cooldownEnd
+                        : LocalDateTime.now().plusSeconds(HALF_OPEN_RECHECK_SECONDS);
+            }
+            return new Admission(allowed, circuit.getState(), retryAt);
+        }).join();
+    }
+    
+    /**
+     * Gives back a HALF_OPEN test slot taken by admit() for a delivery that was not
+     * sent after all (e.g. the host stayed busy). Does not wait.
+     * 
+     * @param webhook The webhook that was admitted
+     */
+    public void cancelAdmission(Webhook webhook) {
+        actorFor(webhook).tell(state -> {
+            CircuitBreaker.WebhookCircuitState circuit = state.circuit();
+            if (circuit.getState() == CircuitBreakerState.HALF_OPEN && circuit.getHalfOpenTestCount() > 0) {
+                circuit.setHalfOpenTestCount(circuit.getHalfOpenTestCount() - 1);
+            }
+        });
+    }
+    
+    /**
+     * Returns when the webhook's circuit may let a request through again.
+     * 
+     * @param webhook The webhook
+     * @return End of the cooldown if the circuit is OPEN (as of all messages sent before this call), otherwise null
+     */
+    public LocalDateTime cooldownEnd(Webhook webhook) {
+        return actorFor(webhook).ask(state -> state.circuit().getState() == CircuitBreakerState.OPEN
+                ? circuitBreaker.getCooldownEnd(state.circuit())
+                : null).join();
+    }
+    
+    /**
+     * Returns the webhook's current health counters.
+     * 
+     * @param webhook The webhook
+     * @return Counters as of all messages sent before this call
+     */
+    public Health health(Webhook webhook) {
+        return actorFor(webhook).ask(WebhookActor.State::health).join();
+    }
+    
+    /**
+     * Records a successful delivery (closes a HALF_OPEN circuit). Does not wait.
+     * 
+     * @param webhook The webhook delivered to
+     */
+    public void recordSuccess(Webhook webhook) {
+        actorFor(webhook).tell(state -> {
+            circuitBreaker.recordSuccess(state.circuit());
+            state.recordSuccess();
+        });
+    }
+    
+    /**
+     * Records a failed delivery (may open the circuit). Does not wait.
+     * 
+     * @param webhook The webhook delivered to
+     */
+    public void recordFailure(Webhook webhook) {
+        actorFor(webhook).tell(state -> {
+            circuitBreaker.recordFailure(state.circuit());
+            state.recordFailure();
+        });
+    }
+    
+    private WebhookActor actorFor(Webhook webhook) {
+        return actors.computeIfAbsent(webhook.getId(), id -> new WebhookActor(webhook, carriers));
+    }
+    
+    private void flushLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(flushIntervalMs);
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in WebhookActors flush loop", e);
+            }
+        }
+    }
+    
+    /**
+     * Writes the state of every actor that changed since the last flush.
+     */
+    private void flush() {
+        for (WebhookActor actor : actors.values()) {
+            if (!actor.isDirty()) {
+                continue;
+            }
+            WebhookActor.Changes changes = actor.ask(WebhookActor.State::drainChanges).join();
+            if (changes == null) {
+                continue;
+            }
+            try {
+                webhookRepository.updateDeliveryState(changes.webhookId(), changes.state(), changes.consecutiveFailures(),
+                        changes.circuitOpenedAt(), changes.lastFailureTime(), changes.failureDelta(), changes.successDelta());
+            } catch (DataAccessException e) {
+                logger.warn("Failed to persist state of webhook: id={}, will retry: {}", changes.webhookId(), e.getMessage());
+                actor.tell(state -> state.restore(changes));
+            }
+        }
+    }
+}
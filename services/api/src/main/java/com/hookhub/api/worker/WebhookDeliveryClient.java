@@ -1,15 +1,19 @@
 package com.hookhub.api.worker;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
@@ -24,80 +28,98 @@ import com.hookhub.api.model.Webhook;
  * - Determining if errors are retryable
  * - Configuring timeouts and headers
  * 
- * Note: HTTP timeouts are configured in AppConfig via RestTemplate bean.
+ * Requests go over the pooled keep-alive connections of DeliveryHttpTransport;
+ * timeouts and pool settings are in DeliveryHttpConfig (hookhub.delivery.http.*).
+ * In ASYNC delivery mode deliverAsync() sends over the transport's non-blocking
+ * HTTP/2 client instead and classifies responses the same way.
+ * 
+ * Response bodies are streamed, never read whole: failures keep the first
+ * hookhub.delivery.http.max-response-bytes for diagnostics and discard the rest,
+ * successes discard the body unless the webhook has captureResponseBody set
+ * (see BoundedResponseBody).
+ * 
+ * Request bodies are encoded with the webhook's payloadCompression by
+ * PayloadCompressor. A receiver that answers a compressed request with 415 is
+ * sent the same body plain right away, and gets plain bodies from then on.
  */
 @Component
 public class WebhookDeliveryClient {
     
     private static final Logger logger = LoggerFactory.getLogger(WebhookDeliveryClient.class);
     
+    private static final String USER_AGENT = "HookHub-DeliveryWorker/1.0";
+    
+    private final DeliveryHttpTransport transport;
+    private final PayloadCompressor payloadCompressor;
     private final RestTemplate restTemplate;
+    private final Duration readTimeout;
+    private final int maxResponseBytes;
+    private final long maxRetryAfterSeconds;
     
-    public WebhookDeliveryClient(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public WebhookDeliveryClient(DeliveryHttpTransport transport, DeliveryHttpConfig httpConfig,
+                                 PayloadCompressor payloadCompressor, HostBackoffConfig backoffConfig) {
+        this.transport = transport;
+        this.payloadCompressor = payloadCompressor;
+        this.restTemplate = transport.getRestTemplate();
+        this.readTimeout = Duration.ofMillis(httpConfig.getReadTimeoutMs());
+        this.maxResponseBytes = httpConfig.getMaxResponseBytes();
+        this.maxRetryAfterSeconds = Math.max(0, backoffConfig.getMaxBackoffSeconds());
     }
     
     /**
      * Delivers a webhook payload to the target URL.
      * 
      * @param webhook The webhook containing the target URL
+     * @param eventId The event whose payload is sent, or null for a batch; keys the compressed payload cache
      * @param payload The JSON payload to send
      * @return DeliveryResult containing success status and response details
      */
-    public DeliveryResult deliver(Webhook webhook, String payload) {
+    public DeliveryResult deliver(Webhook webhook, Long eventId, String payload) {
+        PayloadCompressor.EncodedBody body = payloadCompressor.encode(webhook, eventId, payload);
+        DeliveryResult result = send(webhook, body);
+        if (refusedEncoding(webhook, body, result)) {
+            result = send(webhook, PayloadCompressor.EncodedBody.plain(payload));
+        }
+        return result;
+    }
+    
+    private DeliveryResult send(Webhook webhook, PayloadCompressor.EncodedBody body) {
         String url = webhook.getUrl();
         
-        logger.info("Delivering webhook to URL: {}, payload size: {} bytes", url, payload != null ? payload.length() : 0);
+        logger.info("Delivering webhook to URL: {}, payload size: {} bytes, encoding: {}",
+                url, body.bytes() != null ? body.bytes().length : 0, body.isCompressed() ? body.contentEncoding() : "identity");
         
         try {
-            // Prepare HTTP headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("User-Agent", "HookHub-DeliveryWorker/1.0");
-            
-            // Add custom headers if metadata contains them
-            if (webhook.getMetadata() != null && !webhook.getMetadata().isEmpty()) {
-                // TODO: Parse metadata JSON and extract custom headers if needed
-            }
-            
-            // Create HTTP entity
-            HttpEntity<String> entity = new HttpEntity<>(payload, headers);
-            
-            // Send POST request
-            ResponseEntity<String> response = restTemplate.exchange(
+            // Send POST request; the delivery RestTemplate raises no exceptions for 4xx/5xx,
+            // so the status is classified here and the body is only read as far as needed
+            return restTemplate.execute(
                     url,
                     HttpMethod.POST,
-                    entity,
-                    String.class
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        request.getHeaders().set("User-Agent", USER_AGENT);
+                        
+                        // Add custom headers if metadata contains them
+                        if (webhook.getMetadata() != null && !webhook.getMetadata().isEmpty()) {
+                            // TODO: Parse metadata JSON and extract custom headers if needed
+                        }
+                        
+                        if (body.isCompressed()) {
+                            request.getHeaders().set("Content-Encoding", body.contentEncoding());
+                        }
+                        if (body.bytes() != null) {
+                            request.getBody().write(body.bytes());
+                        }
+                    },
+                    response -> {
+                        int statusCode = response.getStatusCode().value();
+                        String responseBody = keepsBody(webhook, statusCode)
+                                ? BoundedResponseBody.read(response.getBody(), maxResponseBytes, response.getHeaders().getFirst("Content-Type"))
+                                : null;
+                        return classify(url, statusCode, response.getHeaders().getFirst("Retry-After"), responseBody);
+                    }
             );
             
-            int statusCode = response.getStatusCode().value();
-            String responseBody = response.getBody();
-            
-            logger.info("Webhook delivery successful: URL={}, Status={}, Response={}", 
-                    url, statusCode, responseBody != null ? responseBody.substring(0, Math.min(100, responseBody.length())) : "empty");
-            
-            return DeliveryResult.success(statusCode, responseBody);
-            
-        } catch (HttpServerErrorException e) {
-            // 5xx errors are retryable
-            Integer retryAfter = extractRetryAfter(e.getResponseHeaders());
-            logger.warn("Webhook delivery failed with server error: URL={}, Status={}, Message={}, Retry-After={}", 
-                    url, e.getStatusCode(), e.getMessage(), retryAfter);
-            return DeliveryResult.retryableFailure(e.getStatusCode().value(), e.getResponseBodyAsString(), retryAfter);
-            
-        } catch (HttpClientErrorException e) {
-            // 4xx errors - check for rate limiting (429)
-            Integer retryAfter = extractRetryAfter(e.getResponseHeaders());
-            if (e.getStatusCode().value() == 429) {
-                logger.warn("Webhook delivery rate limited: URL={}, Retry-After={}", url, retryAfter);
-                return DeliveryResult.retryableFailure(e.getStatusCode().value(), e.getResponseBodyAsString(), retryAfter);
-            }
-            // Other 4xx errors are typically not retryable (client error)
-            logger.warn("Webhook delivery failed with client error: URL={}, Status={}, Message={}", 
-                    url, e.getStatusCode(), e.getMessage());
-            return DeliveryResult.nonRetryableFailure(e.getStatusCode().value(), e.getResponseBodyAsString());
-            
         } catch (ResourceAccessException e) {
             // Network/timeout errors are retryable
             logger.warn("Webhook delivery failed with network error: URL={}, Message={}", url, e.getMessage());
@@ -111,31 +133,175 @@ public class WebhookDeliveryClient {
     }
     
     /**
-     * Extracts Retry-After header value from HTTP headers.
-     * Supports both integer seconds and HTTP-date formats.
+     * Delivers a webhook payload without blocking a thread while the receiver responds.
+     * Requires ASYNC delivery mode.
      * 
-     * @param headers HTTP response headers
-     * @return Retry-After value in seconds, or null if not present
+     * The returned future completes on a thread of the async client once the
+     * response has been read. Outcomes match deliver(): 2xx and 3xx succeed, 429
+     * and 5xx are retryable (with Retry-After), other 4xx are not, and network
+     * errors and timeouts are retryable with status 0; the future itself never
+     * completes exceptionally unless cancelled. Cancelling it aborts the exchange.
+     * 
+     * @param webhook The webhook containing the target URL
+     * @param eventId The event whose payload is sent, or null for a batch; keys the compressed payload cache
+     * @param payload The JSON payload to send
+     * @return Future of the DeliveryResult
      */
-    private Integer extractRetryAfter(HttpHeaders headers) {
-        if (headers == null) {
-            return null;
+    public CompletableFuture<DeliveryResult> deliverAsync(Webhook webhook, Long eventId, String payload) {
+        PayloadCompressor.EncodedBody body = payloadCompressor.encode(webhook, eventId, payload);
+        CompletableFuture<DeliveryResult> first = sendAsync(webhook, body);
+        if (!body.isCompressed()) {
+            return first;
         }
+        // A refused encoding is resent plain; cancelling the result aborts whichever exchange is running
+        AtomicReference<CompletableFuture<DeliveryResult>> current = new AtomicReference<>(first);
+        CompletableFuture<DeliveryResult> result = first.thenCompose(firstResult -> {
+            if (!refusedEncoding(webhook, body, firstResult)) {
+                return CompletableFuture.completedFuture(firstResult);
+            }
+            CompletableFuture<DeliveryResult> plain = sendAsync(webhook, PayloadCompressor.EncodedBody.plain(payload));
+            current.set(plain);
+            return plain;
+        });
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                current.get().cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    private CompletableFuture<DeliveryResult> sendAsync(Webhook webhook, PayloadCompressor.EncodedBody body) {
+        String url = webhook.getUrl();
+        
+        logger.info("Delivering webhook asynchronously to URL: {}, payload size: {} bytes, encoding: {}",
+                url, body.bytes() != null ? body.bytes().length : 0, body.isCompressed() ? body.contentEncoding() : "identity");
         
-        String retryAfter = headers.getFirst("Retry-After");
+        HttpRequest request;
+        try {
+            URI uri = URI.create(url);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(readTimeout)
+                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                    .header("User-Agent", USER_AGENT)
+                    .POST(body.bytes() != null
+                            ? HttpRequest.BodyPublishers.ofByteArray(body.bytes())
+                            : HttpRequest.BodyPublishers.noBody());
+            if (body.isCompressed()) {
+                builder.header("Content-Encoding", body.contentEncoding());
+            }
+            if (!"https".equalsIgnoreCase(uri.getScheme())) {
+                // HTTP/2 is negotiated over TLS only; no h2c upgrade attempts on plain connections
+                builder.version(HttpClient.Version.HTTP_1_1);
+            }
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Webhook delivery failed, invalid URL: URL={}, Message={}", url, e.getMessage());
+            return CompletableFuture.completedFuture(DeliveryResult.retryableFailure(0, e.getMessage()));
+        }
+        
+        HttpResponse.BodyHandler<String> bodyHandler = info -> keepsBody(webhook, info.statusCode())
+                ? BoundedResponseBody.subscriber(maxResponseBytes, info.headers().firstValue("Content-Type").orElse(null))
+                : HttpResponse.BodySubscribers.replacing(null);
+        CompletableFuture<HttpResponse<String>> exchange = transport.getAsyncClient().sendAsync(request, bodyHandler);
+        CompletableFuture<DeliveryResult> result = exchange.handle((response, error) ->
+                error == null ? toResult(url, response) : toNetworkFailure(url, error));
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    private DeliveryResult toResult(String url, HttpResponse<String> response) {
+        logger.debug("Webhook response received: URL={}, Version={}", url, response.version());
+        return classify(url, response.statusCode(), response.headers().firstValue("Retry-After").orElse(null), response.body());
+    }
+    
+    /**
+     * Classifies a response: 5xx and 429 are retryable (with Retry-After), other 4xx
+     * are not, everything else is a success.
+     * 
+     * @param url The webhook URL, for logging
+     * @param statusCode HTTP status code
+     * @param retryAfterHeader The Retry-After header, or null
+     * @param responseBody The kept part of the body, or null if it was discarded
+     * @return The delivery result
+     */
+    private DeliveryResult classify(String url, int statusCode, String retryAfterHeader, String responseBody) {
+        if (statusCode >= 500) {
+            // 5xx errors are retryable
+            Integer retryAfter = parseRetryAfter(retryAfterHeader);
+            logger.warn("Webhook delivery failed with server error: URL={}, Status={}, Retry-After={}",
+                    url, statusCode, retryAfter);
+            return DeliveryResult.retryableFailure(statusCode, responseBody, retryAfter);
+        }
+        if (statusCode == 429) {
+            Integer retryAfter = parseRetryAfter(retryAfterHeader);
+            logger.warn("Webhook delivery rate limited: URL={}, Retry-After={}", url, retryAfter);
+            return DeliveryResult.retryableFailure(statusCode, responseBody, retryAfter);
+        }
+        if (statusCode >= 400) {
+            // Other 4xx errors are typically not retryable (client error)
+            logger.warn("Webhook delivery failed with client error: URL={}, Status={}", url, statusCode);
+            return DeliveryResult.nonRetryableFailure(statusCode, responseBody);
+        }
+        
+        logger.info("Webhook delivery successful: URL={}, Status={}, Response={}",
+                url, statusCode, responseBody != null ? responseBody.substring(0, Math.min(100, responseBody.length())) : "not captured");
+        return DeliveryResult.success(statusCode, responseBody);
+    }
+    
+    /**
+     * Whether the receiver refused a compressed body (415 Unsupported Media Type);
+     * if so the webhook gets plain bodies for a while.
+     */
+    private boolean refusedEncoding(Webhook webhook, PayloadCompressor.EncodedBody body, DeliveryResult result) {
+        if (!body.isCompressed() || result.getStatusCode() != 415) {
+            return false;
+        }
+        logger.warn("Receiver refused {} request body, resending uncompressed: URL={}", body.contentEncoding(), webhook.getUrl());
+        payloadCompressor.refuse(webhook);
+        return true;
+    }
+    
+    /**
+     * Whether a response body is read at all: always for failures (diagnostics),
+     * for successes only when the webhook captures them.
+     */
+    private static boolean keepsBody(Webhook webhook, int statusCode) {
+        return statusCode >= 400 || Boolean.TRUE.equals(webhook.getCaptureResponseBody());
+    }
+    
+    private DeliveryResult toNetworkFailure(String url, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        // Network/timeout errors are retryable
+        logger.warn("Webhook delivery failed with network error: URL={}, Message={}", url, cause.toString());
+        return DeliveryResult.retryableFailure(0, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+    }
+        
+    /**
+     * Parses a Retry-After value given as integer seconds or as an HTTP-date.
+     * The result is capped at hookhub.retry.backoff.max-backoff-seconds, so a
+     * receiver (or a far-future date) cannot park an event for longer than that.
+     * 
+     * @param retryAfter The header value, or null
+     * @return Retry-After value in seconds, or null if not present or unparseable
+     */
+    private Integer parseRetryAfter(String retryAfter) {
         if (retryAfter == null || retryAfter.isEmpty()) {
             return null;
         }
         
-        try {
-            // Try parsing as integer (seconds)
-            return Integer.parseInt(retryAfter);
-        } catch (NumberFormatException e) {
-            // Could be HTTP-date format, but for simplicity, we'll just log and return null
-            // In production, you might want to parse HTTP-date format
-            logger.debug("Retry-After header is not an integer: {}", retryAfter);
+        Long delayMs = HostBackoffRegistry.parseRetryAfterMillis(retryAfter, System.currentTimeMillis());
+        if (delayMs == null) {
+            logger.debug("Retry-After header is neither seconds nor an HTTP-date: {}", retryAfter);
             return null;
         }
+        // Round up so a date a few hundred milliseconds away is not taken as "now"
+        long seconds = delayMs / 1000 + (delayMs % 1000 == 0 ? 0 : 1);
+        return (int) Math.min(Math.min(Integer.MAX_VALUE, maxRetryAfterSeconds), seconds);
     }
     
     /**
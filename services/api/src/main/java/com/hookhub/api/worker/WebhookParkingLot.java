@@ -0,0 +1,405 @@
+package com.hookhub.api.worker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.hookhub.api.queue.EventQueue;
+import com.hookhub.api.queue.Lane;
+import com.hookhub.api.queue.QueuedEvent;
+import com.hookhub.api.queue.RetryScheduler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds the backlog of webhooks that cannot be delivered to right now and releases it in one go.
+ * 
+ * When a webhook's circuit is OPEN or the webhook is paused until a known time,
+ * DeliveryWorker parks the event here together with the time the webhook becomes
+ * deliverable again (the end of the circuit cooldown, when it may go HALF_OPEN,
+ * or pausedUntil). From then on the dispatcher parks every further event of that
+ * webhook before claiming it, so a dead webhook's backlog costs no database write
+ * and no timer per event.
+ * 
+ * A single release thread hands the whole backlog back to the EventQueue once its
+ * time has come; each event keeps its attempt number and goes to the RETRY lane
+ * if it is a retry, the FRESH lane otherwise.
+ * 
+ * A backlog parked behind an OPEN circuit (parkForCircuit()) is not released whole
+ * at the end of the cooldown, since HALF_OPEN admits only a few test requests and
+ * would refuse the rest. The release thread sends one event as the probe and keeps
+ * the backlog parked: circuitClosed() releases it once a delivery succeeds, and
+ * circuitReopened() parks it until the new cooldown ends if the probe fails. A
+ * probe that never reports back (e.g. it was held for a busy host) is followed by
+ * another one after PROBE_TIMEOUT_MS.
+ * 
+ * Parked events are not written anywhere while parked: their rows keep their
+ * status. At shutdown DeliveryWorker's drain takes them with drain() and records
+ * their release times in the database. An entry queued twice for the same
+ * event (e.g. re-claimed after a lease expired) is parked once. A webhook with
+ * more than MAX_PARKED_PER_WEBHOOK parked events overflows to the durable retry
+ * path in DeliveryWorker.
+ */
+@Component
+public class WebhookParkingLot {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebhookParkingLot.class);
+    
+    /**
+     * Most events parked for one webhook; beyond this they are scheduled individually
+     */
+    private static final int MAX_PARKED_PER_WEBHOOK = 100_000;
+    
+    /**
+     * How often the release thread looks for backlogs that are due
+     */
+    private static final long RELEASE_CHECK_INTERVAL_MS = 250;
+    
+    /**
+     * Delay before offering a refused entry to the queue again
+     */
+    private static final long REFUSED_RETRY_DELAY_MS = 1000;
+    
+    /**
+     * How long a probe may take to report back before the next event probes instead
+     * (covers the host permit wait and the read timeout)
+     */
+    private static final long PROBE_TIMEOUT_MS = 30000;
+    
+    /**
+     * Parked events of one webhook, guarded by its own monitor
+     */
+    private static final class Backlog {
+        
+        private long releaseAt;
+        private boolean released = false;
+        
+        /**
+         * Parked behind a circuit: one probe is released first, the rest once it closes
+         */
+        private boolean probeFirst = false;
+        
+        /**
+         * A probe is out; releaseAt is then its timeout
+         */
+        private boolean probing = false;
+        
+        /**
+         * The event released as the probe, which the dispatcher must not park again
+         */
+        private long probeEventId = -1;
+        
+        /**
+         * Parked entries by event ID, in arrival order
+         */
+        private final LinkedHashMap<Long, QueuedEvent> events = new LinkedHashMap<>();
+        
+        Backlog(long releaseAt) {
+            this.releaseAt = releaseAt;
+        }
+    }
+    
+    private final EventQueue eventQueue;
+    private final RetryScheduler retryScheduler;
+    
+    private final ConcurrentHashMap<Long, Backlog> backlogs = new ConcurrentHashMap<>();
+    
+    private volatile boolean running = false;
+    private Thread releaseThread;
+    
+    public WebhookParkingLot(EventQueue eventQueue, RetryScheduler retryScheduler) {
+        this.eventQueue = eventQueue;
+        this.retryScheduler = retryScheduler;
+    }
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        releaseThread = new Thread(this::releaseLoop, "WebhookParkingLot-Release");
+        releaseThread.setDaemon(true);
+        releaseThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        stopReleasing();
+        int parked = size();
+        if (parked > 0) {
+            logger.info("WebhookParkingLot stopped with {} parked events; they are recovered from the database at startup", parked);
+        }
+    }
+    
+    /**
+     * Parks an event and makes its webhook parked until releaseAt. A later releaseAt
+     * extends an existing backlog; an earlier one does not shorten it.
+     * 
+     * @param event The entry to hold
+     * @param releaseAt Epoch millis at which the webhook's backlog is released
+     * @return true if parked, false if the webhook's backlog is full
+     */
+    public boolean park(QueuedEvent event, long releaseAt) {
+        while (true) {
+            Backlog backlog = backlogs.computeIfAbsent(event.getWebhookId(), id -> new Backlog(releaseAt));
+            synchronized (backlog) {
+                if (backlog.released) {
+                    // Lost a race with the release thread; start a new backlog
+                    continue;
+                }
+                backlog.releaseAt = Math.max(backlog.releaseAt, releaseAt);
+                return add(backlog, event);
+            }
+        }
+    }
+    
+    /**
+     * Parks an event refused by its webhook's circuit breaker. The backlog is
+     * released one probe at a time (see the class comment).
+     * 
+     * @param event The entry to hold
+     * @param releaseAt Epoch millis at which the first probe is released
+     * @param reopened true if the circuit is OPEN (a probe that is out has failed, so the
+     *                 backlog waits for releaseAt), false if it is HALF_OPEN with its test
+     *                 slots taken (the event joins the backlog as it is)
+     * @return true if parked, false if the webhook's backlog is full
+     */
+    public boolean parkForCircuit(QueuedEvent event, long releaseAt, boolean reopened) {
+        while (true) {
+            Backlog backlog = backlogs.computeIfAbsent(event.getWebhookId(), id -> new Backlog(releaseAt));
+            synchronized (backlog) {
+                if (backlog.released) {
+                    // Lost a race with the release thread; start a new backlog
+                    continue;
+                }
+                backlog.probeFirst = true;
+                if (reopened) {
+                    if (backlog.probing) {
+                        stopProbing(backlog, releaseAt);
+                    } else {
+                        backlog.releaseAt = Math.max(backlog.releaseAt, releaseAt);
+                    }
+                }
+                return add(backlog, event);
+            }
+        }
+    }
+    
+    /**
+     * Releases a webhook's circuit-parked backlog once a probe has been delivered.
+     * Does nothing unless a probe is out, so a success that raced the circuit
+     * opening does not release a backlog the circuit would refuse.
+     * 
+     * @param webhookId The webhook delivered to
+     */
+    public void circuitClosed(long webhookId) {
+        Backlog backlog = backlogs.get(webhookId);
+        if (backlog == null) {
+            return;
+        }
+        List<QueuedEvent> released;
+        synchronized (backlog) {
+            if (!backlog.probing || backlog.released) {
+                return;
+            }
+            released = takeAll(backlog);
+        }
+        backlogs.remove(webhookId, backlog);
+        
+        logger.info("Circuit closed, releasing {} parked events for webhook: id={}", released.size(), webhookId);
+        enqueue(released, System.currentTimeMillis());
+    }
+    
+    /**
+     * Keeps a webhook's circuit-parked backlog parked after its probe failed.
+     * 
+     * @param webhookId The webhook
+     * @param releaseAt Epoch millis at which the circuit's new cooldown ends
+     */
+    public void circuitReopened(long webhookId, long releaseAt) {
+        Backlog backlog = backlogs.get(webhookId);
+        if (backlog == null) {
+            return;
+        }
+        synchronized (backlog) {
+            if (backlog.probing && !backlog.released) {
+                stopProbing(backlog, releaseAt);
+            }
+        }
+    }
+    
+    /**
+     * Returns whether a webhook's backlog has a probe out, waiting for its outcome.
+     * 
+     * @param webhookId The webhook
+     * @return true if circuitClosed() or circuitReopened() would act
+     */
+    public boolean isProbing(long webhookId) {
+        Backlog backlog = backlogs.get(webhookId);
+        if (backlog == null) {
+            return false;
+        }
+        synchronized (backlog) {
+            return backlog.probing && !backlog.released;
+        }
+    }
+    
+    /**
+     * Parks an event if its webhook currently has a backlog waiting for release.
+     * Called by the dispatcher before an event is claimed.
+     * 
+     * @param event The dequeued entry
+     * @return true if the event was parked, false if it should be delivered as usual
+     */
+    public boolean parkIfParked(QueuedEvent event) {
+        if (backlogs.isEmpty()) {
+            return false;
+        }
+        Backlog backlog = backlogs.get(event.getWebhookId());
+        if (backlog == null) {
+            return false;
+        }
+        synchronized (backlog) {
+            // The probe itself passes through
+            return !backlog.released && event.getEventId() != backlog.probeEventId && add(backlog, event);
+        }
+    }
+    
+    /**
+     * Stops releasing and removes every parked event, for the shutdown drain.
+     * 
+     * @return Parked entries, each due at its backlog's release time
+     */
+    public List<QueuedEvent> drain() {
+        stopReleasing();
+        List<QueuedEvent> drained = new ArrayList<>();
+        for (Long webhookId : backlogs.keySet()) {
+            Backlog backlog = backlogs.remove(webhookId);
+            if (backlog == null) {
+                continue;
+            }
+            synchronized (backlog) {
+                backlog.released = true;
+                for (QueuedEvent event : backlog.events.values()) {
+                    drained.add(event.dueAt(backlog.releaseAt));
+                }
+                backlog.events.clear();
+            }
+        }
+        return drained;
+    }
+    
+    /**
+     * Returns the number of parked events.
+     * 
+     * @return Parked events across all webhooks
+     */
+    public int size() {
+        int total = 0;
+        for (Backlog backlog : backlogs.values()) {
+            synchronized (backlog) {
+                total += backlog.events.size();
+            }
+        }
+        return total;
+    }
+    
+    private static void stopProbing(Backlog backlog, long releaseAt) {
+        backlog.probing = false;
+        backlog.probeEventId = -1;
+        backlog.releaseAt = releaseAt;
+    }
+    
+    private static List<QueuedEvent> takeAll(Backlog backlog) {
+        backlog.released = true;
+        List<QueuedEvent> released = new ArrayList<>(backlog.events.values());
+        backlog.events.clear();
+        return released;
+    }
+    
+    private boolean add(Backlog backlog, QueuedEvent event) {
+        if (backlog.events.size() >= MAX_PARKED_PER_WEBHOOK && !backlog.events.containsKey(event.getEventId())) {
+            return false;
+        }
+        backlog.events.putIfAbsent(event.getEventId(), event);
+        return true;
+    }
+    
+    private void stopReleasing() {
+        running = false;
+        if (releaseThread != null) {
+            releaseThread.interrupt();
+            try {
+                releaseThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void releaseLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(RELEASE_CHECK_INTERVAL_MS);
+                releaseDue(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Error in WebhookParkingLot release loop", e);
+            }
+        }
+    }
+    
+    /**
+     * Releases every backlog whose time has come, each as one unit, or sends the
+     * next probe of a circuit-parked backlog.
+     */
+    private void releaseDue(long now) {
+        Iterator<Map.Entry<Long, Backlog>> iterator = backlogs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Backlog> entry = iterator.next();
+            Backlog backlog = entry.getValue();
+            List<QueuedEvent> released;
+            synchronized (backlog) {
+                if (backlog.releaseAt > now) {
+                    continue;
+                }
+                if (backlog.probeFirst && !backlog.events.isEmpty()) {
+                    Iterator<QueuedEvent> parked = backlog.events.values().iterator();
+                    QueuedEvent probe = parked.next();
+                    parked.remove();
+                    backlog.probing = true;
+                    backlog.probeEventId = probe.getEventId();
+                    backlog.releaseAt = now + PROBE_TIMEOUT_MS;
+                    logger.info("Releasing probe for circuit-parked webhook: id={}, eventId={}, still parked={}",
+                            entry.getKey(), probe.getEventId(), backlog.events.size());
+                    enqueue(List.of(probe), now);
+                    continue;
+                }
+                released = takeAll(backlog);
+            }
+            backlogs.remove(entry.getKey(), backlog);
+            
+            logger.info("Releasing {} parked events for webhook: id={}", released.size(), entry.getKey());
+            enqueue(released, now);
+        }
+    }
+    
+    private void enqueue(List<QueuedEvent> released, long now) {
+        for (QueuedEvent event : released) {
+            Lane lane = event.getAttempt() > 0 ? Lane.RETRY : Lane.FRESH;
+            if (!eventQueue.enqueue(event, lane)) {
+                // Bounded queues (ring) can refuse; the timing wheel offers it again shortly
+                retryScheduler.schedule(event.dueAt(now + REFUSED_RETRY_DELAY_MS), lane);
+            }
+        }
+    }
+}
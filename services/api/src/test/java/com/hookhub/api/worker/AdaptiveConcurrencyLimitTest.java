@@ -0,0 +1,90 @@
+package com.hookhub.api.worker;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives AdaptiveConcurrencyLimit with simulated receivers: the limit is kept in
+ * use and each completion reports a latency drawn from the receiver's distribution.
+ */
+class AdaptiveConcurrencyLimitTest {
+    
+    private static final long MILLIS = 1_000_000L;
+    
+    @Test
+    void limitStaysAtWorkingLevelUnderNormalLatencySpread() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit();
+        Random random = new Random(42);
+        
+        // Log-normal around 100ms: about one response in five takes more than twice the median
+        simulate(limit, 20_000, inFlight -> logNormal(random, 100 * MILLIS, 0.9));
+        
+        assertTrue(limit.getLimit() >= 90, "limit collapsed to " + limit.getLimit());
+    }
+    
+    @Test
+    void limitStaysAtWorkingLevelWithOccasionalSlowResponses() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit();
+        Random random = new Random(7);
+        
+        // Fast receiver with a slow tail: 15% of responses take 5-10x as long
+        simulate(limit, 20_000, inFlight -> random.nextDouble() < 0.15
+                ? (50 + random.nextInt(50)) * MILLIS
+                : logNormal(random, 10 * MILLIS, 0.3));
+        
+        assertTrue(limit.getLimit() >= 90, "limit collapsed to " + limit.getLimit());
+    }
+    
+    @Test
+    void limitBacksOffWhenReceiverSlowsDown() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = newLimit();
+        Random random = new Random(1);
+        long now = simulate(limit, System.nanoTime(), 20_000, inFlight -> logNormal(random, 100 * MILLIS, 0.3));
+        int before = limit.getLimit();
+        
+        // The receiver starts queueing: every request waits behind the others
+        simulate(limit, now, 500, inFlight -> logNormal(random, 100 * MILLIS * Math.max(1, inFlight / 10), 0.3));
+        
+        assertTrue(limit.getLimit() < before, "limit stayed at " + limit.getLimit() + " (was " + before + ")");
+    }
+    
+    private static AdaptiveConcurrencyLimit newLimit() {
+        // The defaults of hookhub.delivery.*-limit-per-host, limit-backoff-ratio and latency-tolerance
+        return new AdaptiveConcurrencyLimit(10, 1, 100, 0.9, 2.0);
+    }
+    
+    private static long simulate(AdaptiveConcurrencyLimit limit, int completions, IntToLongFunction latency)
+            throws InterruptedException {
+        // The limit measures time with System.nanoTime(), so the simulated clock starts there
+        return simulate(limit, System.nanoTime(), completions, latency);
+    }
+    
+    /**
+     * Fills the limit, then completes one request at a time with the given latency,
+     * advancing the clock as a receiver serving inFlight requests in parallel would.
+     * 
+     * @return The simulated time after the last completion
+     */
+    private static long simulate(AdaptiveConcurrencyLimit limit, long start, int completions, IntToLongFunction latency)
+            throws InterruptedException {
+        long now = start;
+        for (int i = 0; i < completions; i++) {
+            while (limit.getInFlight() < limit.getLimit()) {
+                limit.tryAcquire(0);
+            }
+            int inFlight = limit.getInFlight();
+            long rttNanos = latency.applyAsLong(inFlight);
+            now += rttNanos / inFlight;
+            limit.release(rttNanos, AdaptiveConcurrencyLimit.Outcome.SUCCESS, now);
+        }
+        return now;
+    }
+    
+    private static long logNormal(Random random, long medianNanos, double sigma) {
+        return (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+    }
+}